@@ -26,7 +26,7 @@ final class Annotations {
 
   @Qualifier
   @Retention(RetentionPolicy.RUNTIME)
-  @interface NumThreads {}
+  @interface CachedRenderingTasks {}
 
   @Qualifier
   @Retention(RetentionPolicy.RUNTIME)
@@ -0,0 +1,314 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.github.jsdossier.soy.Renderer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.Resources;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Records the content hashes of a run's inputs and rendered pages in a manifest file stored in the
+ * output directory. When incremental builds are enabled, the manifest from the previous run is used
+ * to skip rendering pages whose content has not changed.
+ *
+ * <p>Every page recorded by a previous run is invalidated if the run's configuration or the
+ * bundled page templates change.
+ */
+final class BuildManifest {
+
+  private static final Logger log = Logger.getLogger(BuildManifest.class.getName());
+
+  @VisibleForTesting static final String FILE_NAME = ".dossier_manifest.json";
+
+  private static final int FORMAT_VERSION = 1;
+  private static final ImmutableSet<String> TEMPLATES =
+      ImmutableSet.of("resources/dossier.soy", "resources/types.soy");
+
+  private final Optional<Path> outputDir;
+  private final String fingerprint;
+  private volatile ImmutableMap<String, String> inputs;
+  private volatile ImmutableMap<String, String> previousInputs;
+  private volatile ImmutableMap<String, String> previousPages;
+  private final ConcurrentMap<String, String> pages = new ConcurrentHashMap<>();
+  private final AtomicInteger skippedPages = new AtomicInteger();
+
+  private BuildManifest(
+      Optional<Path> outputDir,
+      String fingerprint,
+      ImmutableMap<String, String> inputs,
+      ImmutableMap<String, String> previousInputs,
+      ImmutableMap<String, String> previousPages) {
+    this.outputDir = outputDir;
+    this.fingerprint = fingerprint;
+    this.inputs = inputs;
+    this.previousInputs = previousInputs;
+    this.previousPages = previousPages;
+  }
+
+  /** Returns a manifest that never skips any work and is never written to disk. */
+  static BuildManifest disabled() {
+    return new BuildManifest(
+        Optional.empty(), "", ImmutableMap.of(), ImmutableMap.of(), ImmutableMap.of());
+  }
+
+  /**
+   * Hashes the inputs for the given configuration and loads the manifest left in the output
+   * directory by the previous run, if any.
+   */
+  static BuildManifest load(Config config, Path outputDir) throws IOException {
+    outputDir = outputDir.toAbsolutePath().normalize();
+    String fingerprint = computeFingerprint(config);
+
+    ImmutableMap<String, String> inputs = hashInputs(config);
+
+    Path manifestFile = outputDir.resolve(FILE_NAME);
+    if (!Files.exists(manifestFile)) {
+      return new BuildManifest(
+          Optional.of(outputDir), fingerprint, inputs, ImmutableMap.of(), ImmutableMap.of());
+    }
+
+    JsonObject previous;
+    try {
+      previous =
+          new JsonParser()
+              .parse(new String(Files.readAllBytes(manifestFile), UTF_8))
+              .getAsJsonObject();
+    } catch (JsonParseException | IllegalStateException e) {
+      log.warning("Ignoring invalid build manifest: " + manifestFile);
+      previous = new JsonObject();
+    }
+
+    if (!previous.has("version")
+        || previous.get("version").getAsInt() != FORMAT_VERSION
+        || !previous.has("fingerprint")
+        || !fingerprint.equals(previous.get("fingerprint").getAsString())) {
+      log.info("Build configuration changed; rendering all pages");
+      return new BuildManifest(
+          Optional.of(outputDir), fingerprint, inputs, ImmutableMap.of(), ImmutableMap.of());
+    }
+
+    return new BuildManifest(
+        Optional.of(outputDir),
+        fingerprint,
+        inputs,
+        readMap(previous, "inputs"),
+        readMap(previous, "pages"));
+  }
+
+  private static ImmutableMap<String, String> readMap(JsonObject json, String key) {
+    if (!json.has(key) || !json.get(key).isJsonObject()) {
+      return ImmutableMap.of();
+    }
+    ImmutableMap.Builder<String, String> map = ImmutableMap.builder();
+    for (Map.Entry<String, JsonElement> entry : json.getAsJsonObject(key).entrySet()) {
+      map.put(entry.getKey(), entry.getValue().getAsString());
+    }
+    return map.build();
+  }
+
+  /**
+   * Returns the SHA-256 content hash of every input file for the given configuration, keyed by
+   * each file's absolute path.
+   */
+  static ImmutableMap<String, String> hashInputs(Config config) throws IOException {
+    ImmutableSet.Builder<Path> allInputs =
+        ImmutableSet.<Path>builder()
+            .addAll(config.getSources())
+            .addAll(config.getModules())
+            .addAll(config.getExterns())
+            .addAll(config.getExternModules());
+    config.getReadme().ifPresent(allInputs::add);
+    config.getCustomPages().forEach(page -> allInputs.add(page.getPath()));
+
+    try {
+      return allInputs
+          .build()
+          .parallelStream()
+          .collect(
+              toImmutableMap(BuildManifest::toKey, path -> hash(path).toString(), (a, b) -> a));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Computes a fingerprint of the given configuration and the bundled page templates. Changing
+   * either invalidates every page rendered by a previous run.
+   */
+  static String computeFingerprint(Config config) throws IOException {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putInt(FORMAT_VERSION);
+    hasher.putString(config.toJson(), UTF_8);
+    for (String template : TEMPLATES) {
+      URL url = Renderer.class.getResource(template);
+      if (url != null) {
+        hasher.putBytes(Resources.toByteArray(url));
+      }
+    }
+    return hasher.hash().toString();
+  }
+
+  private static HashCode hash(Path path) {
+    try {
+      return MoreFiles.asByteSource(path).hash(Hashing.sha256());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static String toKey(Path path) {
+    return path.toAbsolutePath().normalize().toString();
+  }
+
+  private String toPageKey(Path output) {
+    Path relative = outputDir.get().relativize(output.toAbsolutePath().normalize());
+    return relative.toString().replace(relative.getFileSystem().getSeparator(), "/");
+  }
+
+  /** Returns whether incremental builds are enabled. */
+  boolean isEnabled() {
+    return outputDir.isPresent();
+  }
+
+  /** Returns whether the given input file is unchanged since the previous run. */
+  boolean isInputUnchanged(Path input) {
+    if (!isEnabled()) {
+      return false;
+    }
+    String key = toKey(input);
+    String hash = inputs.get(key);
+    return hash != null && hash.equals(previousInputs.get(key));
+  }
+
+  /**
+   * Records that the page at the given path would be rendered from content with the given hash.
+   *
+   * @return whether the page was rendered from identical content by the previous run and still
+   *     exists, in which case rendering it again may be skipped.
+   */
+  boolean updatePage(Path output, HashCode contentHash) {
+    if (!isEnabled()) {
+      return false;
+    }
+    String key = toPageKey(output);
+    String hash = contentHash.toString();
+    pages.put(key, hash);
+    if (hash.equals(previousPages.get(key)) && Files.exists(output)) {
+      skippedPages.incrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Carries the previous run's record for the page at the given path forward to this run. This
+   * should only be used for pages derived entirely from an {@link #isInputUnchanged unchanged
+   * input}.
+   *
+   * @return whether the page was recorded by the previous run and still exists, in which case
+   *     rendering it again may be skipped.
+   */
+  boolean carryForward(Path output) {
+    if (!isEnabled()) {
+      return false;
+    }
+    String key = toPageKey(output);
+    String hash = previousPages.get(key);
+    if (hash != null && Files.exists(output)) {
+      pages.put(key, hash);
+      skippedPages.incrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Prepares this manifest for another run of the same build, as if it had been written and then
+   * loaded again: the inputs are hashed again, and the inputs and pages recorded by the run that
+   * just finished become the previous run's. This must not be called while pages are rendered.
+   *
+   * @param config the configuration for the next run, which must be equal to the configuration
+   *     this manifest was loaded for.
+   */
+  void advance(Config config) throws IOException {
+    if (!isEnabled()) {
+      return;
+    }
+    previousInputs = inputs;
+    previousPages = ImmutableMap.copyOf(pages);
+    inputs = hashInputs(config);
+    pages.clear();
+    skippedPages.set(0);
+  }
+
+  /** Returns the number of pages whose rendering was skipped during this run. */
+  int getSkippedPageCount() {
+    return skippedPages.get();
+  }
+
+  /** Writes this manifest to the output directory. This is a no-op if the manifest is disabled. */
+  void write() throws IOException {
+    if (!isEnabled()) {
+      return;
+    }
+
+    JsonObject json = new JsonObject();
+    json.addProperty("version", FORMAT_VERSION);
+    json.addProperty("fingerprint", fingerprint);
+    json.add("inputs", toJson(inputs));
+    json.add("pages", toJson(pages));
+
+    Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    try (Writer writer = Files.newBufferedWriter(outputDir.get().resolve(FILE_NAME), UTF_8)) {
+      gson.toJson(json, writer);
+    }
+  }
+
+  private static JsonObject toJson(Map<String, String> map) {
+    JsonObject json = new JsonObject();
+    new TreeMap<>(map).forEach(json::addProperty);
+    return json;
+  }
+}
@@ -0,0 +1,235 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * Caches the Closure dependency information parsed from each source file when expanding sources
+ * with their dependencies from {@code closureLibraryDir} and {@code closureDepFiles}. Each entry
+ * is the {@code goog.addDependency} call generated for a file, keyed by the file's path and a hash
+ * of its content, so only files that changed since the last resolution are parsed again.
+ *
+ * <p>The cache is stored in the {@code --cache_dir} when one is provided. Otherwise, entries are
+ * only kept in memory for as long as the cache is in use; {@code --watch} reuses a single cache for
+ * every rebuild, which still avoids re-parsing unchanged files when it reloads the configuration.
+ * This class is thread-safe.
+ */
+final class ClosureDependencyCache {
+
+  private static final Logger log = Logger.getLogger(ClosureDependencyCache.class.getName());
+
+  @VisibleForTesting static final String FILE_NAME = "closure_deps.json";
+
+  private static final int FORMAT_VERSION = 1;
+
+  private final Optional<Path> cacheFile;
+  private final Map<String, Entry> entries;
+
+  private ClosureDependencyCache(Optional<Path> cacheFile, Map<String, Entry> entries) {
+    this.cacheFile = cacheFile;
+    this.entries = entries;
+  }
+
+  /** Creates a new, empty cache that is only kept in memory. */
+  static ClosureDependencyCache inMemory() {
+    return new ClosureDependencyCache(Optional.empty(), new HashMap<>());
+  }
+
+  /**
+   * Opens the cache for the given flags: the cache stored in the {@code --cache_dir} if one was
+   * provided, or a new in-memory cache otherwise.
+   */
+  static ClosureDependencyCache forFlags(Flags flags) throws IOException {
+    return flags.cacheDir == null ? inMemory() : open(flags.cacheDir);
+  }
+
+  /** Loads the cache stored in the given directory, if there is one. */
+  static ClosureDependencyCache open(Path cacheDir) throws IOException {
+    Path file = cacheDir.toAbsolutePath().normalize().resolve(FILE_NAME);
+    Map<String, Entry> entries = new HashMap<>();
+    if (Files.exists(file)) {
+      String content = new String(Files.readAllBytes(file), UTF_8);
+      boolean valid;
+      try {
+        valid = readEntries(new JsonParser().parse(content), entries);
+      } catch (JsonParseException e) {
+        valid = false;
+      }
+      if (!valid) {
+        log.warning("Ignoring invalid Closure dependency cache: " + file);
+        entries.clear();
+      }
+    }
+    return new ClosureDependencyCache(Optional.of(file), entries);
+  }
+
+  /**
+   * Reads the entries from a parsed cache file. A file written in a different format version is
+   * valid but has no entries.
+   *
+   * @return whether the file was valid.
+   */
+  private static boolean readEntries(JsonElement json, Map<String, Entry> entries) {
+    if (!json.isJsonObject()) {
+      return false;
+    }
+
+    JsonElement version = json.getAsJsonObject().get("version");
+    if (version == null
+        || !version.isJsonPrimitive()
+        || !version.getAsJsonPrimitive().isNumber()
+        || version.getAsInt() != FORMAT_VERSION) {
+      return true;
+    }
+
+    JsonElement files = json.getAsJsonObject().get("files");
+    if (files == null || !files.isJsonObject()) {
+      return false;
+    }
+    for (Map.Entry<String, JsonElement> file : files.getAsJsonObject().entrySet()) {
+      if (!file.getValue().isJsonObject()) {
+        return false;
+      }
+      String hash = getString(file.getValue().getAsJsonObject(), "hash");
+      String deps = getString(file.getValue().getAsJsonObject(), "deps");
+      if (hash == null || deps == null) {
+        return false;
+      }
+      entries.put(file.getKey(), new Entry(hash, deps));
+    }
+    return true;
+  }
+
+  @Nullable
+  private static String getString(JsonObject json, String name) {
+    JsonElement element = json.get(name);
+    return element != null && element.isJsonPrimitive() ? element.getAsString() : null;
+  }
+
+  /**
+   * Computes the hash used to detect changes to a source file. The dependency information for a
+   * file records its path relative to the Closure base directory, so that directory is included.
+   */
+  static String hash(Path closureBase, String content) {
+    return Hashing.sha256()
+        .newHasher()
+        .putString(closureBase.toAbsolutePath().normalize().toString(), UTF_8)
+        .putByte((byte) 0)
+        .putString(content, UTF_8)
+        .hash()
+        .toString();
+  }
+
+  /**
+   * Returns the {@code goog.addDependency} call recorded for the given file, or null if the file
+   * has not been parsed before or its content has changed.
+   */
+  @Nullable
+  synchronized String get(Path path, String hash) {
+    Entry entry = entries.get(toKey(path));
+    return entry != null && entry.hash.equals(hash) ? entry.deps : null;
+  }
+
+  /** Records the {@code goog.addDependency} call for a file that was parsed. */
+  synchronized void put(Path path, String hash, String deps) {
+    entries.put(toKey(path), new Entry(hash, deps));
+  }
+
+  /** Discards the entries for every file not in the given collection. */
+  synchronized void retainAll(Collection<Path> paths) {
+    Map<String, Entry> retained = new HashMap<>();
+    for (Path path : paths) {
+      String key = toKey(path);
+      Entry entry = entries.get(key);
+      if (entry != null) {
+        retained.put(key, entry);
+      }
+    }
+    entries.clear();
+    entries.putAll(retained);
+  }
+
+  /** Writes this cache to the cache directory. This is a no-op for the in-memory cache. */
+  synchronized void write() throws IOException {
+    if (!cacheFile.isPresent()) {
+      return;
+    }
+
+    JsonObject files = new JsonObject();
+    entries.forEach(
+        (path, entry) -> {
+          JsonObject json = new JsonObject();
+          json.addProperty("hash", entry.hash);
+          json.addProperty("deps", entry.deps);
+          files.add(path, json);
+        });
+
+    JsonObject json = new JsonObject();
+    json.addProperty("version", FORMAT_VERSION);
+    json.add("files", files);
+
+    Path file = cacheFile.get();
+    Files.createDirectories(file.getParent());
+
+    // Write to a temporary file first so concurrent runs never observe a partial cache.
+    Path tmp = Files.createTempFile(file.getParent(), FILE_NAME, ".tmp");
+    try {
+      Files.write(tmp, json.toString().getBytes(UTF_8));
+      try {
+        Files.move(tmp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp, file, REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  private static String toKey(Path path) {
+    return path.toAbsolutePath().normalize().toString();
+  }
+
+  private static final class Entry {
+    private final String hash;
+    private final String deps;
+
+    private Entry(String hash, String deps) {
+      this.hash = hash;
+      this.deps = deps;
+    }
+  }
+}
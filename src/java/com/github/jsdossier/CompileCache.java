@@ -0,0 +1,289 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import com.github.jsdossier.proto.Index;
+import com.github.jsdossier.proto.PageData;
+import com.github.jsdossier.proto.RenderSnapshot;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An on-disk cache of the data rendered by previous runs. Each entry is keyed by a digest of the
+ * content of every input, the configuration, the shard being rendered, and the dossier build, and
+ * stores the {@link PageData} for every page along with the type index. The compiler options are
+ * derived entirely from the configuration and the dossier build, so they are covered by the key as
+ * well.
+ *
+ * <p>On a cache hit, the documentation is regenerated from the stored snapshot without invoking the
+ * compiler. On a miss, the data for each page is recorded as it is rendered and stored once the run
+ * has finished. The number of hits and misses across all runs sharing the cache directory is kept
+ * in a {@link #STATS_FILE_NAME stats file}.
+ */
+final class CompileCache {
+
+  private static final Logger log = Logger.getLogger(CompileCache.class.getName());
+
+  @VisibleForTesting static final String STATS_FILE_NAME = "stats.json";
+  @VisibleForTesting static final String SNAPSHOT_EXTENSION = ".snapshot.gz";
+
+  private static final int FORMAT_VERSION = 1;
+
+  private final Optional<Path> cacheDir;
+  private final String key;
+  private final Optional<RenderSnapshot> snapshot;
+  private final ConcurrentMap<String, PageData> pages = new ConcurrentHashMap<>();
+  private final AtomicReference<Index> index = new AtomicReference<>();
+
+  private int hitCount;
+  private int missCount;
+  private long snapshotSize;
+
+  private CompileCache(Optional<Path> cacheDir, String key, Optional<RenderSnapshot> snapshot) {
+    this.cacheDir = cacheDir;
+    this.key = key;
+    this.snapshot = snapshot;
+  }
+
+  /** Returns a cache that never has a snapshot, records nothing, and is never written to disk. */
+  static CompileCache disabled() {
+    return new CompileCache(Optional.empty(), "", Optional.empty());
+  }
+
+  /**
+   * Computes the cache key for the given configuration and loads the matching snapshot from the
+   * cache directory, if there is one.
+   */
+  static CompileCache open(Path cacheDir, Config config, Shard shard) throws IOException {
+    cacheDir = cacheDir.toAbsolutePath().normalize();
+    String key = computeKey(config, shard);
+
+    Path snapshotFile = cacheDir.resolve(key + SNAPSHOT_EXTENSION);
+    if (!Files.exists(snapshotFile)) {
+      return new CompileCache(Optional.of(cacheDir), key, Optional.empty());
+    }
+
+    try (InputStream input = Files.newInputStream(snapshotFile)) {
+      RenderSnapshot snapshot = RenderSnapshot.parseFrom(new GZIPInputStream(input));
+      return new CompileCache(Optional.of(cacheDir), key, Optional.of(snapshot));
+    } catch (IOException e) {
+      log.warning("Ignoring invalid compile cache entry: " + snapshotFile);
+      return new CompileCache(Optional.of(cacheDir), key, Optional.empty());
+    }
+  }
+
+  private static String computeKey(Config config, Shard shard) throws IOException {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putInt(FORMAT_VERSION);
+    hasher.putString(getBuildId(), UTF_8);
+    hasher.putString(BuildManifest.computeFingerprint(config), UTF_8);
+    hasher.putString(shard.toString(), UTF_8);
+    for (Map.Entry<String, String> input :
+        new TreeMap<>(BuildManifest.hashInputs(config)).entrySet()) {
+      hasher.putString(input.getKey(), UTF_8).putByte((byte) 0);
+      hasher.putString(input.getValue(), UTF_8).putByte((byte) 0);
+    }
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Returns a string identifying the dossier build. Release jars record their version in their
+   * manifest, but development builds all share a version, so the jar's size and modification time
+   * are included as well.
+   */
+  private static String getBuildId() {
+    StringBuilder id = new StringBuilder();
+    Package pkg = CompileCache.class.getPackage();
+    if (pkg != null && pkg.getImplementationVersion() != null) {
+      id.append(pkg.getImplementationVersion());
+    }
+
+    CodeSource source = CompileCache.class.getProtectionDomain().getCodeSource();
+    if (source != null && source.getLocation() != null) {
+      try {
+        Path jar = Paths.get(source.getLocation().toURI());
+        if (Files.isRegularFile(jar)) {
+          id.append(':').append(Files.size(jar));
+          id.append(':').append(Files.getLastModifiedTime(jar).toMillis());
+        }
+      } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+        log.fine("Unable to inspect dossier jar: " + e);
+      }
+    }
+    return id.toString();
+  }
+
+  /** Returns whether the cache is enabled. */
+  boolean isEnabled() {
+    return cacheDir.isPresent();
+  }
+
+  /** Returns the snapshot stored by a previous run with identical inputs, if there is one. */
+  Optional<RenderSnapshot> getSnapshot() {
+    return snapshot;
+  }
+
+  /** Returns whether rendered pages should be recorded to be stored in the cache. */
+  boolean isRecording() {
+    return isEnabled() && !snapshot.isPresent();
+  }
+
+  /**
+   * Records the data rendered for a page. This is a no-op unless {@link #isRecording recording}.
+   *
+   * @param path the page's path, relative to the output directory.
+   * @param data the page's data.
+   */
+  void recordPage(Path path, PageData data) {
+    if (isRecording()) {
+      pages.put(path.toString().replace(path.getFileSystem().getSeparator(), "/"), data);
+    }
+  }
+
+  /** Records the type index. This is a no-op unless {@link #isRecording recording}. */
+  void recordIndex(Index index) {
+    if (isRecording()) {
+      this.index.set(index);
+    }
+  }
+
+  /**
+   * Stores the recorded snapshot in the cache directory if this run was a cache miss, and updates
+   * the hit and miss counts. This is a no-op if the cache is disabled.
+   */
+  void write() throws IOException {
+    if (!isEnabled()) {
+      return;
+    }
+    Path dir = cacheDir.get();
+    Files.createDirectories(dir);
+
+    if (snapshot.isPresent()) {
+      snapshotSize = Files.size(dir.resolve(key + SNAPSHOT_EXTENSION));
+    } else {
+      RenderSnapshot.Builder builder = RenderSnapshot.newBuilder();
+      new TreeMap<>(pages)
+          .forEach((path, data) -> builder.addPageBuilder().setPath(path).setData(data));
+      if (index.get() != null) {
+        builder.setIndex(index.get());
+      }
+
+      // Write to a temporary file first so concurrent runs never observe a partial entry.
+      Path tmp = Files.createTempFile(dir, key, ".tmp");
+      try {
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+          builder.build().writeTo(output);
+        }
+        snapshotSize = Files.size(tmp);
+        move(tmp, dir.resolve(key + SNAPSHOT_EXTENSION));
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+    }
+
+    updateStats(dir.resolve(STATS_FILE_NAME));
+  }
+
+  private void updateStats(Path statsFile) throws IOException {
+    JsonObject stats = new JsonObject();
+    if (Files.exists(statsFile)) {
+      try {
+        stats =
+            new JsonParser()
+                .parse(new String(Files.readAllBytes(statsFile), UTF_8))
+                .getAsJsonObject();
+      } catch (JsonParseException | IllegalStateException e) {
+        log.warning("Resetting invalid compile cache stats: " + statsFile);
+      }
+    }
+
+    hitCount = getCount(stats, "hits") + (snapshot.isPresent() ? 1 : 0);
+    missCount = getCount(stats, "misses") + (snapshot.isPresent() ? 0 : 1);
+    stats.addProperty("hits", hitCount);
+    stats.addProperty("misses", missCount);
+
+    Path tmp = Files.createTempFile(statsFile.getParent(), STATS_FILE_NAME, ".tmp");
+    try {
+      Files.write(tmp, stats.toString().getBytes(UTF_8));
+      move(tmp, statsFile);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  private static int getCount(JsonObject stats, String key) {
+    try {
+      return stats.has(key) ? stats.get(key).getAsInt() : 0;
+    } catch (ClassCastException | IllegalStateException | NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  private static void move(Path from, Path to) throws IOException {
+    try {
+      Files.move(from, to, REPLACE_EXISTING, ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(from, to, REPLACE_EXISTING);
+    }
+  }
+
+  /** Returns the number of pages in this run's snapshot. */
+  int getPageCount() {
+    return snapshot.map(RenderSnapshot::getPageCount).orElseGet(pages::size);
+  }
+
+  /** Returns the size of this run's snapshot on disk. Only valid after {@link #write}. */
+  long getSnapshotSize() {
+    return snapshotSize;
+  }
+
+  /** Returns the number of cache hits recorded by every run, including this one. */
+  int getHitCount() {
+    return hitCount;
+  }
+
+  /** Returns the number of cache misses recorded by every run, including this one. */
+  int getMissCount() {
+    return missCount;
+  }
+}
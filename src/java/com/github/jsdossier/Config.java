@@ -17,7 +17,7 @@ package com.github.jsdossier;
 
 import static com.github.jsdossier.Paths.normalizedAbsolutePath;
 import static com.github.jsdossier.Paths.notHidden;
-import static com.github.jsdossier.Paths.notIn;
+import static com.github.jsdossier.Paths.notUnder;
 import static com.github.jsdossier.Paths.toNormalizedAbsolutePath;
 import static com.google.common.base.MoreObjects.firstNonNull;
 import static com.google.common.base.Verify.verify;
@@ -28,15 +28,17 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.Files.exists;
 import static java.nio.file.Files.isDirectory;
 import static java.nio.file.Files.newInputStream;
-import static java.nio.file.Files.readAllBytes;
 import static java.nio.file.Files.write;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
+import com.github.jsdossier.jscomp.CompilationProfile;
 import com.github.jsdossier.jscomp.Environment;
+import com.github.jsdossier.jscomp.SourceFileLoader;
 import com.google.auto.value.AutoValue;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.io.Resources;
@@ -78,12 +80,9 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -93,6 +92,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
@@ -316,6 +316,17 @@ abstract class Config {
   )
   abstract Environment getEnvironment();
 
+  @Description(
+    name = "compilationProfile",
+    desc =
+        "Selects which compiler checks run before generating documentation. `DEFAULT` runs the"
+            + " full type checker and reports its diagnostics. `DOCS_ONLY` only runs the passes"
+            + " needed to build the type registry and JSDoc, which reduces compile time and memory"
+            + " use, but reports no type or lint warnings. `DOCS_ONLY` may not be combined with"
+            + " `strict`. Must be one of {DEFAULT, DOCS_ONLY}; defaults to DEFAULT"
+  )
+  abstract CompilationProfile getCompilationProfile();
+
   abstract FileSystem getFileSystem();
 
   abstract Builder toBuilder();
@@ -361,6 +372,7 @@ abstract class Config {
         .setExcludes(ImmutableSet.of())
         .setCustomPages(ImmutableSet.of())
         .setEnvironment(Environment.BROWSER)
+        .setCompilationProfile(CompilationProfile.DEFAULT)
         .setStrict(false)
         .setModuleNamingConvention(ModuleNamingConvention.ES6)
         .setTypeFilters(ImmutableSet.of())
@@ -421,6 +433,8 @@ abstract class Config {
 
     public abstract Builder setSourceUrlTemplate(String template);
 
+    public abstract boolean isStrict();
+
     public abstract Builder setStrict(boolean strict);
 
     public abstract Builder setModuleNamingConvention(ModuleNamingConvention convention);
@@ -435,18 +449,22 @@ abstract class Config {
 
     public abstract Builder setEnvironment(Environment env);
 
+    public abstract CompilationProfile getCompilationProfile();
+
+    public abstract Builder setCompilationProfile(CompilationProfile profile);
+
     abstract Config autoBuild();
 
     private Builder duplicate() {
       return autoBuild().toBuilder();
     }
 
-    private Builder normalize() {
+    private Builder normalize(ClosureDependencyCache cache) {
       ImmutableSet<Path> excludes = getExcludes();
 
       if (!excludes.isEmpty()) {
         @SuppressWarnings("unchecked")
-        Predicate<Path> filter = path -> notIn(excludes).test(path) && notHidden().test(path);
+        Predicate<Path> filter = path -> notUnder(excludes).test(path) && notHidden().test(path);
 
         setSources(getSources().stream().filter(filter).collect(toImmutableSet()));
         setModules(getModules().stream().filter(filter).collect(toImmutableSet()));
@@ -460,7 +478,8 @@ abstract class Config {
                 .build();
 
         try {
-          setSources(processClosureSources(getSources(), depFiles, getClosureLibraryDir().get()));
+          setSources(
+              processClosureSources(getSources(), depFiles, getClosureLibraryDir().get(), cache));
         } catch (IOException e) {
           throw new RuntimeException(e);
         }
@@ -473,15 +492,24 @@ abstract class Config {
       checkMarkdownPages();
       checkSourceUrlTemplate();
       checkSourcePrefix();
+      checkCompilationProfile();
       checkInputsExist();
 
       return this;
     }
 
     public Config build() {
+      return build(ClosureDependencyCache.inMemory());
+    }
+
+    /**
+     * Builds the configuration, using the given cache to resolve the dependencies of sources when
+     * {@code closureLibraryDir} is set.
+     */
+    Config build(ClosureDependencyCache cache) {
       // Ugly song and dance to ensure *this* builder's state is not changed as a result of
       // normalizing the configuration.
-      return duplicate().normalize().autoBuild();
+      return duplicate().normalize(cache).autoBuild();
     }
 
     private void checkHasSourcesOrModules() {
@@ -499,6 +527,13 @@ abstract class Config {
       }
     }
 
+    private void checkCompilationProfile() {
+      if (isStrict() && getCompilationProfile() == CompilationProfile.DOCS_ONLY) {
+        throw new InvalidConfigurationException(
+            "Strict mode requires the %s compilation profile", CompilationProfile.DEFAULT);
+      }
+    }
+
     private void checkExists(Path path) {
       if (!exists(path)) {
         throw new InvalidConfigurationException("Input file does not exist: %s", path);
@@ -592,32 +627,47 @@ abstract class Config {
 
   /** Loads a new runtime configuration from command line flags. */
   static Config fromFlags(Flags flags, FileSystem fileSystem) throws IOException {
+    return fromFlags(flags, fileSystem, ClosureDependencyCache.forFlags(flags));
+  }
+
+  /**
+   * Loads a new runtime configuration from command line flags, using the given cache to resolve
+   * the dependencies of sources when {@code closureLibraryDir} is set.
+   */
+  static Config fromFlags(Flags flags, FileSystem fileSystem, ClosureDependencyCache cache)
+      throws IOException {
     if (flags.config == null) {
-      return Config.fromJson(flags.jsonConfig, fileSystem);
+      return Config.fromJson(flags.jsonConfig, fileSystem, cache);
     } else {
       if (!flags.jsonConfig.entrySet().isEmpty()) {
         log.warning("A JSON configuration file was provided; ignoring flag-based configuration");
       }
       try (InputStream stream = newInputStream(flags.config)) {
-        return Config.fromJson(stream, fileSystem);
+        return Config.fromJson(stream, fileSystem, cache);
       }
     }
   }
 
   @VisibleForTesting
   static Config fromJson(InputStream stream, FileSystem fileSystem) {
-    return createGsonParser(fileSystem)
+    return fromJson(stream, fileSystem, ClosureDependencyCache.inMemory());
+  }
+
+  @VisibleForTesting
+  static Config fromJson(InputStream stream, FileSystem fileSystem, ClosureDependencyCache cache) {
+    return createGsonParser(fileSystem, cache)
         .fromJson(new InputStreamReader(stream, StandardCharsets.UTF_8), Config.class);
   }
 
-  private static Config fromJson(JsonElement json, FileSystem fileSystem) {
-    return createGsonParser(fileSystem).fromJson(json, Config.class);
+  private static Config fromJson(
+      JsonElement json, FileSystem fileSystem, ClosureDependencyCache cache) {
+    return createGsonParser(fileSystem, cache).fromJson(json, Config.class);
   }
 
-  private static Gson createGsonParser(FileSystem fileSystem) {
+  private static Gson createGsonParser(FileSystem fileSystem, ClosureDependencyCache cache) {
     Path cwd = normalizedAbsolutePath(fileSystem, "");
     return new GsonBuilder()
-        .registerTypeAdapter(Config.class, new ConfigMarshaller(fileSystem))
+        .registerTypeAdapter(Config.class, new ConfigMarshaller(fileSystem, cache))
         .registerTypeAdapter(Path.class, new PathDeserializer(fileSystem))
         .registerTypeAdapter(PathSpec.class, new PathSpecDeserializer(cwd))
         .registerTypeAdapter(Pattern.class, new PatternDeserializer())
@@ -638,11 +688,47 @@ abstract class Config {
         .create();
   }
 
+  /**
+   * Expands the given sources to include their transitive dependencies, sorted so every file
+   * follows the files it requires. The dependency information for each source that is unchanged
+   * since it was last parsed is taken from the cache and passed to the generator as a pre-parsed
+   * deps file, so the generator only parses new and changed sources.
+   */
   private static ImmutableSet<Path> processClosureSources(
-      Collection<Path> sources, ImmutableSet<Path> deps, Path closureBase) throws IOException {
+      Collection<Path> sources,
+      ImmutableSet<Path> deps,
+      Path closureBase,
+      ClosureDependencyCache cache)
+      throws IOException {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+
+    SourceFileLoader loader = SourceFileLoader.create();
+    List<SourceFile> depsFiles = loader.load(deps.asList());
+    List<Path> sourcePaths = ImmutableList.copyOf(sources);
+    List<SourceFile> sourceFiles = loader.load(sourcePaths);
+    log.fine("Loaded Closure sources: " + loader);
+
+    Map<Path, String> changedSources = new HashMap<>();
+    StringBuilder cachedDeps = new StringBuilder();
+    for (int i = 0; i < sourcePaths.size(); i++) {
+      Path path = sourcePaths.get(i).toAbsolutePath().normalize();
+      String hash = ClosureDependencyCache.hash(closureBase, sourceFiles.get(i).getCode());
+      String cached = cache.get(path, hash);
+      if (cached == null) {
+        changedSources.put(path, hash);
+      } else {
+        cachedDeps.append(cached);
+      }
+    }
 
-    Collection<SourceFile> depsFiles = deps.stream().map(toSourceFile()).collect(toList());
-    Collection<SourceFile> sourceFiles = sources.stream().map(toSourceFile()).collect(toList());
+    if (cachedDeps.length() > 0) {
+      // Listed first so the entries in the real deps files take precedence.
+      depsFiles =
+          ImmutableList.<SourceFile>builder()
+              .add(SourceFile.fromCode("*cached-deps*", cachedDeps.toString()))
+              .addAll(depsFiles)
+              .build();
+    }
 
     ErrorManager errorManager =
         new SortingErrorManager(
@@ -668,6 +754,18 @@ abstract class Config {
     List<DependencyInfo> allDeps =
         new DepsFileParser(errorManager).parseFile("*generated-deps*", rawDeps);
 
+    Function<DependencyInfo, Path> pathTransform = toPath(closureBase);
+    for (DependencyInfo info : allDeps) {
+      Path path = pathTransform.apply(info);
+      if (changedSources.containsKey(path)) {
+        StringBuilder line = new StringBuilder();
+        DependencyInfo.Util.writeAddDependency(line, info);
+        cache.put(path, changedSources.get(path), line.toString());
+      }
+    }
+    cache.retainAll(sourcePaths);
+    cache.write();
+
     List<DependencyInfo> sourceDeps =
         allDeps.stream().filter(isInSources(sources, closureBase)).collect(toList());
 
@@ -678,6 +776,13 @@ abstract class Config {
             .map(toPath(closureBase))
             .collect(toList());
 
+    log.info(
+        String.format(
+            "Resolved Closure dependencies in %d ms (%d of %d sources parsed)",
+            stopwatch.elapsed(TimeUnit.MILLISECONDS),
+            changedSources.size(),
+            sourcePaths.size()));
+
     return ImmutableSet.<Path>builder()
         // Always include Closure's base.js first.
         .add(closureBase.resolve("base.js"))
@@ -697,17 +802,6 @@ abstract class Config {
         closureBaseDir.resolve(input.getPathRelativeToClosureBase()).normalize().toAbsolutePath();
   }
 
-  private static Function<Path, SourceFile> toSourceFile() {
-    return input -> {
-      try {
-        String content = new String(readAllBytes(input), UTF_8);
-        return SourceFile.fromCode(input.toString(), content);
-      } catch (IOException e) {
-        throw new RuntimeException(e);
-      }
-    };
-  }
-
   static String getOptionsText(boolean includeHeader) {
     StringWriter sw = new StringWriter();
     PrintWriter pw = new PrintWriter(sw);
@@ -770,34 +864,45 @@ abstract class Config {
     }
 
     List<Path> resolve() throws IOException {
+      return resolve(DirectoryWalker.create(path -> true));
+    }
+
+    /** Resolves the files matched by this spec, using the given walker to expand directories. */
+    List<Path> resolve(DirectoryWalker walker) throws IOException {
       Path path = baseDir.resolve(spec).normalize();
       if (isDirectory(path)) {
-        return collectFiles(path, "**.js");
+        return collectFiles(walker, path, "**.js");
       }
 
       if (exists(path)) {
         return ImmutableList.of(path);
       }
 
-      return collectFiles(firstNonNull(path.getParent(), baseDir), path.getFileName().toString());
+      return collectFiles(
+          walker, firstNonNull(path.getParent(), baseDir), path.getFileName().toString());
     }
 
-    List<Path> collectFiles(final Path baseDir, String glob) throws IOException {
-      final PathMatcher matcher = baseDir.getFileSystem().getPathMatcher("glob:" + glob);
-      final List<Path> files = new ArrayList<>();
-      Files.walkFileTree(
-          baseDir,
-          new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
-                throws IOException {
-              if (matcher.matches(baseDir.relativize(file))) {
-                files.add(file);
-              }
-              return FileVisitResult.CONTINUE;
-            }
-          });
-      return ImmutableList.copyOf(files);
+    /**
+     * Resolves the paths excluded by this spec. Unlike {@link #resolve()}, a directory is not
+     * expanded: the directory itself is returned so its entire subtree may be pruned.
+     */
+    List<Path> resolveExclusions(DirectoryWalker walker) throws IOException {
+      Path path = baseDir.resolve(spec).normalize();
+      if (isDirectory(path)) {
+        return ImmutableList.of(path);
+      }
+      return resolve(walker);
+    }
+
+    private static List<Path> collectFiles(DirectoryWalker walker, Path baseDir, String glob)
+        throws IOException {
+      if (!exists(baseDir)) {
+        throw new NoSuchFileException(baseDir.toString());
+      } else if (!isDirectory(baseDir)) {
+        return ImmutableList.of();
+      }
+      PathMatcher matcher = baseDir.getFileSystem().getPathMatcher("glob:" + glob);
+      return walker.walk(baseDir, file -> matcher.matches(baseDir.relativize(file)));
     }
   }
 
@@ -815,9 +920,15 @@ abstract class Config {
       implements JsonDeserializer<Config>, JsonSerializer<Config> {
 
     private final FileSystem fs;
+    private final ClosureDependencyCache cache;
 
     private ConfigMarshaller(FileSystem fs) {
+      this(fs, ClosureDependencyCache.inMemory());
+    }
+
+    private ConfigMarshaller(FileSystem fs, ClosureDependencyCache cache) {
       this.fs = fs;
+      this.cache = cache;
     }
 
     @Override
@@ -866,6 +977,15 @@ abstract class Config {
       Config.Builder config = Config.builder().setFileSystem(fs);
 
       JsonObject jsonObject = json.getAsJsonObject();
+
+      // Resolve the excluded paths first so excluded directories are pruned while expanding the
+      // remaining inputs, instead of being walked only to have every file removed.
+      ImmutableSet<Path> excludes = ImmutableSet.of();
+      if (jsonObject.has("excludes")) {
+        excludes = resolveExclusions(jsonObject.get("excludes"), context);
+      }
+      DirectoryWalker walker = DirectoryWalker.create(notUnder(excludes));
+
       for (Map.Entry<Description, AccessorSetterPair> entry :
           getAccessorSetterPairs(config.getClass()).entrySet()) {
         if (!jsonObject.has(entry.getKey().name())) {
@@ -876,9 +996,12 @@ abstract class Config {
         Type genericType = entry.getValue().getter().getGenericReturnType();
         Object value;
         Type pathSetType = new TypeToken<ImmutableSet<Path>>() {}.getType();
-        if (genericType.equals(pathSetType)) {
+        if ("excludes".equals(description.name())) {
+          value = excludes;
+
+        } else if (genericType.equals(pathSetType)) {
           ImmutablePathSetDeserializer deserializer =
-              new ImmutablePathSetDeserializer(description.expandPaths());
+              new ImmutablePathSetDeserializer(description.expandPaths(), walker);
           value =
               deserializer.deserialize(jsonObject.get(description.name()), pathSetType, context);
 
@@ -899,7 +1022,32 @@ abstract class Config {
           throw new JsonParseException(e);
         }
       }
-      return config.build();
+      if (walker.getDirectoryCount() > 0) {
+        log.info("Expanded input paths: " + walker);
+      }
+      return config.build(cache);
+    }
+
+    private static ImmutableSet<Path> resolveExclusions(
+        JsonElement json, JsonDeserializationContext context) {
+      if (json.isJsonNull()) {
+        return ImmutableSet.of();
+      }
+      DirectoryWalker walker = DirectoryWalker.create(path -> true);
+      Set<Path> paths = new HashSet<>();
+      List<PathSpec> specs =
+          context.deserialize(json, new TypeToken<List<PathSpec>>() {}.getType());
+      for (PathSpec spec : specs) {
+        if (spec == null) {
+          continue;
+        }
+        try {
+          paths.addAll(spec.resolveExclusions(walker));
+        } catch (IOException e) {
+          throw new JsonParseException(e);
+        }
+      }
+      return ImmutableSet.copyOf(paths);
     }
   }
 
@@ -960,9 +1108,11 @@ abstract class Config {
   private static class ImmutablePathSetDeserializer
       implements JsonDeserializer<ImmutableSet<Path>> {
     private final boolean expandPaths;
+    private final DirectoryWalker walker;
 
-    private ImmutablePathSetDeserializer(boolean expandPaths) {
+    private ImmutablePathSetDeserializer(boolean expandPaths, DirectoryWalker walker) {
       this.expandPaths = expandPaths;
+      this.walker = walker;
     }
 
     @Override
@@ -978,7 +1128,7 @@ abstract class Config {
             continue;
           }
           try {
-            List<Path> resolved = spec.resolve();
+            List<Path> resolved = spec.resolve(walker);
             paths.addAll(resolved);
           } catch (IOException e) {
             throw new JsonParseException(e);
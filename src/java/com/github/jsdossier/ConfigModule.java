@@ -31,9 +31,9 @@ import com.github.jsdossier.annotations.Stderr;
 import com.github.jsdossier.annotations.Stdout;
 import com.github.jsdossier.annotations.StrictMode;
 import com.github.jsdossier.annotations.TypeFilter;
+import com.github.jsdossier.jscomp.CompilationProfile;
 import com.github.jsdossier.jscomp.Environment;
-import com.github.jsdossier.soy.DossierSoyModule;
-import com.github.jsdossier.soy.Renderer;
+import com.github.jsdossier.metrics.BuildMetrics;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.io.ByteStreams;
 import com.google.inject.AbstractModule;
@@ -46,29 +46,44 @@ import java.nio.file.Path;
 import java.util.Optional;
 import java.util.function.Predicate;
 
-/** Provides the main configuration bindings. */
+/**
+ * Provides the main configuration bindings. The injector created with this module must be a child
+ * of one created with the {@link com.github.jsdossier.soy.DossierSoyModule}.
+ */
 final class ConfigModule extends AbstractModule {
 
   private final Flags flags;
   private final Config config;
+  private final Shard shard;
   private final Path outputDir;
   private final Scope documentationScope;
-
-  ConfigModule(Flags flags, Config config, Path outputDir, Scope documentationScope) {
+  private final BuildManifest manifest;
+  private final CompileCache cache;
+  private final BuildMetrics metrics;
+
+  ConfigModule(
+      Flags flags,
+      Config config,
+      Shard shard,
+      Path outputDir,
+      Scope documentationScope,
+      BuildManifest manifest,
+      CompileCache cache,
+      BuildMetrics metrics) {
     this.flags = flags;
     this.config = config;
+    this.shard = shard;
     this.outputDir = outputDir;
     this.documentationScope = documentationScope;
+    this.manifest = manifest;
+    this.cache = cache;
+    this.metrics = metrics;
   }
 
   @Override
   protected void configure() {
-    install(new DossierSoyModule());
-
     bindScope(DocumentationScoped.class, documentationScope);
 
-    bindConstant().annotatedWith(Annotations.NumThreads.class).to(flags.numThreads);
-
     bind(PrintStream.class).annotatedWith(Stderr.class).toInstance(System.err);
     bind(PrintStream.class)
         .annotatedWith(Stdout.class)
@@ -98,9 +113,12 @@ final class ConfigModule extends AbstractModule {
     bind(FileSystem.class).annotatedWith(Input.class).toInstance(config.getFileSystem());
 
     bind(ModuleNamingConvention.class).toInstance(config.getModuleNamingConvention());
+    bind(BuildManifest.class).toInstance(manifest);
+    bind(CompileCache.class).toInstance(cache);
+    bind(BuildMetrics.class).toInstance(metrics);
+    bind(Shard.class).toInstance(shard);
 
     bind(DocTemplate.class).to(DefaultDocTemplate.class).in(DocumentationScoped.class);
-    bind(Renderer.class).in(DocumentationScoped.class);
   }
 
   @Provides
@@ -108,6 +126,11 @@ final class ConfigModule extends AbstractModule {
     return config.getEnvironment();
   }
 
+  @Provides
+  CompilationProfile provideCompilationProfile() {
+    return config.getCompilationProfile();
+  }
+
   @Provides
   @SourceUrlTemplate
   Optional<String> provideUrlTemplate() {
@@ -0,0 +1,221 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+/**
+ * Walks directory trees concurrently, listing each subdirectory in its own fork-join task. Every
+ * entry is checked against the walker's path filter as it is listed: a rejected directory is
+ * pruned without being opened, so large excluded trees (such as vendored dependencies) cost a
+ * single check instead of a full walk. Symbolic links to directories are followed, unless the
+ * link points back to a directory that is already being walked.
+ *
+ * <p>Each walker accumulates the number of directories listed, files found and paths pruned, and
+ * the time spent walking, across all calls to {@link #walk}. This class is thread-safe.
+ */
+final class DirectoryWalker {
+
+  /**
+   * The pool shared by every walk. Listing directories is I/O-bound, so this uses two threads per
+   * available processor, and at least four. Idle worker threads exit on their own.
+   */
+  private static final ForkJoinPool POOL =
+      new ForkJoinPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+  private final Predicate<? super Path> pathFilter;
+
+  private int directoryCount;
+  private int fileCount;
+  private int prunedCount;
+  private long elapsedNanos;
+
+  private DirectoryWalker(Predicate<? super Path> pathFilter) {
+    this.pathFilter = pathFilter;
+  }
+
+  /**
+   * Creates a new walker that only descends into the directories, and only returns the files,
+   * accepted by the given filter.
+   */
+  static DirectoryWalker create(Predicate<? super Path> pathFilter) {
+    return new DirectoryWalker(pathFilter);
+  }
+
+  /**
+   * Collects the files under the given directory.
+   *
+   * @param dir the directory to walk.
+   * @param fileFilter selects which of the files accepted by this walker's path filter to return.
+   * @return the files found, with the files in each directory listed before those in its
+   *     subdirectories.
+   * @throws IOException if a directory could not be listed.
+   */
+  List<Path> walk(Path dir, Predicate<? super Path> fileFilter) throws IOException {
+    checkArgument(Files.isDirectory(dir), "%s is not a directory", dir);
+
+    long start = System.nanoTime();
+    Stats stats = new Stats();
+    List<Path> files;
+    try {
+      files = POOL.invoke(new WalkTask(null, dir, dir.toRealPath(), fileFilter, stats));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    long elapsed = System.nanoTime() - start;
+    synchronized (this) {
+      directoryCount += stats.directories.get();
+      fileCount += files.size();
+      prunedCount += stats.pruned.get();
+      elapsedNanos += elapsed;
+    }
+    return files;
+  }
+
+  /** Returns the total number of directories listed. */
+  synchronized int getDirectoryCount() {
+    return directoryCount;
+  }
+
+  /** Returns the total number of files found. */
+  synchronized int getFileCount() {
+    return fileCount;
+  }
+
+  /** Returns the total number of files and directories rejected by the path filter. */
+  synchronized int getPrunedCount() {
+    return prunedCount;
+  }
+
+  /** Returns the total time spent walking directories. */
+  synchronized Duration getElapsed() {
+    return Duration.ofNanos(elapsedNanos);
+  }
+
+  /** Returns a summary of the directories walked. */
+  @Override
+  public synchronized String toString() {
+    return String.format(
+        "%d files in %d directories (%d paths pruned) in %d ms",
+        fileCount, directoryCount, prunedCount, getElapsed().toMillis());
+  }
+
+  private static final class Stats {
+    private final AtomicInteger directories = new AtomicInteger();
+    private final AtomicInteger pruned = new AtomicInteger();
+  }
+
+  private final class WalkTask extends RecursiveTask<List<Path>> {
+    @Nullable private final WalkTask parent;
+    private final Path dir;
+    private final Path realDir;
+    private final Predicate<? super Path> fileFilter;
+    private final Stats stats;
+
+    /**
+     * @param parent the task walking the parent directory, or null for the root of the walk.
+     * @param dir the directory to walk.
+     * @param realDir the real path of the directory, used to detect symbolic link cycles.
+     */
+    private WalkTask(
+        @Nullable WalkTask parent,
+        Path dir,
+        Path realDir,
+        Predicate<? super Path> fileFilter,
+        Stats stats) {
+      this.parent = parent;
+      this.dir = dir;
+      this.realDir = realDir;
+      this.fileFilter = fileFilter;
+      this.stats = stats;
+    }
+
+    /** Returns whether this task, or one of its ancestors, is walking the given directory. */
+    private boolean isWalking(Path realPath) {
+      for (WalkTask task = this; task != null; task = task.parent) {
+        if (task.realDir.equals(realPath)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    protected List<Path> compute() {
+      stats.directories.incrementAndGet();
+
+      List<Path> files = new ArrayList<>();
+      List<WalkTask> subtasks = new ArrayList<>();
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+        for (Path path : stream) {
+          if (!pathFilter.test(path)) {
+            stats.pruned.incrementAndGet();
+            continue;
+          }
+
+          BasicFileAttributes attributes =
+              Files.readAttributes(path, BasicFileAttributes.class, NOFOLLOW_LINKS);
+          Path realPath = null;
+          if (attributes.isDirectory()) {
+            realPath = realDir.resolve(path.getFileName().toString());
+          } else if (attributes.isSymbolicLink() && Files.isDirectory(path)) {
+            realPath = path.toRealPath();
+          }
+
+          if (realPath == null) {
+            if (fileFilter.test(path)) {
+              files.add(path);
+            }
+          } else if (!isWalking(realPath)) {
+            subtasks.add(new WalkTask(this, path, realPath, fileFilter, stats));
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+      if (subtasks.isEmpty()) {
+        return files;
+      }
+
+      invokeAll(subtasks);
+      ImmutableList.Builder<Path> result = ImmutableList.<Path>builder().addAll(files);
+      for (WalkTask task : subtasks) {
+        result.addAll(task.join());
+      }
+      return result.build();
+    }
+  }
+}
@@ -17,6 +17,7 @@ package com.github.jsdossier;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import com.github.jsdossier.jscomp.CompilationProfile;
 import com.github.jsdossier.jscomp.Environment;
 import com.google.common.base.Splitter;
 import com.google.gson.JsonArray;
@@ -27,6 +28,8 @@ import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Locale;
+import java.util.OptionalInt;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
@@ -37,8 +40,17 @@ final class Flags {
   boolean displayHelp;
   boolean displayJsonHelp;
   boolean printConfig;
-  int numThreads = Runtime.getRuntime().availableProcessors() * 2;
+  boolean incremental;
+  boolean watch;
+  boolean skipUnchangedWrites;
+  boolean lowMemory;
+  RenderExecutor executor = RenderExecutor.FIXED;
+  OptionalInt numThreads = OptionalInt.empty();
+  Shard shard = Shard.all();
+  int numPartitions = 1;
   Path config = null;
+  Path cacheDir = null;
+  Path metricsOut = null;
   JsonObject jsonConfig = new JsonObject();
 
   private final FileSystem fileSystem;
@@ -89,11 +101,126 @@ final class Flags {
     name = "--num_threads",
     usage =
         "The number of threads to use for rendering. Defaults to 2 times the number of "
-            + "available processors"
+            + "available processors for the fixed executor, the number of available processors "
+            + "for the work_stealing executor, and 8 times the number of available processors "
+            + "for the thread_per_task executor"
   )
   private void setNumThreads(int n) {
     checkArgument(n >= 1, "invalid number of flags: %s", n);
-    this.numThreads = n;
+    this.numThreads = OptionalInt.of(n);
+  }
+
+  @Option(
+    name = "--executor",
+    metaVar = "TYPE",
+    usage =
+        "The type of executor to run rendering tasks with: fixed (the default), work_stealing"
+            + " (best for CPU-bound builds), or thread_per_task (best when output writes are"
+            + " slow, e.g. to a network mount)"
+  )
+  private void setExecutor(String type) {
+    try {
+      this.executor = RenderExecutor.valueOf(type.toUpperCase(Locale.ROOT).replace('-', '_'));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("invalid executor type: " + type, e);
+    }
+  }
+
+  @Option(
+    name = "--shard",
+    metaVar = "I/N",
+    usage =
+        "Render only the I-th of N shards of the documentation, so generation may be split across"
+            + " several processes sharing the same configuration and output directory. Each shard"
+            + " writes a partial type index; run `dossier merge OUTPUT_DIR` once every shard has"
+            + " finished to combine them"
+  )
+  private void setShard(String spec) {
+    this.shard = Shard.parse(spec);
+  }
+
+  @Option(
+    name = "--num_partitions",
+    metaVar = "N",
+    usage =
+        "Split the inputs into at most N partitions with no goog.require, require() or import"
+            + " edges between them, and compile and render each partition with its own compiler,"
+            + " in parallel. Only use this when the inputs never reference types from inputs they"
+            + " do not require. Defaults to 1, which compiles every input together"
+  )
+  private void setNumPartitions(int n) {
+    checkArgument(n >= 1, "invalid number of partitions: %s", n);
+    this.numPartitions = n;
+  }
+
+  /** Returns the number of threads to use for rendering. */
+  int getNumThreads() {
+    return numThreads.orElse(executor.getDefaultNumThreads());
+  }
+
+  @Option(
+    name = "--incremental",
+    usage =
+        "Whether to skip rendering pages whose content has not changed since the previous run."
+            + " Content hashes are recorded in a manifest file in the output directory"
+  )
+  private void setIncremental(boolean incremental) {
+    this.incremental = incremental;
+  }
+
+  @Option(
+    name = "--watch",
+    usage =
+        "Whether to keep running after generating documentation, watching the input files and"
+            + " regenerating the documentation each time they change. Implies --incremental"
+  )
+  private void setWatch(boolean watch) {
+    this.watch = watch;
+  }
+
+  @Option(
+    name = "--skip_unchanged_writes",
+    usage =
+        "Whether to leave existing output files untouched when their generated content has not"
+            + " changed, preserving their modification times. Useful when the output directory is"
+            + " synced to another server"
+  )
+  private void setSkipUnchangedWrites(boolean skip) {
+    this.skipUnchangedWrites = skip;
+  }
+
+  @Option(
+    name = "--low_memory",
+    usage =
+        "Whether to reduce memory usage while rendering by discarding the parts of the compiled"
+            + " inputs that are not needed once type information has been collected. Heap usage"
+            + " before and after is printed to stdout"
+  )
+  private void setLowMemory(boolean lowMemory) {
+    this.lowMemory = lowMemory;
+  }
+
+  @Option(
+    name = "--cache_dir",
+    metaVar = "PATH",
+    usage =
+        "Directory to cache the data rendered by each run in. When a run's inputs, configuration"
+            + " and dossier version match a previous run, the documentation is regenerated from the"
+            + " cache without compiling the inputs. Cache hit statistics are printed to stdout"
+  )
+  private void setCacheDir(String path) {
+    cacheDir = fileSystem.getPath(path).toAbsolutePath().normalize();
+  }
+
+  @Option(
+    name = "--metrics_out",
+    metaVar = "PATH",
+    usage =
+        "Path to write a JSON file with the timing, CPU and allocation metrics for each phase of"
+            + " the run, along with latency histograms for each type of render task"
+  )
+  private void setMetricsOut(String path) {
+    metricsOut = fileSystem.getPath(path).toAbsolutePath().normalize();
   }
 
   @Option(
@@ -204,6 +331,17 @@ final class Flags {
     jsonConfig.addProperty("environment", env.name());
   }
 
+  @Option(
+    name = "--compilation_profile",
+    metaVar = "PROFILE",
+    usage =
+        "Selects which compiler checks run; refer to --help_json for more information."
+            + " Must be one of {DEFAULT, DOCS_ONLY}; defaults to DEFAULT"
+  )
+  private void setCompilationProfile(CompilationProfile profile) {
+    jsonConfig.addProperty("compilationProfile", profile.name());
+  }
+
   @Option(
     name = "--strict",
     usage = "Whether to run all type checking passes before generating any documentation"
@@ -299,6 +437,7 @@ final class Flags {
 
     if (flags.displayHelp) {
       System.err.println("\nUsage: dossier [options] -c CONFIG");
+      System.err.println("       dossier merge OUTPUT_DIR");
 
       System.err.println("\nwhere options include:\n");
       parser.printUsage(System.err);
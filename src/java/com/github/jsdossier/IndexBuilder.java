@@ -31,12 +31,16 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Ordering;
 import com.google.common.html.types.SafeUrls;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import javax.inject.Inject;
 
 /** An index of all types and properties in generated documentation. */
@@ -80,6 +84,67 @@ final class IndexBuilder {
         .build();
   }
 
+  /**
+   * Merges the normalized indices produced by rendering disjoint subsets of the same documentation
+   * set. Entries for the same type are combined, so a module whose nested types were split across
+   * several indices has a single entry in the result. The result is normalized in the same manner
+   * as {@link #toNormalizedProto()}.
+   */
+  static Index merge(Iterable<Index> indices) {
+    List<Index.Entry> modules = new ArrayList<>();
+    List<Index.Entry> types = new ArrayList<>();
+    Set<Link> pages = new LinkedHashSet<>();
+    Set<Link> sourceFiles = new LinkedHashSet<>();
+    for (Index index : indices) {
+      modules.addAll(index.getModuleList());
+      types.addAll(index.getTypeList());
+      pages.addAll(index.getPageList());
+      sourceFiles.addAll(index.getSourceFileList());
+    }
+    return Index.newBuilder()
+        .addAllModule(sortEntries(mergeEntries(modules)))
+        .addAllType(sortEntries(mergeEntries(types)))
+        .addAllPage(pages.stream().sorted(comparing(Link::getText)).collect(toList()))
+        .addAllSourceFile(sourceFiles.stream().sorted(comparing(Link::getHref)).collect(toList()))
+        .build();
+  }
+
+  private static List<Index.Entry> mergeEntries(List<Index.Entry> entries) {
+    Map<NamedType, List<Index.Entry>> entriesByType = new LinkedHashMap<>();
+    for (Index.Entry entry : entries) {
+      entriesByType.computeIfAbsent(entry.getType(), k -> new ArrayList<>()).add(entry);
+    }
+
+    List<Index.Entry> merged = new ArrayList<>(entriesByType.size());
+    for (List<Index.Entry> group : entriesByType.values()) {
+      if (group.size() == 1) {
+        merged.add(group.get(0));
+        continue;
+      }
+
+      Set<String> properties = new LinkedHashSet<>();
+      Set<String> staticProperties = new LinkedHashSet<>();
+      List<Index.Entry> children = new ArrayList<>();
+      for (Index.Entry entry : group) {
+        properties.addAll(entry.getPropertyList());
+        staticProperties.addAll(entry.getStaticPropertyList());
+        children.addAll(entry.getChildList());
+      }
+      merged.add(
+          group
+              .get(0)
+              .toBuilder()
+              .clearProperty()
+              .clearStaticProperty()
+              .clearChild()
+              .addAllProperty(properties)
+              .addAllStaticProperty(staticProperties)
+              .addAllChild(mergeEntries(children))
+              .build());
+    }
+    return merged;
+  }
+
   private Iterable<Link> sortPages(Collection<MarkdownPage> pages) {
     return pages
         .stream()
@@ -0,0 +1,257 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+
+import com.github.jsdossier.jscomp.SourceFileLoader;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.javascript.jscomp.SourceFile;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * A subset of the inputs that may be compiled and documented independently of the rest. Inputs
+ * are grouped by the {@code goog.provide}/{@code goog.require} edges between Closure files and the
+ * {@code require()}/{@code import} edges between modules, and each partition holds one or more of
+ * the resulting groups, so no input in one partition requires an input in another.
+ *
+ * <p>Edges are found by scanning each file's text, so partitioning is only sound when every type
+ * referenced by an input is defined in the inputs it requires or in the externs. A type that is
+ * only referenced from JSDoc is unknown to the compiler of a partition that does not define it.
+ */
+@AutoValue
+abstract class InputPartition {
+
+  private static final Logger log = Logger.getLogger(InputPartition.class.getName());
+
+  private static final Pattern PROVIDE =
+      Pattern.compile("\\bgoog\\.(?:provide|module|declareModuleId)\\(\\s*['\"]([^'\"]+)['\"]");
+  private static final Pattern REQUIRE =
+      Pattern.compile(
+          "\\bgoog\\.(?:require|requireType|forwardDeclare|module\\.get)"
+              + "\\(\\s*['\"]([^'\"]+)['\"]");
+  private static final Pattern MODULE_ID =
+      Pattern.compile(
+          "(?:\\brequire\\(\\s*|\\bfrom\\s*|\\bimport\\s*)['\"](\\.{1,2}/[^'\"]*)['\"]");
+
+  /** Closure's base.js is tagged with this annotation; every Closure file implicitly needs it. */
+  private static final String PROVIDE_GOOG = "@provideGoog";
+
+  InputPartition() {}
+
+  /** Returns the configuration used to compile this partition. */
+  abstract Config getConfig();
+
+  /** Returns the shard identifying the work rendered by this partition. */
+  abstract Shard getShard();
+
+  /**
+   * Splits the inputs of the given configuration into at most {@code maxCount} partitions, balanced
+   * by the size of their inputs. Closure's base.js is needed by every partition with Closure
+   * sources, so it is compiled with each, but only documented by the first.
+   *
+   * @return the partitions, or a single partition with every input if the inputs cannot be split.
+   * @throws IOException if an input could not be read.
+   */
+  static ImmutableList<InputPartition> partition(Config config, int maxCount) throws IOException {
+    checkArgument(maxCount >= 1, "invalid number of partitions: %s", maxCount);
+
+    List<Path> files =
+        ImmutableList.<Path>builder()
+            .addAll(config.getSources())
+            .addAll(config.getModules())
+            .build();
+    List<SourceFile> contents = SourceFileLoader.create().load(files);
+
+    Map<Path, Integer> fileIndex = new HashMap<>();
+    for (int i = 0; i < files.size(); i++) {
+      fileIndex.put(files.get(i), i);
+    }
+
+    Set<Integer> shared = new HashSet<>();
+    Map<String, Integer> providers = new HashMap<>();
+    for (int i = 0; i < files.size(); i++) {
+      String code = contents.get(i).getCode();
+      if (code.contains(PROVIDE_GOOG)) {
+        shared.add(i);
+        continue;
+      }
+      Matcher matcher = PROVIDE.matcher(code);
+      while (matcher.find()) {
+        providers.put(matcher.group(1), i);
+      }
+    }
+
+    int[] parents = new int[files.size()];
+    for (int i = 0; i < parents.length; i++) {
+      parents[i] = i;
+    }
+    for (int i = 0; i < files.size(); i++) {
+      if (shared.contains(i)) {
+        continue;
+      }
+      String code = contents.get(i).getCode();
+      Matcher matcher = REQUIRE.matcher(code);
+      while (matcher.find()) {
+        Integer provider = providers.get(matcher.group(1));
+        if (provider != null) {
+          union(parents, i, provider);
+        }
+      }
+      matcher = MODULE_ID.matcher(code);
+      while (matcher.find()) {
+        Integer module = resolveModule(fileIndex, files.get(i), matcher.group(1));
+        if (module != null && !shared.contains(module)) {
+          union(parents, i, module);
+        }
+      }
+    }
+
+    Map<Integer, Group> groups = new LinkedHashMap<>();
+    for (int i = 0; i < files.size(); i++) {
+      if (!shared.contains(i)) {
+        groups
+            .computeIfAbsent(find(parents, i), k -> new Group())
+            .add(files.get(i), contents.get(i).getCode().length());
+      }
+    }
+
+    int count = Math.min(maxCount, groups.size());
+    if (count <= 1) {
+      return ImmutableList.of(new AutoValue_InputPartition(config, Shard.all()));
+    }
+
+    // Assign the largest groups first, each to the partition with the fewest bytes so far.
+    List<Group> bins = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      bins.add(new Group());
+    }
+    groups
+        .values()
+        .stream()
+        .sorted(Comparator.comparingLong((Group group) -> group.size).reversed())
+        .forEach(
+            group ->
+                bins.stream().min(Comparator.comparingLong(bin -> bin.size)).get().addAll(group));
+
+    ImmutableSet<Path> sharedFiles = shared.stream().map(files::get).collect(toImmutableSet());
+    Config.Builder base = config.toBuilder().setSourcePrefix(config.getSrcPrefix());
+    if (!config.getModulePrefix().isPresent() && !config.getModules().isEmpty()) {
+      // Each partition must name its modules relative to the same directory as a full build.
+      base.setModulePrefix(
+          ModulePrefixProvider.getCommonAncestor(config.getFileSystem(), config.getModules()));
+    }
+
+    ImmutableList.Builder<InputPartition> partitions = ImmutableList.builder();
+    boolean sharedFilesOwned = false;
+    for (int i = 0; i < count; i++) {
+      Group bin = bins.get(i);
+      boolean hasSources = config.getSources().stream().anyMatch(bin.files::contains);
+      boolean includeShared =
+          !sharedFiles.isEmpty() && (hasSources || (i == count - 1 && !sharedFilesOwned));
+
+      ImmutableSet.Builder<Path> owned = ImmutableSet.<Path>builder().addAll(bin.files);
+      if (includeShared && !sharedFilesOwned) {
+        owned.addAll(sharedFiles);
+        sharedFilesOwned = true;
+      }
+
+      Config partitionConfig =
+          base.setSources(
+                  config
+                      .getSources()
+                      .stream()
+                      .filter(
+                          path ->
+                              bin.files.contains(path)
+                                  || (includeShared && sharedFiles.contains(path)))
+                      .collect(toImmutableSet()))
+              .setModules(
+                  config
+                      .getModules()
+                      .stream()
+                      .filter(bin.files::contains)
+                      .collect(toImmutableSet()))
+              .build();
+      Shard shard = Shard.partition(i + 1, count, owned.build());
+      partitions.add(new AutoValue_InputPartition(partitionConfig, shard));
+    }
+
+    log.info(
+        String.format(
+            "Split %d inputs into %d partitions from %d independent groups",
+            files.size(), count, groups.size()));
+    return partitions.build();
+  }
+
+  @Nullable
+  private static Integer resolveModule(Map<Path, Integer> fileIndex, Path from, String id) {
+    Path path = from.resolveSibling(id).normalize();
+    Integer index = fileIndex.get(path);
+    if (index == null) {
+      index = fileIndex.get(path.resolveSibling(path.getFileName() + ".js"));
+    }
+    if (index == null) {
+      index = fileIndex.get(path.resolve("index.js"));
+    }
+    return index;
+  }
+
+  private static int find(int[] parents, int i) {
+    while (parents[i] != i) {
+      parents[i] = parents[parents[i]];
+      i = parents[i];
+    }
+    return i;
+  }
+
+  private static void union(int[] parents, int a, int b) {
+    parents[find(parents, a)] = find(parents, b);
+  }
+
+  /** A set of inputs and their total size. */
+  private static final class Group {
+    private final Set<Path> files = new HashSet<>();
+    private long size;
+
+    void add(Path file, long bytes) {
+      files.add(file);
+      size += bytes;
+    }
+
+    void addAll(Group group) {
+      files.addAll(group.files);
+      size += group.size;
+    }
+  }
+}
@@ -0,0 +1,230 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.common.collect.ImmutableSet;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Watches the input files described by a {@link Config} for changes. Since a configuration may
+ * refer to whole directories of sources, new script and markdown files created next to an existing
+ * input are also reported as changes. Directories created under a watched directory are watched as
+ * well, so files added to a new subdirectory are reported.
+ *
+ * <p>This class is not thread-safe.
+ */
+final class InputWatcher implements Closeable {
+
+  /** How long the file system must be quiet before a batch of changes is reported. */
+  private static final Duration QUIET_PERIOD = Duration.ofMillis(200);
+
+  private final WatchService watchService;
+  private final Map<WatchKey, Path> directories = new HashMap<>();
+
+  private ImmutableSet<Path> inputs = ImmutableSet.of();
+  private Optional<Path> outputDir = Optional.empty();
+
+  InputWatcher(FileSystem fileSystem) throws IOException {
+    this.watchService = fileSystem.newWatchService();
+  }
+
+  /**
+   * Updates the set of watched files to those described by the given configuration.
+   *
+   * @param config the configuration to watch the inputs for.
+   * @param configFile the path to the configuration file itself, if any.
+   * @throws IOException if a directory could not be registered with the watch service.
+   */
+  void watch(Config config, Optional<Path> configFile) throws IOException {
+    ImmutableSet.Builder<Path> builder =
+        ImmutableSet.<Path>builder()
+            .addAll(config.getSources())
+            .addAll(config.getModules())
+            .addAll(config.getExterns())
+            .addAll(config.getExternModules());
+    config.getReadme().ifPresent(builder::add);
+    config.getCustomPages().forEach(page -> builder.add(page.getPath()));
+    configFile.ifPresent(builder::add);
+
+    ImmutableSet<Path> newInputs =
+        builder
+            .build()
+            .stream()
+            .map(path -> path.toAbsolutePath().normalize())
+            .collect(toImmutableSet());
+
+    ImmutableSet<Path> newDirectories =
+        newInputs.stream().map(Path::getParent).collect(toImmutableSet());
+
+    Set<Path> unregistered = new LinkedHashSet<>(newDirectories);
+    for (Iterator<Map.Entry<WatchKey, Path>> it = directories.entrySet().iterator();
+        it.hasNext(); ) {
+      Map.Entry<WatchKey, Path> entry = it.next();
+      Path directory = entry.getValue();
+      // Keep watching subdirectories that were created while watching, even if they do not
+      // contain any inputs yet.
+      if (newDirectories.contains(directory) || isUnderAny(directory, newDirectories)) {
+        unregistered.remove(directory);
+      } else {
+        entry.getKey().cancel();
+        it.remove();
+      }
+    }
+
+    for (Path directory : unregistered) {
+      register(directory);
+    }
+
+    inputs = newInputs;
+    outputDir = Optional.of(config.getOutput().toAbsolutePath().normalize());
+  }
+
+  /** Returns the directories currently being watched. */
+  ImmutableSet<Path> getWatchedDirectories() {
+    return ImmutableSet.copyOf(directories.values());
+  }
+
+  private void register(Path directory) throws IOException {
+    WatchKey key = directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+    directories.put(key, directory);
+  }
+
+  private static boolean isUnderAny(Path path, Set<Path> directories) {
+    for (Path directory : directories) {
+      if (path.startsWith(directory) && Files.isDirectory(path)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Blocks until at least one watched file changes. Once a change is detected, this method will
+   * continue to collect changes until the file system has been quiet for a short period, so that an
+   * editor saving several files in quick succession triggers a single rebuild.
+   *
+   * @return the paths that changed. If the watch service dropped events, this will include the
+   *     directory whose events were lost.
+   * @throws InterruptedException if the thread is interrupted while waiting.
+   */
+  ImmutableSet<Path> awaitChanges() throws InterruptedException {
+    Set<Path> changed = new LinkedHashSet<>();
+    while (changed.isEmpty()) {
+      collectEvents(watchService.take(), changed);
+    }
+
+    WatchKey key;
+    while ((key = watchService.poll(QUIET_PERIOD.toMillis(), MILLISECONDS)) != null) {
+      collectEvents(key, changed);
+    }
+    return ImmutableSet.copyOf(changed);
+  }
+
+  private void collectEvents(WatchKey key, Set<Path> changed) {
+    Path directory = directories.get(key);
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (directory == null) {
+        continue;
+      }
+
+      if (event.kind() == OVERFLOW) {
+        changed.add(directory);
+        continue;
+      }
+
+      Path path = directory.resolve((Path) event.context());
+      if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+        registerCreatedDirectory(path, changed);
+      } else if (isRelevant(path)) {
+        changed.add(path);
+      }
+    }
+
+    if (!key.reset()) {
+      directories.remove(key);
+    }
+  }
+
+  /**
+   * Starts watching a newly created directory and its subdirectories. Files may have been added to
+   * the directory before it was registered, so any relevant files already in the tree are reported
+   * as changes.
+   */
+  private void registerCreatedDirectory(Path directory, Set<Path> changed) {
+    if (isExcluded(directory)) {
+      return;
+    }
+    try (Stream<Path> tree = Files.walk(directory)) {
+      for (Path path : (Iterable<Path>) tree::iterator) {
+        if (Files.isDirectory(path)) {
+          if (!isExcluded(path)) {
+            register(path);
+          }
+        } else if (isRelevant(path)) {
+          changed.add(path);
+        }
+      }
+    } catch (IOException | UncheckedIOException e) {
+      // The directory was removed or cannot be read; report it so the next build can decide.
+      changed.add(directory);
+    }
+  }
+
+  private boolean isExcluded(Path path) {
+    return (outputDir.isPresent() && path.startsWith(outputDir.get()))
+        || path.getFileName().toString().startsWith(".");
+  }
+
+  private boolean isRelevant(Path path) {
+    if (outputDir.isPresent() && path.startsWith(outputDir.get())) {
+      return false;
+    }
+    if (inputs.contains(path)) {
+      return true;
+    }
+    String name = path.getFileName().toString();
+    return !name.startsWith(".") && (name.endsWith(".js") || name.endsWith(".md"));
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+}
@@ -0,0 +1,101 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import com.github.jsdossier.TypeInspector.InstanceProperty;
+import com.github.jsdossier.jscomp.TypeRegistry;
+import com.google.common.collect.ImmutableMap;
+import com.google.javascript.rhino.jstype.ObjectType;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Caches the instance properties defined directly on each type, so they are only collected once no
+ * matter how many subtypes are inspected. Types are compared by identity.
+ *
+ * <p>Every entry is discarded if types or aliases are added to or removed from the {@link
+ * TypeRegistry}, as happens when inputs are recompiled. This keeps properties added to an unchanged
+ * type by a recompiled file from going stale, and releases the replaced types, which the cached
+ * properties strongly reference. This class is thread-safe.
+ */
+@Singleton
+final class InstancePropertyCache {
+
+  private final TypeRegistry typeRegistry;
+  private final ConcurrentMap<Key, ImmutableMap<String, InstanceProperty>> properties =
+      new ConcurrentHashMap<>();
+  private volatile int generation;
+
+  @Inject
+  InstancePropertyCache(TypeRegistry typeRegistry) {
+    this.typeRegistry = typeRegistry;
+    this.generation = typeRegistry.getGeneration();
+  }
+
+  /**
+   * Returns the properties defined on the given type, collecting them with the given function if
+   * they have not been cached. Concurrent misses for the same type may both collect its
+   * properties.
+   */
+  ImmutableMap<String, InstanceProperty> get(
+      ObjectType type, Function<ObjectType, ImmutableMap<String, InstanceProperty>> collector) {
+    int current = typeRegistry.getGeneration();
+    if (current != generation) {
+      synchronized (this) {
+        if (current != generation) {
+          properties.clear();
+          generation = current;
+        }
+      }
+    }
+
+    Key key = new Key(type);
+    ImmutableMap<String, InstanceProperty> result = properties.get(key);
+    if (result == null) {
+      // Collect outside of the map so collecting one type's properties does not block threads
+      // caching other types.
+      result = collector.apply(type);
+      ImmutableMap<String, InstanceProperty> previous = properties.putIfAbsent(key, result);
+      if (previous != null) {
+        result = previous;
+      }
+    }
+    return result;
+  }
+
+  /** A cache key that compares types by identity. */
+  private static final class Key {
+    private final ObjectType type;
+
+    private Key(ObjectType type) {
+      this.type = type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && ((Key) o).type == type;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(type);
+    }
+  }
+}
@@ -17,23 +17,33 @@ package com.github.jsdossier;
 
 import static com.google.common.collect.Iterables.concat;
 import static com.google.common.io.Files.getFileExtension;
-import static com.google.common.util.concurrent.Futures.allAsList;
-import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.Files.createDirectories;
-import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.nio.file.Files.isRegularFile;
+import static java.nio.file.Files.size;
 
+import com.github.jsdossier.Annotations.CachedRenderingTasks;
 import com.github.jsdossier.Annotations.PostRenderingTasks;
 import com.github.jsdossier.Annotations.RenderingTasks;
 import com.github.jsdossier.jscomp.CompilerModule;
 import com.github.jsdossier.jscomp.DossierCommandLineRunner;
 import com.github.jsdossier.jscomp.DossierCompiler;
+import com.github.jsdossier.jscomp.Recompiler;
+import com.github.jsdossier.jscomp.SourceFileLoader;
+import com.github.jsdossier.jscomp.SymbolTable;
 import com.github.jsdossier.jscomp.TypeRegistry;
+import com.github.jsdossier.metrics.BuildMetrics;
+import com.github.jsdossier.soy.DossierSoyModule;
+import com.github.jsdossier.soy.JsonRenderer;
+import com.github.jsdossier.soy.OutputWriter;
+import com.github.jsdossier.soy.Renderer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Strings;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -48,12 +58,21 @@ import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import javax.inject.Singleton;
 
 final class Main {
   private Main() {}
@@ -92,22 +111,213 @@ final class Main {
 
   @VisibleForTesting
   static int run(String[] args, FileSystem fileSystem) throws IOException {
+    if (args.length > 0 && "merge".equals(args[0])) {
+      return merge(Arrays.copyOfRange(args, 1, args.length), fileSystem);
+    }
+
     Flags flags = Flags.parse(args, fileSystem);
-    Config config = Config.fromFlags(flags, fileSystem);
+    BuildMetrics metrics = new BuildMetrics();
+    ClosureDependencyCache dependencyCache = ClosureDependencyCache.forFlags(flags);
+    Config config = loadConfig(flags, fileSystem, dependencyCache, metrics);
 
     if (flags.printConfig) {
       print(config);
       return 1;
     }
 
+    if (flags.shard.isSharded() && (flags.incremental || flags.watch)) {
+      System.err.println("--shard may not be used with --incremental or --watch");
+      return 1;
+    }
+    if (flags.numPartitions > 1
+        && (flags.shard.isSharded()
+            || flags.incremental
+            || flags.watch
+            || flags.cacheDir != null
+            || flags.lowMemory)) {
+      System.err.println(
+          "--num_partitions may not be used with --shard, --incremental, --watch, --cache_dir"
+              + " or --low_memory");
+      return 1;
+    }
+
+    configureLogging();
+    Injector rendererInjector = createRendererInjector(flags);
+
     Path output = config.getOutput();
     if ("zip".equals(getFileExtension(output.toString()))) {
+      if (flags.shard.isSharded()) {
+        System.err.println("--shard may not be used with a .zip output");
+        return 1;
+      }
+      if (flags.watch) {
+        System.err.println("--watch may not be used with a .zip output");
+        return 1;
+      }
       try (FileSystem outputFs = openZipFileSystem(output)) {
         output = outputFs.getPath("/");
-        return run(flags, config, output);
+        return run(flags, config, output, rendererInjector, metrics);
+      }
+    }
+
+    if (flags.watch) {
+      return watch(flags, config, fileSystem, dependencyCache, rendererInjector, metrics);
+    }
+    return run(flags, config, output, rendererInjector, metrics);
+  }
+
+  /**
+   * Combines the partial type indices written by each shard of a sharded run into the final type
+   * index.
+   */
+  private static int merge(String[] args, FileSystem fileSystem) throws IOException {
+    if (args.length != 1) {
+      System.err.println("Usage: dossier merge OUTPUT_DIR");
+      return 1;
+    }
+
+    Path outputDir = fileSystem.getPath(args[0]);
+    JsonRenderer jsonRenderer =
+        Guice.createInjector(new DossierSoyModule()).getInstance(JsonRenderer.class);
+    try {
+      Path index = RenderTypeIndexTask.merge(jsonRenderer, new OutputWriter(false), outputDir);
+      System.out.println("Wrote " + index);
+      return 0;
+    } catch (IllegalStateException e) {
+      System.err.println(e.getMessage());
+      return 1;
+    }
+  }
+
+  private static Config loadConfig(
+      Flags flags,
+      FileSystem fileSystem,
+      ClosureDependencyCache dependencyCache,
+      BuildMetrics metrics)
+      throws IOException {
+    try (BuildMetrics.Phase phase = metrics.startPhase("config")) {
+      return Config.fromFlags(flags, fileSystem, dependencyCache);
+    }
+  }
+
+  /**
+   * Creates the injector for the Soy rendering objects. These are expensive to create and do not
+   * depend on the configuration, so they may be shared by every build in a single process.
+   */
+  private static Injector createRendererInjector(Flags flags) {
+    OutputWriter outputWriter = new OutputWriter(flags.skipUnchangedWrites);
+    return Guice.createInjector(
+        new DossierSoyModule(),
+        binder -> {
+          binder.bind(Renderer.class).in(Singleton.class);
+          binder.bind(OutputWriter.class).toInstance(outputWriter);
+        });
+  }
+
+  /**
+   * Generates documentation, then regenerates it each time one of the inputs changes. The renderer
+   * and node externs are kept warm between builds and unchanged pages are not rendered again. When
+   * only existing inputs change and the configuration is unchanged, the previous build's compiler
+   * is reused to recompile just the changed inputs and the inputs with types depending on theirs;
+   * otherwise, and whenever recompiling fails, every input is compiled again. This method only
+   * returns if the thread is interrupted.
+   *
+   * @see Recompiler
+   */
+  private static int watch(
+      Flags flags,
+      Config config,
+      FileSystem fileSystem,
+      ClosureDependencyCache dependencyCache,
+      Injector rendererInjector,
+      BuildMetrics metrics)
+      throws IOException {
+    try (InputWatcher watcher = new InputWatcher(fileSystem)) {
+      watcher.watch(config, Optional.ofNullable(flags.config));
+      Build build = runBuild(flags, config, rendererInjector, metrics);
+
+      while (true) {
+        System.out.println("Watching for changes...");
+        ImmutableSet<Path> changed = watcher.awaitChanges();
+        if (log.isLoggable(Level.FINE)) {
+          log.fine("Changed:\n  " + Joiner.on("\n  ").join(changed));
+        }
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try {
+          metrics = new BuildMetrics();
+          config = loadConfig(flags, fileSystem, dependencyCache, metrics);
+          watcher.watch(config, Optional.ofNullable(flags.config));
+
+          int result = -1;
+          if (build != null && build.canRecompile(config, changed)) {
+            try {
+              result = rerunBuild(flags, build, changed, rendererInjector, metrics);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+              System.out.println("Recompiling failed; compiling every input...");
+              log.log(Level.FINE, "Recompiling failed", e);
+              build = null;
+            }
+          } else {
+            build = null;
+          }
+          if (build == null) {
+            build = runBuild(flags, config, rendererInjector, metrics);
+            result = build == null ? -1 : 0;
+          }
+          if (result == 0) {
+            System.out.printf(
+                "Rebuilt %d changed file(s) in %d ms%n",
+                changed.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+          }
+        } catch (IOException | RuntimeException e) {
+          // Keep watching; the next edit may fix the problem. The previous build's compiler is
+          // discarded since it may have been left in an inconsistent state.
+          build = null;
+          System.err.println("Rebuild failed: " + e.getMessage());
+          log.log(Level.FINE, "Rebuild failed", e);
+        }
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return 0;
     }
-    return run(flags, config, output);
+  }
+
+  /**
+   * Compiles every input and generates the documentation for a watched build.
+   *
+   * @return the build, or null if it failed.
+   */
+  @Nullable
+  private static Build runBuild(
+      Flags flags, Config config, Injector rendererInjector, BuildMetrics metrics)
+      throws IOException {
+    Build build =
+        createBuild(flags, config, flags.shard, config.getOutput(), rendererInjector, metrics);
+    int result = run(flags, metrics, executor -> generate(build, rendererInjector, executor));
+    return result == 0 ? build : null;
+  }
+
+  /**
+   * Recompiles the changed inputs with the compiler of a previous watched build, then generates
+   * the documentation again.
+   *
+   * @throws IllegalArgumentException if a changed file is not an input.
+   * @throws IllegalStateException if the inputs could not be recompiled, in which case the build
+   *     may no longer be used.
+   */
+  private static int rerunBuild(
+      Flags flags,
+      Build build,
+      ImmutableSet<Path> changed,
+      Injector rendererInjector,
+      BuildMetrics metrics)
+      throws IOException {
+    return run(
+        flags,
+        metrics,
+        executor -> regenerate(build, changed, rendererInjector, executor, metrics));
   }
 
   private static FileSystem openZipFileSystem(Path zip) throws IOException {
@@ -121,59 +331,305 @@ final class Main {
     return zip.getFileSystem().provider().newFileSystem(zip, attributes);
   }
 
-  private static ListenableFuture<List<Path>> submitRenderingTasks(
-      ListeningExecutorService executor, Injector injector, Class<? extends Annotation> qualifier)
-      throws InterruptedException {
-    List<RenderTask> tasks = injector.getInstance(new Key<List<RenderTask>>(qualifier) {});
+  private static List<RenderTask> getRenderingTasks(
+      Injector injector, Class<? extends Annotation> qualifier) {
+    return injector.getInstance(new Key<List<RenderTask>>(qualifier) {});
+  }
 
-    @SuppressWarnings("unchecked") // Safe by the contract of invokeAll().
-    List<ListenableFuture<Path>> stage1 = (List) executor.invokeAll(tasks);
-    return allAsList(stage1);
+  private static int run(
+      Flags flags,
+      Config config,
+      Path outputDir,
+      Injector rendererInjector,
+      BuildMetrics metrics)
+      throws IOException {
+    return run(
+        flags,
+        metrics,
+        executor ->
+            flags.numPartitions > 1
+                ? generatePartitioned(flags, config, outputDir, rendererInjector, executor, metrics)
+                : generate(
+                    createBuild(flags, config, flags.shard, outputDir, rendererInjector, metrics),
+                    rendererInjector,
+                    executor));
   }
 
-  private static int run(Flags flags, Config config, Path outputDir) throws IOException {
-    configureLogging();
+  /**
+   * Runs a single step that generates documentation, rendering with a new executor that is shut
+   * down once the step finishes, then writes the build's metrics.
+   */
+  private static int run(Flags flags, BuildMetrics metrics, BuildStep step) throws IOException {
+    Instant start = Instant.now();
+    ListeningExecutorService executor = flags.executor.create(flags.getNumThreads());
+    int result;
+    try {
+      result = step.run(executor);
+    } finally {
+      executor.shutdownNow();
+    }
+    if (result != 0) {
+      return result;
+    }
 
+    Instant stop = Instant.now();
+    System.out.println("Finished in " + formatDuration(Duration.between(start, stop)));
+
+    if (flags.metricsOut != null) {
+      metrics.write(flags.metricsOut);
+      System.out.println("Wrote metrics to " + flags.metricsOut);
+    }
+    return 0;
+  }
+
+  /** A step that generates documentation, rendering pages with the given executor. */
+  @FunctionalInterface
+  private interface BuildStep {
+    int run(ListeningExecutorService executor) throws IOException;
+  }
+
+  /**
+   * Splits the inputs into independent partitions and generates the documentation for each with
+   * its own compiler, in parallel. Like the shards of a sharded run, each partition writes a
+   * partial type index, which are merged once every partition has finished. The partitions share
+   * the given executor for rendering, and the metrics for each are added to the build's metrics
+   * once it finishes.
+   */
+  private static int generatePartitioned(
+      Flags flags,
+      Config config,
+      Path outputDir,
+      Injector rendererInjector,
+      ListeningExecutorService renderExecutor,
+      BuildMetrics metrics)
+      throws IOException {
+    List<InputPartition> partitions;
+    try (BuildMetrics.Phase phase = metrics.startPhase("partition")) {
+      partitions = InputPartition.partition(config, flags.numPartitions);
+    }
+    if (partitions.size() == 1) {
+      return generate(
+          createBuild(flags, config, flags.shard, outputDir, rendererInjector, metrics),
+          rendererInjector,
+          renderExecutor);
+    }
+    System.out.println("Compiling " + partitions.size() + " input partitions in parallel");
+
+    ExecutorService executor = Executors.newFixedThreadPool(partitions.size());
+    try {
+      List<Future<Integer>> results = new ArrayList<>(partitions.size());
+      for (int i = 0; i < partitions.size(); i++) {
+        int index = i;
+        InputPartition partition = partitions.get(i);
+        results.add(
+            executor.submit(
+                () -> {
+                  BuildMetrics partitionMetrics = new BuildMetrics();
+                  try {
+                    Build build =
+                        createBuild(
+                            flags,
+                            partition.getConfig(),
+                            partition.getShard(),
+                            outputDir,
+                            rendererInjector,
+                            partitionMetrics);
+                    return generate(build, rendererInjector, renderExecutor);
+                  } finally {
+                    metrics.addPartition(index, partitionMetrics);
+                  }
+                }));
+      }
+      for (Future<Integer> result : results) {
+        int code = result.get();
+        if (code != 0) {
+          return code;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Compilation was interrupted", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    try (BuildMetrics.Phase phase = metrics.startPhase("mergeIndex")) {
+      RenderTypeIndexTask.merge(
+          rendererInjector.getInstance(JsonRenderer.class),
+          rendererInjector.getInstance(OutputWriter.class),
+          outputDir);
+    }
+    return 0;
+  }
+
+  /**
+   * Creates the injector and the per-build state for compiling the given configuration. Nothing is
+   * compiled until the build is {@linkplain #generate generated}.
+   */
+  private static Build createBuild(
+      Flags flags,
+      Config config,
+      Shard shard,
+      Path outputDir,
+      Injector rendererInjector,
+      BuildMetrics metrics)
+      throws IOException {
     ExplicitScope documentationScope = new ExplicitScope();
+    BuildManifest manifest =
+        (flags.incremental || flags.watch)
+            ? BuildManifest.load(config, outputDir)
+            : BuildManifest.disabled();
+    CompileCache cache = openCompileCache(flags, config, shard, metrics);
 
     Injector injector =
-        Guice.createInjector(
+        rendererInjector.createChildInjector(
             new CompilerModule(),
-            new ConfigModule(flags, config, outputDir, documentationScope),
+            new ConfigModule(
+                flags, config, shard, outputDir, documentationScope, manifest, cache, metrics),
             new RenderTaskModule());
+    return new Build(
+        flags, config, outputDir, injector, documentationScope, manifest, cache, metrics);
+  }
 
-    DossierCommandLineRunner runner = injector.getInstance(DossierCommandLineRunner.class);
+  private static int generate(
+      Build build, Injector rendererInjector, ListeningExecutorService executor)
+      throws IOException {
+    Flags flags = build.flags;
+    BuildMetrics metrics = build.metrics;
+    DossierCommandLineRunner runner = build.injector.getInstance(DossierCommandLineRunner.class);
     if (!runner.shouldRunCompiler()) {
       return -1;
     }
 
-    Instant start = Instant.now();
-    System.out.println("Generating documentation...");
+    if (build.isRestoredFromCache()) {
+      System.out.println("Restoring documentation from the compile cache...");
+    } else {
+      System.out.println("Generating documentation...");
 
-    int result = runner.call();
-    if (result != 0) {
-      System.out.println("Compilation failed; aborting...");
-      return result;
+      int result;
+      try (BuildMetrics.Phase phase = metrics.startPhase("compile")) {
+        result = runner.call();
+      }
+      if (result != 0) {
+        System.out.println("Compilation failed; aborting...");
+        return result;
+      }
+
+      TypeRegistry typeRegistry = build.injector.getInstance(TypeRegistry.class);
+      DossierCompiler compiler = build.injector.getInstance(DossierCompiler.class);
+      try (BuildMetrics.Phase phase = metrics.startPhase("typeRelationships")) {
+        typeRegistry.computeTypeRelationships(compiler.getTopScope(), compiler.getTypeRegistry());
+      }
+      try (BuildMetrics.Phase phase = metrics.startPhase("flattenAliases")) {
+        typeRegistry.flattenAliases();
+      }
+      recordSymbolTables(typeRegistry.getGlobalSymbolTable(), metrics);
+      if (flags.lowMemory) {
+        pruneInputs(compiler, metrics);
+      }
+      build.compiled = true;
     }
+    return render(build, rendererInjector, executor, metrics);
+  }
 
-    TypeRegistry typeRegistry = injector.getInstance(TypeRegistry.class);
-    DossierCompiler compiler = injector.getInstance(DossierCompiler.class);
-    typeRegistry.computeTypeRelationships(compiler.getTopScope(), compiler.getTypeRegistry());
+  /**
+   * Recompiles the changed inputs of a build that was already generated, then renders its
+   * documentation again. The compiler's own passes are still recorded in the metrics for the
+   * original build.
+   *
+   * @throws IllegalStateException if the inputs could not be recompiled.
+   */
+  private static int regenerate(
+      Build build,
+      ImmutableSet<Path> changed,
+      Injector rendererInjector,
+      ListeningExecutorService executor,
+      BuildMetrics metrics)
+      throws IOException {
+    System.out.println("Recompiling changed inputs...");
+    build.manifest.advance(build.config);
+
+    List<Path> paths = new ArrayList<>(changed);
+    try (BuildMetrics.Phase phase = metrics.startPhase("recompile")) {
+      build.injector
+          .getInstance(Recompiler.class)
+          .recompile(SourceFileLoader.create().load(paths));
+    }
+    build.recompiled = true;
+    recordSymbolTables(
+        build.injector.getInstance(TypeRegistry.class).getGlobalSymbolTable(), metrics);
+    return render(build, rendererInjector, executor, metrics);
+  }
 
-    ListeningExecutorService executor = null;
+  private static int render(
+      Build build,
+      Injector rendererInjector,
+      ListeningExecutorService executor,
+      BuildMetrics metrics)
+      throws IOException {
+    Injector injector = build.injector;
+    boolean restoreFromCache = build.isRestoredFromCache();
     try {
-      documentationScope.enter();
-      createDirectories(outputDir);
-
-      executor = listeningDecorator(newFixedThreadPool(flags.numThreads));
-
-      List<Path> stage1Results =
-          submitRenderingTasks(executor, injector, RenderingTasks.class).get();
-      List<Path> stage2Results =
-          submitRenderingTasks(executor, injector, PostRenderingTasks.class).get();
+      build.documentationScope.enter();
+      createDirectories(build.outputDir);
+
+      RenderTaskScheduler scheduler = new RenderTaskScheduler(executor);
+      List<Path> results;
+      try (BuildMetrics.Phase phase = metrics.startPhase("render")) {
+        results =
+            scheduler
+                .schedule(
+                    concat(
+                        getRenderingTasks(
+                            injector,
+                            restoreFromCache ? CachedRenderingTasks.class : RenderingTasks.class),
+                        getRenderingTasks(injector, PostRenderingTasks.class)))
+                .get();
+      }
+      for (RenderTaskScheduler.TaskTiming timing : scheduler.getTimings()) {
+        metrics.recordTask(
+            timing.getTaskType().getSimpleName(),
+            timing.getRunTime(),
+            getFileSize(timing.getOutput()));
+      }
+      // The lookup counts are kept for the lifetime of the compiler, so they are only recorded for
+      // the build that compiled every input.
+      if (!restoreFromCache && !build.recompiled) {
+        TypeRegistry typeRegistry = injector.getInstance(TypeRegistry.class);
+        metrics.recordTypeLookups(
+            typeRegistry.getExactLookupHits(),
+            typeRegistry.getEquivalentLookupHits(),
+            typeRegistry.getLookupMisses());
+        CacheStats resolutions = injector.getInstance(TypeResolutionCache.class).getStats();
+        metrics.recordTypeResolutions(
+            resolutions.hitCount(), resolutions.missCount(), resolutions.evictionCount());
+      }
 
       if (log.isLoggable(Level.FINER)) {
-        log.fine("Rendered:\n  " + Joiner.on("\n  ").join(concat(stage1Results, stage2Results)));
+        log.fine("Rendered:\n  " + Joiner.on("\n  ").join(results));
+      }
+      if (log.isLoggable(Level.FINE)) {
+        log.fine("Critical path:\n  " + Joiner.on("\n  ").join(scheduler.getCriticalPath()));
+      }
+
+      if (build.manifest.isEnabled()) {
+        build.manifest.write();
+        System.out.println("Skipped " + build.manifest.getSkippedPageCount() + " unchanged pages");
+      }
+      if (build.cache.isEnabled()) {
+        writeCompileCache(build.cache, metrics);
+      }
+      if (build.flags.skipUnchangedWrites) {
+        OutputWriter outputWriter = rendererInjector.getInstance(OutputWriter.class);
+        System.out.println(
+            "Left " + outputWriter.getAndResetUnchangedCount() + " unchanged files untouched");
       }
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
@@ -186,17 +642,133 @@ final class Main {
       }
       throw new RuntimeException(e.getCause());
     } finally {
-      if (executor != null) {
-        executor.shutdownNow();
-      }
-      documentationScope.exit();
+      build.documentationScope.exit();
     }
-
-    Instant stop = Instant.now();
-    System.out.println("Finished in " + formatDuration(Duration.between(start, stop)));
     return 0;
   }
 
+  /** The injector and per-build state used to compile a configuration and render its pages. */
+  private static final class Build {
+    private final Flags flags;
+    private final Config config;
+    private final Path outputDir;
+    private final Injector injector;
+    private final ExplicitScope documentationScope;
+    private final BuildManifest manifest;
+    private final CompileCache cache;
+    private final BuildMetrics metrics;
+    private final ImmutableSet<Path> inputs;
+
+    /** Whether every input was compiled, rather than restored from the compile cache. */
+    private boolean compiled;
+
+    /** Whether changed inputs have been recompiled since every input was compiled. */
+    private boolean recompiled;
+
+    private Build(
+        Flags flags,
+        Config config,
+        Path outputDir,
+        Injector injector,
+        ExplicitScope documentationScope,
+        BuildManifest manifest,
+        CompileCache cache,
+        BuildMetrics metrics) {
+      this.flags = flags;
+      this.config = config;
+      this.outputDir = outputDir;
+      this.injector = injector;
+      this.documentationScope = documentationScope;
+      this.manifest = manifest;
+      this.cache = cache;
+      this.metrics = metrics;
+      this.inputs =
+          ImmutableSet.<Path>builder()
+              .addAll(config.getSources())
+              .addAll(config.getModules())
+              .build();
+    }
+
+    boolean isRestoredFromCache() {
+      return cache.getSnapshot().isPresent();
+    }
+
+    /**
+     * Returns whether the given changes may be recompiled with this build's compiler: every input
+     * was compiled and not pruned, the configuration has not changed, and only existing inputs
+     * changed.
+     */
+    boolean canRecompile(Config newConfig, ImmutableSet<Path> changed) {
+      return compiled
+          && !flags.lowMemory
+          && !cache.isEnabled()
+          && config.equals(newConfig)
+          && !changed.isEmpty()
+          && inputs.containsAll(changed);
+    }
+  }
+
+  private static CompileCache openCompileCache(
+      Flags flags, Config config, Shard shard, BuildMetrics metrics) throws IOException {
+    if (flags.cacheDir == null) {
+      return CompileCache.disabled();
+    }
+    try (BuildMetrics.Phase phase = metrics.startPhase("cacheLookup")) {
+      return CompileCache.open(flags.cacheDir, config, shard);
+    }
+  }
+
+  private static void writeCompileCache(CompileCache cache, BuildMetrics metrics)
+      throws IOException {
+    try (BuildMetrics.Phase phase = metrics.startPhase("cacheWrite")) {
+      cache.write();
+    }
+    boolean hit = cache.getSnapshot().isPresent();
+    metrics.recordCompileCache(
+        hit,
+        cache.getPageCount(),
+        cache.getSnapshotSize(),
+        cache.getHitCount(),
+        cache.getMissCount());
+    System.out.printf(
+        "Compile cache %s: %d pages, %d KB snapshot (%d hits, %d misses in total)%n",
+        hit ? "hit" : "miss",
+        cache.getPageCount(),
+        cache.getSnapshotSize() >> 10,
+        cache.getHitCount(),
+        cache.getMissCount());
+  }
+
+  private static void recordSymbolTables(SymbolTable symbolTable, BuildMetrics metrics) {
+    SymbolTable.MemoryStats stats = symbolTable.getMemoryStats();
+    metrics.recordSymbolTables(
+        stats.getSymbolCount(), stats.getTableCount(), stats.getEstimatedBytes());
+    log.info(
+        String.format(
+            "Recorded %d symbols in %d symbol tables (~%d KB)",
+            stats.getSymbolCount(), stats.getTableCount(), stats.getEstimatedBytes() >> 10));
+  }
+
+  private static void pruneInputs(DossierCompiler compiler, BuildMetrics metrics) {
+    long before = metrics.recordHeapUsage("beforePruning");
+    int removed;
+    try (BuildMetrics.Phase phase = metrics.startPhase("prune")) {
+      removed = compiler.pruneInputs();
+    }
+    long after = metrics.recordHeapUsage("afterPruning");
+    System.out.printf(
+        "Pruned %d AST nodes; heap usage went from %d MB to %d MB%n",
+        removed, before >> 20, after >> 20);
+  }
+
+  private static long getFileSize(Path path) {
+    try {
+      return isRegularFile(path) ? size(path) : 0;
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
   private static String formatDuration(Duration d) {
     StringBuilder b = new StringBuilder(24);
     final long secondsPerMinute = 60;
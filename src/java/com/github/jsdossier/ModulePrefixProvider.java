@@ -66,10 +66,7 @@ final class ModulePrefixProvider implements Provider<Path> {
             module);
       }
     } else {
-      path = getCommonPrefix(inputFs.getPath("").toAbsolutePath(), modules);
-      if (modules.contains(path) && path.getParent() != null) {
-        path = path.getParent();
-      }
+      path = getCommonAncestor(inputFs, modules);
     }
 
     // Always display at least one parent directory, if possible.
@@ -82,6 +79,18 @@ final class ModulePrefixProvider implements Provider<Path> {
     return path;
   }
 
+  /**
+   * Returns the closest common ancestor directory of the given modules, which is used as the
+   * module prefix when one is not configured.
+   */
+  static Path getCommonAncestor(FileSystem inputFs, ImmutableSet<Path> modules) {
+    Path path = getCommonPrefix(inputFs.getPath("").toAbsolutePath(), modules);
+    if (modules.contains(path) && path.getParent() != null) {
+      path = path.getParent();
+    }
+    return path;
+  }
+
   private ImmutableSet<Path> getModulePaths() {
     return typeRegistry
         .getAllModules()
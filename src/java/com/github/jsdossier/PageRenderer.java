@@ -17,7 +17,10 @@ limitations under the License.
 package com.github.jsdossier;
 
 import com.github.jsdossier.proto.PageData;
+import com.github.jsdossier.proto.Resources;
 import com.github.jsdossier.soy.Renderer;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import java.io.IOException;
 import java.nio.file.Path;
 import javax.inject.Inject;
@@ -27,15 +30,37 @@ final class PageRenderer {
   private final DossierFileSystem dfs;
   private final DocTemplate template;
   private final Renderer renderer;
+  private final BuildManifest manifest;
+  private final CompileCache cache;
 
   @Inject
-  PageRenderer(DossierFileSystem dfs, DocTemplate template, Renderer renderer) {
+  PageRenderer(
+      DossierFileSystem dfs,
+      DocTemplate template,
+      Renderer renderer,
+      BuildManifest manifest,
+      CompileCache cache) {
     this.dfs = dfs;
     this.template = template;
     this.renderer = renderer;
+    this.manifest = manifest;
+    this.cache = cache;
   }
 
   void render(Path htmlOut, PageData data) throws IOException {
-    renderer.render(htmlOut, dfs.getResources(htmlOut, template), data);
+    cache.recordPage(dfs.getRelativePath(htmlOut), data);
+    Resources resources = dfs.getResources(htmlOut, template);
+    if (manifest.isEnabled()) {
+      HashCode hash =
+          Hashing.sha256()
+              .newHasher()
+              .putBytes(resources.toByteArray())
+              .putBytes(data.toByteArray())
+              .hash();
+      if (manifest.updatePage(htmlOut, hash)) {
+        return;
+      }
+    }
+    renderer.render(htmlOut, resources, data);
   }
 }
@@ -16,19 +16,18 @@ limitations under the License.
 
 package com.github.jsdossier;
 
-import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.stream.Collectors.toList;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Ordering;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -101,7 +100,7 @@ class Paths {
 
   /**
    * Expands the given directory path, collecting all of its descendant files that are accepted by
-   * the filter.
+   * the filter. Directories rejected by the filter are not expanded.
    *
    * @param dir The directory to expand.
    * @param filter The filter to apply to the directory entries.
@@ -109,23 +108,33 @@ class Paths {
    * @throws IOException If an I/O error occurs.
    */
   static List<Path> expandDir(Path dir, DirectoryStream.Filter<Path> filter) throws IOException {
-    checkArgument(Files.isDirectory(dir), "%s is not a directory", dir);
-    List<Path> paths = new LinkedList<>();
-    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, filter)) {
-      for (Path path : stream) {
-        if (Files.isDirectory(path)) {
-          paths.addAll(expandDir(path, filter));
-        } else {
-          paths.add(path);
-        }
-      }
-    }
-    return paths;
+    Predicate<Path> predicate =
+        path -> {
+          try {
+            return filter.accept(path);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        };
+    return DirectoryWalker.create(predicate).walk(dir, path -> true);
   }
 
-  /** Returns a predicate that accepts paths not in the provided set. */
-  static Predicate<Path> notIn(final ImmutableSet<Path> paths) {
-    return input -> !paths.contains(input);
+  /**
+   * Returns a predicate that accepts paths that are not in the provided set and do not have an
+   * ancestor in the set.
+   */
+  static Predicate<Path> notUnder(final ImmutableSet<Path> paths) {
+    if (paths.isEmpty()) {
+      return input -> true;
+    }
+    return input -> {
+      for (Path path = input; path != null; path = path.getParent()) {
+        if (paths.contains(path)) {
+          return false;
+        }
+      }
+      return true;
+    };
   }
 
   /** Returns a predicate that accepts paths to files that are not hidden. */
@@ -0,0 +1,48 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import com.github.jsdossier.proto.RenderSnapshot;
+import com.google.auto.factory.AutoFactory;
+import com.google.auto.factory.Provided;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/** Renders a single page from the data stored in the {@link CompileCache}. */
+@AutoFactory
+final class RenderCachedPageTask implements RenderTask {
+
+  private final DossierFileSystem dfs;
+  private final PageRenderer renderer;
+  private final RenderSnapshot.Page page;
+
+  RenderCachedPageTask(
+      @Provided DossierFileSystem dfs,
+      @Provided PageRenderer renderer,
+      RenderSnapshot.Page page) {
+    this.dfs = dfs;
+    this.renderer = renderer;
+    this.page = page;
+  }
+
+  @Override
+  public Path call() throws IOException {
+    Path htmlPath = dfs.getPath(page.getPath());
+    renderer.render(htmlPath, page.getData());
+    return htmlPath;
+  }
+}
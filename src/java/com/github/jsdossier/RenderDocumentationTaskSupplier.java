@@ -43,6 +43,7 @@ import com.google.auto.factory.AutoFactory;
 import com.google.auto.factory.Provided;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.javascript.rhino.JSDocInfo;
 import com.google.javascript.rhino.JSTypeExpression;
 import com.google.javascript.rhino.Node;
@@ -108,6 +109,12 @@ final class RenderDocumentationTaskSupplier implements Supplier<ImmutableList<Re
       this.types = types;
     }
 
+    @Override
+    public ImmutableSet<Artifact> getProducedArtifacts() {
+      // Building the type specs records the instance & static properties in the index.
+      return ImmutableSet.of(Artifact.INDEX_ENTRIES, Artifact.PAGE_WRITTEN);
+    }
+
     @Override
     public Path call() throws Exception {
       PageData page =
@@ -0,0 +1,94 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/** The types of executors that may be used to run render tasks. */
+enum RenderExecutor {
+  /**
+   * A fixed size thread pool. Render tasks mix CPU-bound template rendering with blocking file
+   * writes, so by default this uses two threads per available processor.
+   */
+  FIXED {
+    @Override
+    int getDefaultNumThreads() {
+      return Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    @Override
+    ListeningExecutorService create(int numThreads) {
+      return listeningDecorator(Executors.newFixedThreadPool(numThreads));
+    }
+  },
+
+  /**
+   * A work-stealing {@link ForkJoinPool}. This is best suited to CPU-bound builds writing to a fast
+   * disk, and by default uses one thread per available processor.
+   */
+  WORK_STEALING {
+    @Override
+    int getDefaultNumThreads() {
+      return Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    ListeningExecutorService create(int numThreads) {
+      return listeningDecorator(new ForkJoinPool(numThreads));
+    }
+  },
+
+  /**
+   * Runs every task that is ready in its own thread, up to a limit, reusing idle threads when
+   * possible and letting them exit once idle. This is best suited to builds whose tasks spend most
+   * of their time blocked on I/O, such as when writing to a slow network mount. By default this
+   * uses up to eight threads per available processor; tasks submitted once every thread is busy
+   * wait for the next free thread.
+   */
+  THREAD_PER_TASK {
+    @Override
+    int getDefaultNumThreads() {
+      return Runtime.getRuntime().availableProcessors() * 8;
+    }
+
+    @Override
+    ListeningExecutorService create(int numThreads) {
+      ThreadPoolExecutor executor =
+          new ThreadPoolExecutor(
+              numThreads, numThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+      executor.allowCoreThreadTimeOut(true);
+      return listeningDecorator(executor);
+    }
+  };
+
+  /** Returns the number of threads to use if not explicitly configured. */
+  abstract int getDefaultNumThreads();
+
+  /**
+   * Creates a new executor service.
+   *
+   * @param numThreads the maximum number of threads to use.
+   */
+  abstract ListeningExecutorService create(int numThreads);
+}
@@ -19,6 +19,7 @@ package com.github.jsdossier;
 import com.github.jsdossier.annotations.Readme;
 import com.github.jsdossier.proto.Comment;
 import com.github.jsdossier.proto.PageData;
+import com.google.common.collect.ImmutableSet;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -52,6 +53,11 @@ final class RenderIndexTask implements RenderTask {
     this.readmeFile = readmeFile;
   }
 
+  @Override
+  public ImmutableSet<Artifact> getProducedArtifacts() {
+    return ImmutableSet.of(Artifact.INDEX_ENTRIES, Artifact.PAGE_WRITTEN);
+  }
+
   @Override
   public Path call() throws IOException {
     // TODO: render an index of all the types.
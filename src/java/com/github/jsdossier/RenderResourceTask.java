@@ -16,13 +16,10 @@ limitations under the License.
 
 package com.github.jsdossier;
 
-import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
-
+import com.github.jsdossier.soy.OutputWriter;
 import com.google.auto.factory.AutoFactory;
 import com.google.auto.factory.Provided;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 
 /** Task copies a resource file to the output directory. */
@@ -30,19 +27,20 @@ import java.nio.file.Path;
 final class RenderResourceTask implements RenderTask {
 
   private final DossierFileSystem dfs;
+  private final OutputWriter outputWriter;
   private final TemplateFile file;
 
-  RenderResourceTask(@Provided DossierFileSystem dfs, TemplateFile file) {
+  RenderResourceTask(
+      @Provided DossierFileSystem dfs, @Provided OutputWriter outputWriter, TemplateFile file) {
     this.dfs = dfs;
+    this.outputWriter = outputWriter;
     this.file = file;
   }
 
   @Override
   public Path call() throws IOException {
     Path output = dfs.getPath(file);
-    try (InputStream input = file.getSource().openStream()) {
-      Files.copy(input, output, REPLACE_EXISTING);
-    }
+    outputWriter.write(output, file.getSource().read());
     return output;
   }
 }
@@ -24,6 +24,7 @@ import com.github.jsdossier.proto.SourceFile;
 import com.google.auto.factory.AutoFactory;
 import com.google.auto.factory.Provided;
 import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
 import java.io.IOException;
 import java.nio.file.Path;
 
@@ -36,6 +37,8 @@ final class RenderSourceFileTask implements RenderTask {
   private final DossierFileSystem dfs;
   private final IndexBuilder index;
   private final PageRenderer renderer;
+  private final BuildManifest manifest;
+  private final CompileCache cache;
   private final Path prefix;
   private final Path path;
 
@@ -43,17 +46,37 @@ final class RenderSourceFileTask implements RenderTask {
       @Provided DossierFileSystem dfs,
       @Provided IndexBuilder index,
       @Provided PageRenderer renderer,
+      @Provided BuildManifest manifest,
+      @Provided CompileCache cache,
       @Provided @SourcePrefix Path prefix,
       Path path) {
     this.dfs = dfs;
     this.index = index;
     this.renderer = renderer;
+    this.manifest = manifest;
+    this.cache = cache;
     this.prefix = prefix;
     this.path = path;
   }
 
+  @Override
+  public ImmutableSet<Artifact> getProducedArtifacts() {
+    return ImmutableSet.of(Artifact.INDEX_ENTRIES, Artifact.PAGE_WRITTEN);
+  }
+
   @Override
   public Path call() throws IOException {
+    Path htmlPath = dfs.getPath(path);
+    index.addSourceFile(htmlPath);
+
+    // The rendered page depends only on the file's contents, so there is no need to re-read the
+    // file if it has not changed, unless its content must be recorded in the compile cache.
+    if (!cache.isRecording()
+        && manifest.isInputUnchanged(path)
+        && manifest.carryForward(htmlPath)) {
+      return htmlPath;
+    }
+
     String displayPath =
         prefix
             .relativize(path)
@@ -69,9 +92,7 @@ final class RenderSourceFileTask implements RenderTask {
 
     PageData page = PageData.newBuilder().setFile(file).build();
 
-    Path htmlPath = dfs.getPath(path);
     renderer.render(htmlPath, page);
-    index.addSourceFile(htmlPath);
     return htmlPath;
   }
 }
@@ -16,8 +16,32 @@ limitations under the License.
 
 package com.github.jsdossier;
 
+import com.google.common.collect.ImmutableSet;
 import java.nio.file.Path;
 import java.util.concurrent.Callable;
 
 /** Defines a task for rendering one or more files. */
-interface RenderTask extends Callable<Path> {}
+interface RenderTask extends Callable<Path> {
+
+  /** The shared artifacts a task may produce or consume while rendering. */
+  enum Artifact {
+    /** Entries recorded in the {@link IndexBuilder}. */
+    INDEX_ENTRIES,
+
+    /** A file written to the output directory. */
+    PAGE_WRITTEN
+  }
+
+  /** Returns the artifacts produced by this task. By default, a task only writes a page. */
+  default ImmutableSet<Artifact> getProducedArtifacts() {
+    return ImmutableSet.of(Artifact.PAGE_WRITTEN);
+  }
+
+  /**
+   * Returns the artifacts this task consumes. The task will not be started until every other task
+   * producing one of these artifacts has finished.
+   */
+  default ImmutableSet<Artifact> getConsumedArtifacts() {
+    return ImmutableSet.of();
+  }
+}
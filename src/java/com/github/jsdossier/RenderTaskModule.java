@@ -20,12 +20,14 @@ import static com.google.common.collect.Iterables.concat;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 
+import com.github.jsdossier.Annotations.CachedRenderingTasks;
 import com.github.jsdossier.Annotations.PostRenderingTasks;
 import com.github.jsdossier.Annotations.RenderingTasks;
 import com.github.jsdossier.annotations.DocumentationScoped;
 import com.github.jsdossier.annotations.Input;
 import com.github.jsdossier.annotations.SourceUrlTemplate;
 import com.github.jsdossier.jscomp.TypeRegistry;
+import com.github.jsdossier.proto.RenderSnapshot;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -39,11 +41,17 @@ import java.util.List;
 import java.util.Optional;
 import java.util.stream.StreamSupport;
 import javax.inject.Qualifier;
+import javax.inject.Singleton;
 
 /** Module responsible for providing the bindings for all rendering tasks. */
 final class RenderTaskModule extends AbstractModule {
   @Override
-  protected void configure() {}
+  protected void configure() {
+    // These caches hold types from a single compilation, so they are bound here to keep them out of
+    // the renderer injector shared by every build, whatever their dependencies.
+    bind(InstancePropertyCache.class).in(Singleton.class);
+    bind(TypeResolutionCache.class).in(Singleton.class);
+  }
 
   @Provides
   @DocumentationScoped
@@ -56,11 +64,20 @@ final class RenderTaskModule extends AbstractModule {
   @DocumentationScoped
   @RenderingTasks
   List<RenderTask> provideRenderingTasks(
+      Shard shard,
       RenderIndexTask indexTask,
       @CustomPageTasks List<RenderTask> customPageTasks,
       @DocumentableTypeTasks List<RenderTask> documentableTypeTasks,
       @ResourceFileTasks List<RenderTask> resourceTasks,
       @SourceFileTasks List<RenderTask> sourceFileTasks) {
+    if (!shard.isFirst()) {
+      // Only the types and source files are partitioned; everything else is rendered once, by the
+      // first shard.
+      List<RenderTask> result = new ArrayList<>(documentableTypeTasks);
+      result.addAll(sourceFileTasks);
+      return result;
+    }
+
     List<RenderTask> result =
         new ArrayList<>(
             customPageTasks.size()
@@ -78,6 +95,29 @@ final class RenderTaskModule extends AbstractModule {
     return result;
   }
 
+  /**
+   * Provides the tasks used in place of the {@link RenderingTasks} to regenerate the documentation
+   * from a snapshot in the {@link CompileCache}, without compiling any inputs.
+   */
+  @Provides
+  @DocumentationScoped
+  @CachedRenderingTasks
+  List<RenderTask> provideCachedRenderingTasks(
+      Shard shard,
+      CompileCache cache,
+      @ResourceFileTasks List<RenderTask> resourceTasks,
+      RenderCachedPageTaskFactory factory) {
+    RenderSnapshot snapshot =
+        cache.getSnapshot().orElseThrow(() -> new IllegalStateException("no cached snapshot"));
+
+    List<RenderTask> result = new ArrayList<>(snapshot.getPageCount() + resourceTasks.size());
+    if (shard.isFirst()) {
+      result.addAll(resourceTasks);
+    }
+    snapshot.getPageList().stream().map(factory::create).forEach(result::add);
+    return result;
+  }
+
   @Provides
   @DocumentationScoped
   @CustomPageTasks
@@ -90,6 +130,7 @@ final class RenderTaskModule extends AbstractModule {
   @DocumentationScoped
   @DocumentableTypeTasks
   List<RenderTask> provideRenderTypeTasks(
+      Shard shard,
       DossierFileSystem dfs,
       TypeRegistry registry,
       DocumentableTypePredicate predicate,
@@ -97,16 +138,18 @@ final class RenderTaskModule extends AbstractModule {
     // First, group all types by output paths, forced to lower case strings.
     // Any types with a collision must be rendered together to ensure no data mysteriously
     // disappears when running on a case insensitive file system (OSX is case-insensitive,
-    // but case-preserving).
+    // but case-preserving). When sharded, each group is assigned to a shard as a whole.
     return registry
         .getAllTypes()
         .stream()
         .filter(predicate)
+        .filter(type -> shard.owns(type.getSourceFile()))
         .collect(
             groupingBy(
                 type -> dfs.getPath(type).toAbsolutePath().normalize().toString().toLowerCase()))
         .values()
         .stream()
+        .filter(group -> shard.contains(getShardKey(dfs, dfs.getPath(group.get(0)))))
         .map(ImmutableList::copyOf)
         .map(factory::create)
         .map(Supplier::get)
@@ -114,6 +157,15 @@ final class RenderTaskModule extends AbstractModule {
         .collect(toList());
   }
 
+  /**
+   * Returns the key used to assign an output file to a shard. The key is relative to the output
+   * directory and case-insensitive, so it is stable across machines and keeps files whose names
+   * only differ by case on the same shard.
+   */
+  private static String getShardKey(DossierFileSystem dfs, Path output) {
+    return dfs.getRelativePath(output).toString().toLowerCase();
+  }
+
   @Provides
   @DocumentationScoped
   @ResourceFileTasks
@@ -134,6 +186,8 @@ final class RenderTaskModule extends AbstractModule {
   @DocumentationScoped
   @SourceFileTasks
   List<RenderTask> provieSourceFileTasks(
+      Shard shard,
+      DossierFileSystem dfs,
       @SourceUrlTemplate Optional<String> template,
       @Input ImmutableSet<Path> sourceFiles,
       RenderSourceFileTaskFactory factory) {
@@ -141,6 +195,8 @@ final class RenderTaskModule extends AbstractModule {
       return ImmutableList.of();
     }
     return StreamSupport.stream(sourceFiles.spliterator(), false)
+        .filter(shard::owns)
+        .filter(file -> shard.contains(getShardKey(dfs, dfs.getPath(file))))
         .map(factory::create)
         .collect(toList());
   }
@@ -0,0 +1,281 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.util.concurrent.Futures.allAsList;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.util.Comparator.comparingLong;
+
+import com.github.jsdossier.RenderTask.Artifact;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.MultimapBuilder;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.SettableFuture;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Schedules {@link RenderTask render tasks} according to the artifacts they produce and consume.
+ * Each task is submitted to the executor as soon as every task producing one of its consumed
+ * artifacts has finished, so independent work never waits on an unrelated barrier.
+ */
+final class RenderTaskScheduler {
+
+  private final ListeningExecutorService executor;
+  private final List<TaskNode> nodes = new ArrayList<>();
+
+  private long startNanos;
+
+  RenderTaskScheduler(ListeningExecutorService executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Schedules the given tasks for execution.
+   *
+   * @param tasks the tasks to run.
+   * @return a future for the output of each task, in the order the tasks were provided.
+   * @throws IllegalStateException if this scheduler has already been used, or if the tasks have a
+   *     cyclic dependency.
+   */
+  ListenableFuture<List<Path>> schedule(Iterable<? extends RenderTask> tasks) {
+    checkState(nodes.isEmpty(), "%s may only be used once", getClass().getSimpleName());
+
+    ListMultimap<Artifact, TaskNode> producers =
+        MultimapBuilder.enumKeys(Artifact.class).arrayListValues().build();
+    for (RenderTask task : tasks) {
+      TaskNode node = new TaskNode(task);
+      nodes.add(node);
+      for (Artifact artifact : task.getProducedArtifacts()) {
+        producers.put(artifact, node);
+      }
+    }
+
+    for (TaskNode node : nodes) {
+      Set<TaskNode> dependencies = new LinkedHashSet<>();
+      for (Artifact artifact : node.task.getConsumedArtifacts()) {
+        dependencies.addAll(producers.get(artifact));
+      }
+      dependencies.remove(node);
+      for (TaskNode dependency : dependencies) {
+        dependency.dependents.add(node);
+        node.dependencies.add(dependency);
+      }
+      node.pending.set(dependencies.size());
+    }
+    checkAcyclic();
+
+    startNanos = System.nanoTime();
+    List<ListenableFuture<Path>> results = new ArrayList<>(nodes.size());
+    List<TaskNode> ready = new ArrayList<>();
+    for (TaskNode node : nodes) {
+      results.add(node.result);
+      if (node.dependencies.isEmpty()) {
+        ready.add(node);
+      }
+    }
+    ready.forEach(this::submit);
+    return allAsList(results);
+  }
+
+  private void checkAcyclic() {
+    int[] remaining = new int[nodes.size()];
+    Deque<TaskNode> queue = new ArrayDeque<>();
+    for (int i = 0; i < nodes.size(); i++) {
+      TaskNode node = nodes.get(i);
+      node.index = i;
+      remaining[i] = node.dependencies.size();
+      if (remaining[i] == 0) {
+        queue.add(node);
+      }
+    }
+
+    int visited = 0;
+    while (!queue.isEmpty()) {
+      TaskNode node = queue.removeFirst();
+      visited++;
+      for (TaskNode dependent : node.dependents) {
+        if (--remaining[dependent.index] == 0) {
+          queue.add(dependent);
+        }
+      }
+    }
+    checkState(visited == nodes.size(), "render tasks have a cyclic dependency");
+  }
+
+  private void submit(TaskNode node) {
+    node.submitNanos = System.nanoTime();
+    ListenableFuture<Path> future =
+        executor.submit(
+            () -> {
+              node.runNanos = System.nanoTime();
+              try {
+                return node.task.call();
+              } finally {
+                node.doneNanos = System.nanoTime();
+              }
+            });
+    Futures.addCallback(
+        future,
+        new FutureCallback<Path>() {
+          @Override
+          public void onSuccess(Path result) {
+            node.result.set(result);
+            for (TaskNode dependent : node.dependents) {
+              if (dependent.pending.decrementAndGet() == 0) {
+                submit(dependent);
+              }
+            }
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            fail(node, t);
+          }
+        },
+        directExecutor());
+  }
+
+  private static void fail(TaskNode node, Throwable t) {
+    if (node.result.setException(t)) {
+      node.dependents.forEach(dependent -> fail(dependent, t));
+    }
+  }
+
+  /**
+   * Returns the timing information for every task that has finished successfully, in order of
+   * completion.
+   */
+  ImmutableList<TaskTiming> getTimings() {
+    return nodes
+        .stream()
+        .filter(TaskNode::isSuccessful)
+        .sorted(comparingLong(node -> node.doneNanos))
+        .map(this::toTiming)
+        .collect(toImmutableList());
+  }
+
+  /**
+   * Returns the critical path for the scheduled tasks: starting with the task that finished last,
+   * the chain of dependencies that most recently unblocked it. The returned list is ordered from
+   * the first task on the path to the last.
+   */
+  ImmutableList<TaskTiming> getCriticalPath() {
+    TaskNode last =
+        nodes
+            .stream()
+            .filter(TaskNode::isSuccessful)
+            .max(comparingLong(node -> node.doneNanos))
+            .orElse(null);
+
+    Deque<TaskTiming> path = new ArrayDeque<>();
+    while (last != null) {
+      path.addFirst(toTiming(last));
+      last =
+          last.dependencies
+              .stream()
+              .filter(TaskNode::isSuccessful)
+              .max(comparingLong(node -> node.doneNanos))
+              .orElse(null);
+    }
+    return ImmutableList.copyOf(path);
+  }
+
+  private TaskTiming toTiming(TaskNode node) {
+    return new AutoValue_RenderTaskScheduler_TaskTiming(
+        node.task.getClass(),
+        Futures.getUnchecked(node.result),
+        Duration.ofNanos(node.runNanos - startNanos),
+        Duration.ofNanos(node.runNanos - node.submitNanos),
+        Duration.ofNanos(node.doneNanos - node.runNanos));
+  }
+
+  /** Describes when a single task ran, relative to the start of scheduling. */
+  @AutoValue
+  abstract static class TaskTiming {
+    TaskTiming() {}
+
+    /** Returns the class of the task that ran. */
+    abstract Class<? extends RenderTask> getTaskType();
+
+    /** Returns the path returned by the task. */
+    abstract Path getOutput();
+
+    /** Returns the offset from the start of scheduling to when this task began running. */
+    abstract Duration getStartOffset();
+
+    /** Returns how long the task waited in the executor's queue before running. */
+    abstract Duration getQueueTime();
+
+    /** Returns how long the task ran. */
+    abstract Duration getRunTime();
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%s[%s] start=+%dms queued=%dms ran=%dms",
+          getTaskType().getSimpleName(),
+          getOutput(),
+          getStartOffset().toMillis(),
+          getQueueTime().toMillis(),
+          getRunTime().toMillis());
+    }
+  }
+
+  private static final class TaskNode {
+    private final RenderTask task;
+    private final List<TaskNode> dependencies = new ArrayList<>();
+    private final List<TaskNode> dependents = new ArrayList<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final SettableFuture<Path> result = SettableFuture.create();
+
+    private int index;
+    private volatile long submitNanos;
+    private volatile long runNanos;
+    private volatile long doneNanos;
+
+    private TaskNode(RenderTask task) {
+      this.task = task;
+    }
+
+    private boolean isSuccessful() {
+      if (!result.isDone()) {
+        return false;
+      }
+      try {
+        Futures.getDone(result);
+        return true;
+      } catch (Exception e) {
+        return false;
+      }
+    }
+  }
+}
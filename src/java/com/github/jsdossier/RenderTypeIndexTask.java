@@ -16,46 +16,134 @@ limitations under the License.
 
 package com.github.jsdossier;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.nio.file.StandardOpenOption.CREATE;
-import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
-import static java.nio.file.StandardOpenOption.WRITE;
+import static com.google.common.base.Preconditions.checkState;
 
 import com.github.jsdossier.annotations.DocumentationScoped;
 import com.github.jsdossier.proto.Index;
+import com.github.jsdossier.proto.RenderSnapshot;
 import com.github.jsdossier.soy.JsonRenderer;
+import com.github.jsdossier.soy.OutputWriter;
+import com.google.common.collect.ImmutableSet;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import javax.inject.Inject;
 
-/** Task for rendering the main type index. */
+/**
+ * Task for rendering the main type index. When rendering a single shard, the shard's partial index
+ * is written instead, to later be combined with the other shards by {@link #merge}.
+ */
 @DocumentationScoped
 final class RenderTypeIndexTask implements RenderTask {
 
   private final DossierFileSystem dfs;
   private final JsonRenderer jsonRenderer;
   private final IndexBuilder index;
+  private final OutputWriter outputWriter;
+  private final Shard shard;
+  private final CompileCache cache;
 
   @Inject
-  RenderTypeIndexTask(DossierFileSystem dfs, JsonRenderer jsonRenderer, IndexBuilder index) {
+  RenderTypeIndexTask(
+      DossierFileSystem dfs,
+      JsonRenderer jsonRenderer,
+      IndexBuilder index,
+      OutputWriter outputWriter,
+      Shard shard,
+      CompileCache cache) {
     this.dfs = dfs;
     this.jsonRenderer = jsonRenderer;
     this.index = index;
+    this.outputWriter = outputWriter;
+    this.shard = shard;
+    this.cache = cache;
+  }
+
+  @Override
+  public ImmutableSet<Artifact> getConsumedArtifacts() {
+    return ImmutableSet.of(Artifact.INDEX_ENTRIES);
   }
 
   @Override
   public Path call() throws IOException {
-    Index message = index.toNormalizedProto();
+    // When restoring from the compile cache, no task contributes index entries.
+    Index message =
+        cache.getSnapshot().map(RenderSnapshot::getIndex).orElseGet(index::toNormalizedProto);
+    cache.recordIndex(message);
+
+    if (shard.isSharded()) {
+      Path path = dfs.getPath(shard.getPartialIndexFileName());
+      outputWriter.write(path, message.toByteArray());
+      return path;
+    }
+
+    Path path = dfs.getPath("types.js");
+    write(jsonRenderer, outputWriter, path, message);
+    return path;
+  }
 
+  /**
+   * Merges the partial indices written by every shard to the given output directory, writes the
+   * combined type index, and deletes the partial indices.
+   *
+   * @return the path to the combined type index.
+   * @throws IllegalStateException if the partial index for any shard is missing.
+   */
+  static Path merge(JsonRenderer jsonRenderer, OutputWriter outputWriter, Path outputDir)
+      throws IOException {
+    SortedMap<Integer, Path> partialIndices = new TreeMap<>();
+    int count = 0;
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(outputDir)) {
+      for (Path path : stream) {
+        String name = path.getFileName().toString();
+        if (!Shard.isPartialIndexFileName(name)) {
+          continue;
+        }
+        Shard shard = Shard.fromPartialIndexFileName(name);
+        checkState(
+            count == 0 || count == shard.getCount(),
+            "found partial indices for %s and %s shards in %s",
+            count,
+            shard.getCount(),
+            outputDir);
+        count = shard.getCount();
+        partialIndices.put(shard.getIndex(), path);
+      }
+    }
+    checkState(count > 0, "no partial indices found in %s", outputDir);
+    checkState(
+        partialIndices.size() == count,
+        "expected %s partial indices in %s, but only found shards %s",
+        count,
+        outputDir,
+        partialIndices.keySet());
+
+    List<Index> indices = new ArrayList<>(count);
+    for (Path path : partialIndices.values()) {
+      indices.add(Index.parseFrom(Files.readAllBytes(path)));
+    }
+
+    Path path = outputDir.resolve("types.js");
+    write(jsonRenderer, outputWriter, path, IndexBuilder.merge(indices));
+    for (Path partialIndex : partialIndices.values()) {
+      Files.delete(partialIndex);
+    }
+    return path;
+  }
+
+  private static void write(
+      JsonRenderer jsonRenderer, OutputWriter outputWriter, Path path, Index message)
+      throws IOException {
     StringWriter sw = new StringWriter();
     sw.append("var TYPES = ");
     jsonRenderer.render(sw, message);
     sw.append(";");
-
-    Path path = dfs.getPath("types.js");
-    Files.write(path, sw.toString().getBytes(UTF_8), CREATE, WRITE, TRUNCATE_EXISTING);
-    return path;
+    outputWriter.write(path, sw.getBuffer());
   }
 }
@@ -0,0 +1,148 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Identifies the subset of documentation rendered by a single process when generation is split
+ * across several processes. Work is assigned to shards by hashing a stable key, such as an output
+ * path, so every shard agrees on the partitioning without coordinating.
+ *
+ * <p>A shard may instead represent one {@link InputPartition partition} of the inputs. Each
+ * partition compiles its own inputs and renders the types and source files from the inputs it owns,
+ * regardless of their keys.
+ */
+@AutoValue
+abstract class Shard {
+
+  private static final Pattern SHARD_PATTERN = Pattern.compile("(\\d+)/(\\d+)");
+  private static final Pattern PARTIAL_INDEX_PATTERN =
+      Pattern.compile("\\.dossier_index_(\\d+)_of_(\\d+)\\.pb");
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_32();
+
+  private static final Shard ALL = new AutoValue_Shard(1, 1, Optional.empty());
+
+  Shard() {}
+
+  /** Returns the shard that renders everything. */
+  static Shard all() {
+    return ALL;
+  }
+
+  /**
+   * Parses a shard specification of the form {@code i/n}, where {@code n} is the total number of
+   * shards and {@code i} is this shard's 1-based index.
+   *
+   * @throws IllegalArgumentException if the specification is invalid.
+   */
+  static Shard parse(String spec) {
+    Matcher matcher = SHARD_PATTERN.matcher(spec);
+    checkArgument(matcher.matches(), "invalid shard, expected i/n: %s", spec);
+    return create(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+  }
+
+  /**
+   * Returns the shard whose partial index is stored in the file with the given name.
+   *
+   * @throws IllegalArgumentException if the name is not a partial index file name.
+   */
+  static Shard fromPartialIndexFileName(String name) {
+    Matcher matcher = PARTIAL_INDEX_PATTERN.matcher(name);
+    checkArgument(matcher.matches(), "not a partial index file: %s", name);
+    return create(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+  }
+
+  /** Returns whether the file with the given name holds a shard's partial index. */
+  static boolean isPartialIndexFileName(String name) {
+    return PARTIAL_INDEX_PATTERN.matcher(name).matches();
+  }
+
+  private static Shard create(int index, int count) {
+    checkArgument(count >= 1, "invalid number of shards: %s", count);
+    checkArgument(
+        index >= 1 && index <= count, "shard index must be in [1, %s]: %s", count, index);
+    return new AutoValue_Shard(index, count, Optional.empty());
+  }
+
+  /**
+   * Returns the shard for the {@code index}th of {@code count} input partitions, which renders
+   * the types and source files defined in the given input files.
+   */
+  static Shard partition(int index, int count, ImmutableSet<Path> ownedFiles) {
+    checkArgument(count >= 1, "invalid number of partitions: %s", count);
+    checkArgument(
+        index >= 1 && index <= count, "partition index must be in [1, %s]: %s", count, index);
+    return new AutoValue_Shard(index, count, Optional.of(ownedFiles));
+  }
+
+  /** Returns the 1-based index of this shard. */
+  abstract int getIndex();
+
+  /** Returns the total number of shards. */
+  abstract int getCount();
+
+  /** Returns the input files owned by this shard, if it represents an input partition. */
+  abstract Optional<ImmutableSet<Path>> getOwnedFiles();
+
+  /** Returns whether work is split across more than one shard. */
+  boolean isSharded() {
+    return getCount() > 1;
+  }
+
+  /**
+   * Returns whether this is the first shard. Work that cannot be partitioned, such as copying the
+   * template's resource files, is only performed by the first shard.
+   */
+  boolean isFirst() {
+    return getIndex() == 1;
+  }
+
+  /** Returns whether this shard is responsible for the work identified by the given key. */
+  boolean contains(String key) {
+    if (!isSharded() || getOwnedFiles().isPresent()) {
+      return true;
+    }
+    int hash = HASH_FUNCTION.hashString(key, UTF_8).asInt();
+    return Math.floorMod(hash, getCount()) == getIndex() - 1;
+  }
+
+  /** Returns whether this shard renders the documentation for the given input file. */
+  boolean owns(Path file) {
+    return !getOwnedFiles().isPresent() || getOwnedFiles().get().contains(file);
+  }
+
+  /** Returns the name of the file this shard's partial type index is written to. */
+  String getPartialIndexFileName() {
+    return ".dossier_index_" + getIndex() + "_of_" + getCount() + ".pb";
+  }
+
+  @Override
+  public String toString() {
+    return getIndex() + "/" + getCount();
+  }
+}
@@ -70,6 +70,7 @@ final class TypeContext {
   private final JSTypeRegistry jsTypeRegistry;
   private final DossierFileSystem dfs;
   private final ModuleNamingConvention moduleNamingConvention;
+  private final TypeResolutionCache resolutionCache;
   private final Optional<NominalType> context;
 
   @Inject
@@ -77,8 +78,15 @@ final class TypeContext {
       TypeRegistry typeRegistry,
       JSTypeRegistry jsTypeRegistry,
       ModuleNamingConvention moduleNamingConvention,
-      DossierFileSystem dfs) {
-    this(typeRegistry, jsTypeRegistry, dfs, moduleNamingConvention, Optional.empty());
+      DossierFileSystem dfs,
+      TypeResolutionCache resolutionCache) {
+    this(
+        typeRegistry,
+        jsTypeRegistry,
+        dfs,
+        moduleNamingConvention,
+        resolutionCache,
+        Optional.empty());
   }
 
   private TypeContext(
@@ -86,18 +94,25 @@ final class TypeContext {
       JSTypeRegistry jsTypeRegistry,
       DossierFileSystem dfs,
       ModuleNamingConvention moduleNamingConvention,
+      TypeResolutionCache resolutionCache,
       Optional<NominalType> context) {
     this.typeRegistry = typeRegistry;
     this.jsTypeRegistry = jsTypeRegistry;
     this.dfs = dfs;
     this.moduleNamingConvention = moduleNamingConvention;
+    this.resolutionCache = resolutionCache;
     this.context = context;
   }
 
   /** Creates a new context focused on the given type. */
   public TypeContext changeContext(@Nullable NominalType context) {
     return new TypeContext(
-        typeRegistry, jsTypeRegistry, dfs, moduleNamingConvention, Optional.ofNullable(context));
+        typeRegistry,
+        jsTypeRegistry,
+        dfs,
+        moduleNamingConvention,
+        resolutionCache,
+        Optional.ofNullable(context));
   }
 
   public boolean isGlobalScope() {
@@ -112,11 +127,18 @@ final class TypeContext {
 
   /**
    * Resolves the named type relative to this context. Will recurse into the parent context,
-   * ultimately returning {@code null} if the type cannot be resolved.
+   * ultimately returning {@code null} if the type cannot be resolved. Results are cached for all
+   * contexts focused on the same type.
    */
   @Nullable
   @CheckReturnValue
   public NominalType resolveType(String name) {
+    return resolutionCache.get(context.orElse(null), name, () -> resolveTypeUncached(name));
+  }
+
+  @Nullable
+  @CheckReturnValue
+  private NominalType resolveTypeUncached(String name) {
     if (name.indexOf(MODULE_PATH_SEPARATOR) != -1) {
       return resolveModuleType(name);
     }
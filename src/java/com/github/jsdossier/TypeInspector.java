@@ -48,6 +48,7 @@ import com.google.auto.factory.Provided;
 import com.google.auto.value.AutoValue;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
@@ -75,7 +76,6 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -114,6 +114,7 @@ final class TypeInspector {
   private final JSTypeRegistry jsRegistry;
   private final Predicate<String> typeFilter;
   private final TypeExpressionParserFactory expressionParserFactory;
+  private final InstancePropertyCache propertyCache;
   private final LinkFactory linkFactory;
   private final NominalType inspectedType;
   private final TemplateTypeMapReplacer typeMapReplacer;
@@ -129,6 +130,7 @@ final class TypeInspector {
       @Provided @TypeFilter Predicate<String> typeFilter,
       @Provided TypeExpressionParserFactory expressionParserFactory,
       @Provided LinkFactoryBuilder linkFactoryBuilder,
+      @Provided InstancePropertyCache propertyCache,
       NominalType inspectedType) {
     this.dfs = dfs;
     this.parser = parser;
@@ -137,6 +139,7 @@ final class TypeInspector {
     this.jsRegistry = jsRegistry;
     this.expressionParserFactory = expressionParserFactory;
     this.typeFilter = typeFilter;
+    this.propertyCache = propertyCache;
     this.linkFactory = linkFactoryBuilder.create(inspectedType);
     this.inspectedType = inspectedType;
 
@@ -605,7 +608,7 @@ final class TypeInspector {
     return definitions.iterator().next().getType();
   }
 
-  private Set<JSType> getAssignableTypes(JSType type) {
+  private List<JSType> getAssignableTypes(JSType type) {
     if (type.isNamedType()
         && registry.isType(
             ((com.google.javascript.rhino.jstype.NamedType) type).getReferenceName())) {
@@ -614,26 +617,19 @@ final class TypeInspector {
               .getType(((com.google.javascript.rhino.jstype.NamedType) type).getReferenceName())
               .getType();
     }
-
-    Set<JSType> types = new LinkedHashSet<>();
-    if (type.toMaybeFunctionType() != null && type.toMaybeFunctionType().hasInstanceType()) {
-      types.add(type.toMaybeFunctionType().getInstanceType());
-    }
-
-    types.addAll(registry.getImplementedInterfaces(type));
-    types.addAll(registry.getTypeHierarchy(type));
-    return types;
+    return registry.getAssignableTypes(type);
   }
 
   @VisibleForTesting
   Map<String, InstanceProperty> getInstanceProperties(JSType type) {
-    Map<String, InstanceProperty> properties = new HashMap<>();
-
     if (type.isConstructor() || type.isInterface()) {
       type = ((FunctionType) type).getInstanceType();
     }
+    return propertyCache.get(type.toObjectType(), this::collectInstanceProperties);
+  }
 
-    ObjectType object = type.toObjectType();
+  private ImmutableMap<String, InstanceProperty> collectInstanceProperties(ObjectType object) {
+    Map<String, InstanceProperty> properties = new HashMap<>();
     FunctionType ctor = object.getConstructor();
     if (ctor != null) {
       ObjectType prototype = ObjectType.cast(ctor.getPropertyType("prototype"));
@@ -641,7 +637,7 @@ final class TypeInspector {
       properties = getOwnProperties(prototype);
     }
     properties.putAll(getOwnProperties(object));
-    return properties;
+    return ImmutableMap.copyOf(properties);
   }
 
   private Map<String, InstanceProperty> getOwnProperties(ObjectType object) {
@@ -0,0 +1,133 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import com.github.jsdossier.jscomp.NominalType;
+import com.github.jsdossier.jscomp.TypeRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.util.Optional;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Caches the types resolved by {@link TypeContext#resolveType(String)}, keyed by the context type
+ * and the name being resolved. Every link factory, type expression parser, and {@code @link} tag
+ * rendered for a type resolves names against the same context, so most names are resolved many
+ * times over. Names that do not resolve to a type are cached as well.
+ *
+ * <p>The cache is bounded and may be shared by all rendering threads. Every entry is discarded if
+ * types or aliases are added to or removed from the {@link TypeRegistry}.
+ */
+@Singleton
+final class TypeResolutionCache {
+
+  private static final int DEFAULT_MAX_SIZE = 100_000;
+
+  private final TypeRegistry typeRegistry;
+  private final Cache<Key, Optional<NominalType>> cache;
+  private volatile int generation;
+
+  @Inject
+  TypeResolutionCache(TypeRegistry typeRegistry) {
+    this(typeRegistry, DEFAULT_MAX_SIZE);
+  }
+
+  @VisibleForTesting
+  TypeResolutionCache(TypeRegistry typeRegistry, int maxSize) {
+    this.typeRegistry = typeRegistry;
+    this.cache = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build();
+    this.generation = typeRegistry.getGeneration();
+  }
+
+  /**
+   * Returns the type the name resolves to in the given context, computing it with the given
+   * function if it has not been cached.
+   *
+   * @param context the type names are resolved against, or null for the global scope.
+   * @param name the name to resolve.
+   * @param resolver computes the resolved type, returning null if the name does not resolve.
+   * @return the resolved type, or null if the name does not resolve to a type.
+   */
+  @Nullable
+  NominalType get(@Nullable NominalType context, String name, Supplier<NominalType> resolver) {
+    int current = typeRegistry.getGeneration();
+    if (current != generation) {
+      synchronized (this) {
+        if (current != generation) {
+          cache.invalidateAll();
+          generation = current;
+        }
+      }
+    }
+
+    Key key = new Key(context, name);
+    Optional<NominalType> type = cache.getIfPresent(key);
+    if (type == null) {
+      // Resolve outside of the cache so a resolution that triggers another lookup cannot deadlock.
+      // Concurrent misses for the same key may both resolve the name, but will agree on the result.
+      type = Optional.ofNullable(resolver.get());
+      cache.put(key, type);
+    }
+    return type.orElse(null);
+  }
+
+  /** Returns the hit, miss, and eviction counts for this cache. */
+  CacheStats getStats() {
+    return cache.stats();
+  }
+
+  /** Returns the number of entries currently cached. */
+  long size() {
+    return cache.size();
+  }
+
+  /**
+   * A cache key. Nominal types are compared by identity: they are unique within a registry, and
+   * their generated {@code equals} would compare the underlying JSTypes and AST nodes.
+   */
+  private static final class Key {
+    @Nullable private final NominalType context;
+    private final String name;
+
+    private Key(@Nullable NominalType context, String name) {
+      this.context = context;
+      this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return context == that.context && name.equals(that.name);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(context) + name.hashCode();
+    }
+  }
+}
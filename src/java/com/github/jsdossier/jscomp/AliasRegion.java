@@ -17,13 +17,16 @@ limitations under the License.
 package com.github.jsdossier.jscomp;
 
 import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Range;
 import com.google.javascript.jscomp.CompilerOptions;
 import com.google.javascript.rhino.SourcePosition;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nullable;
@@ -39,6 +42,10 @@ public abstract class AliasRegion implements CompilerOptions.AliasTransformation
 
   private final Map<String, String> aliases = new HashMap<>();
 
+  // Maps each alias to its fully resolved definition. Null until the alias chains have been
+  // flattened, and whenever an alias has been added since.
+  @Nullable private volatile ImmutableMap<String, String> resolvedAliases;
+
   /** Returns a new region builder. */
   public static Builder builder() {
     return new AutoValue_AliasRegion.Builder();
@@ -61,6 +68,29 @@ public abstract class AliasRegion implements CompilerOptions.AliasTransformation
   public void addAlias(String alias, String definition) {
     log.fine(String.format("In %s, %s = %s (%s)", getPath(), alias, definition, getRange()));
     aliases.put(alias, definition);
+    resolvedAliases = null;
+  }
+
+  /**
+   * Resolves every alias chain in this region so aliases may be resolved with a single lookup. A
+   * circular chain is followed until it returns to an alias that has already been visited.
+   */
+  void flatten() {
+    ImmutableMap.Builder<String, String> resolved = ImmutableMap.builder();
+    Set<String> seen = new HashSet<>();
+    for (Map.Entry<String, String> entry : aliases.entrySet()) {
+      seen.clear();
+      seen.add(entry.getKey());
+
+      String definition = entry.getValue();
+      while (aliases.containsKey(definition) && seen.add(definition)) {
+        definition = aliases.get(definition);
+      }
+      if (definition != null) {
+        resolved.put(entry.getKey(), definition);
+      }
+    }
+    resolvedAliases = resolved.build();
   }
 
   /**
@@ -70,6 +100,11 @@ public abstract class AliasRegion implements CompilerOptions.AliasTransformation
   @Nullable
   @CheckReturnValue
   public String resolveAlias(String alias) {
+    ImmutableMap<String, String> flattened = resolvedAliases;
+    if (flattened != null) {
+      return flattened.get(alias);
+    }
+
     String resolved = aliases.get(alias);
     while (aliases.containsKey(resolved)) {
       resolved = aliases.get(resolved);
@@ -0,0 +1,70 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier.jscomp;
+
+import com.google.javascript.rhino.Node;
+
+/**
+ * Removes the parts of a compiled AST that are not needed to render documentation. Documentation
+ * only refers to nodes with JSDoc, class declarations and the parameter lists of functions, so the
+ * body of a function that contains none of these may be dropped once type information has been
+ * collected.
+ */
+final class AstPruner {
+
+  private int removedCount;
+
+  private AstPruner() {}
+
+  /**
+   * Detaches the contents of every function body in the given tree that does not contain a node
+   * with JSDoc or a class declaration.
+   *
+   * @return the number of nodes removed.
+   */
+  static int pruneFunctionBodies(Node root) {
+    AstPruner pruner = new AstPruner();
+    pruner.visit(root);
+    return pruner.removedCount;
+  }
+
+  /** Prunes the given subtree, returning whether it contains a node that must be retained. */
+  private boolean visit(Node node) {
+    boolean retain = node.getJSDocInfo() != null || node.isClass();
+    for (Node child = node.getFirstChild(); child != null; child = child.getNext()) {
+      boolean retainChild = visit(child);
+      if (!retainChild
+          && node.isFunction()
+          && child == node.getLastChild()
+          && child.isBlock()
+          && child.hasChildren()) {
+        removedCount += countDescendants(child);
+        child.detachChildren();
+      }
+      retain |= retainChild;
+    }
+    return retain;
+  }
+
+  private static int countDescendants(Node node) {
+    int count = 0;
+    for (Node child = node.getFirstChild(); child != null; child = child.getNext()) {
+      count += 1 + countDescendants(child);
+    }
+    return count;
+  }
+}
@@ -43,11 +43,13 @@ import com.google.javascript.rhino.Node;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 
-final class BuildSymbolTablePass implements DossierCompilerPass {
+final class BuildSymbolTablePass implements ConcurrentCompilerPass {
 
   private final FileSystem fs;
   private final SymbolTable globalSymbolTable;
@@ -55,6 +57,7 @@ final class BuildSymbolTablePass implements DossierCompilerPass {
   private final NodeLibrary nodeLibrary;
   private final TypeRegistry typeRegistry;
 
+  @Nullable private final List<Runnable> deferredUpdates;
   @Nullable private Node export;
 
   @Inject
@@ -69,24 +72,46 @@ final class BuildSymbolTablePass implements DossierCompilerPass {
     this.globalSymbolTable = globalSymbolTable;
     this.nodeLibrary = nodeLibrary;
     this.typeRegistry = typeRegistry;
+    this.deferredUpdates = null;
+  }
+
+  /**
+   * Creates a pass that scans a single script. Updates to the global symbol table are applied
+   * immediately if {@code deferredUpdates} is null, and otherwise deferred to that list until the
+   * script's module is committed.
+   */
+  private BuildSymbolTablePass(
+      BuildSymbolTablePass pass, @Nullable List<Runnable> deferredUpdates) {
+    this.fs = pass.fs;
+    this.modulePaths = pass.modulePaths;
+    this.globalSymbolTable = pass.globalSymbolTable;
+    this.nodeLibrary = pass.nodeLibrary;
+    this.typeRegistry = pass.typeRegistry;
+    this.deferredUpdates = deferredUpdates;
   }
 
   @Override
-  public void process(DossierCompiler compiler, Node root) {
+  public Runnable analyze(DossierCompiler compiler, Node root) {
     if (root.isFromExterns() || nodeLibrary.isModulePath(root.getSourceFileName())) {
-      return;
+      return () -> {};
     }
     checkArgument(root.isScript(), "process called with non-script node: %s", root);
 
     Module.Builder module = scanModule(root);
-    SymbolTable table = module == null ? globalSymbolTable : module.getInternalSymbolTable();
-    scan(module, table, root);
+    if (module == null) {
+      // Scripts in the global scope read the global symbol table as they are scanned, so they must
+      // be scanned in order with the updates from every other script.
+      return () -> new BuildSymbolTablePass(this, null).scan(null, globalSymbolTable, root);
+    }
 
-    if (module != null) {
-      Module m = module.build();
+    List<Runnable> updates = new ArrayList<>();
+    new BuildSymbolTablePass(this, updates).scan(module, module.getInternalSymbolTable(), root);
+    Module m = module.build();
+    return () -> {
+      updates.forEach(Runnable::run);
       globalSymbolTable.add(m);
       typeRegistry.addModule(m);
-    }
+    };
   }
 
   @Nullable
@@ -128,6 +153,18 @@ final class BuildSymbolTablePass implements DossierCompilerPass {
         .setInternalSymbolTable(globalSymbolTable.newChildTable(script));
   }
 
+  private void updateGlobalSymbolTable(Runnable update) {
+    if (deferredUpdates == null) {
+      update.run();
+    } else {
+      deferredUpdates.add(update);
+    }
+  }
+
+  private void addGlobalSymbol(Symbol symbol) {
+    updateGlobalSymbolTable(() -> globalSymbolTable.add(symbol));
+  }
+
   private void scan(@Nullable Module.Builder module, SymbolTable table, Node n) {
     switch (n.getToken()) {
       case SCRIPT:
@@ -261,20 +298,18 @@ final class BuildSymbolTablePass implements DossierCompilerPass {
           referenceName = key.getFirstChild().getQualifiedName();
         }
 
-        while (referenceName != null) {
-          Symbol ref = table.getSlot(referenceName);
-          if (ref == null || ref.getReferencedSymbol() == null) {
-            break;
-          }
-          referenceName = ref.getReferencedSymbol();
-        }
-
-        globalSymbolTable.add(
+        Symbol.Builder symbol =
             Symbol.builder(fs, key)
                 .setName(module.getId() + "." + key.getString())
-                .setReferencedSymbol(referenceName)
-                .setJSDocInfo(key.getJSDocInfo())
-                .build());
+                .setJSDocInfo(key.getJSDocInfo());
+
+        // The reference may be an alias defined in another script, so it may only be resolved
+        // once the global symbol table has been updated with every preceding script.
+        String unresolvedName = referenceName;
+        updateGlobalSymbolTable(
+            () ->
+                globalSymbolTable.add(
+                    symbol.setReferencedSymbol(resolveReference(table, unresolvedName)).build()));
       }
     }
   }
@@ -297,7 +332,7 @@ final class BuildSymbolTablePass implements DossierCompilerPass {
       checkState(module != null && module.isEs6());
 
       if (name.isEmpty() && export.getBooleanProp(Node.EXPORT_DEFAULT)) {
-        globalSymbolTable.add(Symbol.builder(fs, n).setName(module.getId() + ".default").build());
+        addGlobalSymbol(Symbol.builder(fs, n).setName(module.getId() + ".default").build());
         if (referencedName != null) {
           module.exportedNamesBuilder().put("default", referencedName);
         }
@@ -315,12 +350,12 @@ final class BuildSymbolTablePass implements DossierCompilerPass {
                 export.getBooleanProp(Node.EXPORT_DEFAULT) ? "default" : baseSymbol.getName(),
                 firstNonNull(referencedName, baseSymbol.getName()));
 
-        globalSymbolTable.add(
+        addGlobalSymbol(
             Symbol.builder(fs, n)
                 .setName(compiledInternalName)
                 .setReferencedSymbol(referencedName)
                 .build());
-        globalSymbolTable.add(
+        addGlobalSymbol(
             Symbol.builder(fs, n)
                 .setName(qualifiedName)
                 .setReferencedSymbol(compiledInternalName)
@@ -341,13 +376,13 @@ final class BuildSymbolTablePass implements DossierCompilerPass {
         }
 
         baseSymbol.setReferencedSymbol(globalName);
-        globalSymbolTable.add(
+        addGlobalSymbol(
             Symbol.builder(fs, n).setName(globalName).setReferencedSymbol(referencedName).build());
 
       } else {
         String internalName = module.getId().getContentsVar(name);
         baseSymbol.setReferencedSymbol(internalName);
-        globalSymbolTable.add(
+        addGlobalSymbol(
             Symbol.builder(fs, n)
                 .setName(internalName)
                 .setReferencedSymbol(referencedName)
@@ -382,17 +417,30 @@ final class BuildSymbolTablePass implements DossierCompilerPass {
 
       // If there is no hidden declaration, just record the symbol in the global table.
       if (reference.equals(name)) {
-        globalSymbolTable.add(symbol.build());
+        addGlobalSymbol(symbol.build());
         return;
       }
 
-      globalSymbolTable.add(symbol.setName(reference).build());
+      addGlobalSymbol(symbol.setName(reference).build());
       symbol.setName(name).setReferencedSymbol(reference);
     }
 
     table.add(symbol.build());
   }
 
+  /** Follows a chain of aliases from the named symbol to the symbol it ultimately references. */
+  @Nullable
+  private static String resolveReference(SymbolTable table, @Nullable String name) {
+    while (name != null) {
+      Symbol ref = table.getSlot(name);
+      if (ref == null || ref.getReferencedSymbol() == null) {
+        break;
+      }
+      name = ref.getReferencedSymbol();
+    }
+    return name;
+  }
+
   private static String baseName(String name) {
     int index = name.lastIndexOf('.');
     return index == -1 ? name : name.substring(index + 1);
@@ -537,7 +585,7 @@ final class BuildSymbolTablePass implements DossierCompilerPass {
     }
 
     String qualifiedExportName = module.getId() + "." + exportedName;
-    globalSymbolTable.add(
+    addGlobalSymbol(
         Symbol.builder(fs, spec)
             .setName(qualifiedExportName)
             .setReferencedSymbol(referenceName)
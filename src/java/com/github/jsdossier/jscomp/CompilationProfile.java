@@ -0,0 +1,34 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier.jscomp;
+
+/** Selects which compiler checks run before documentation is generated. */
+public enum CompilationProfile {
+
+  /**
+   * Runs the full type checker and a broad set of diagnostic checks, reporting their findings as
+   * warnings (or errors in strict mode).
+   */
+  DEFAULT,
+
+  /**
+   * Runs only the passes needed to build the type registry and attach JSDoc to types. Type
+   * inference still runs, but the type checker and diagnostic checks are skipped and their
+   * warnings are not reported. Use this profile when the sources are linted separately.
+   */
+  DOCS_ONLY
+}
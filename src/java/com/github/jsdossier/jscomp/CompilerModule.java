@@ -86,7 +86,8 @@ public final class CompilerModule extends AbstractModule {
       ProvidedSymbolPass providedSymbolPass,
       TypeCollectionPass typeCollectionPass,
       @Modules ImmutableSet<Path> modulePaths,
-      Environment environment) {
+      Environment environment,
+      CompilationProfile profile) {
     CompilerOptions options = new CompilerOptions();
 
     switch (environment) {
@@ -111,7 +112,24 @@ public final class CompilerModule extends AbstractModule {
 
     options.setCodingConvention(new ClosureCodingConvention());
     CompilationLevel.ADVANCED_OPTIMIZATIONS.setOptionsForCompilationLevel(options);
-    CompilationLevel.ADVANCED_OPTIMIZATIONS.setTypeBasedOptimizationOptions(options);
+
+    switch (profile) {
+      case DEFAULT:
+        CompilationLevel.ADVANCED_OPTIMIZATIONS.setTypeBasedOptimizationOptions(options);
+        break;
+
+      case DOCS_ONLY:
+        // Type inference alone populates the type registry and attaches JSDoc to each type.
+        // The type checker, and the diagnostic groups disabled by DossierCommandLineRunner, only
+        // report problems with the code and are skipped.
+        options.setInferTypes(true);
+        options.setCheckTypes(false);
+        options.setCheckSuspiciousCode(false);
+        break;
+
+      default:
+        throw new AssertionError("unexpected compilation profile: " + profile);
+    }
 
     options.setChecksOnly(true);
     options.setContinueAfterErrors(true);
@@ -0,0 +1,43 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier.jscomp;
+
+import com.google.javascript.rhino.Node;
+
+/**
+ * A {@link DossierCompilerPass} that may process each script concurrently with the others. Each
+ * script is first analyzed on its own; the analysis returns a commit that publishes any changes
+ * which affect other scripts (e.g. symbols added to the global symbol table). Commits are run on a
+ * single thread, in input order, only after every script has been analyzed.
+ */
+interface ConcurrentCompilerPass extends DossierCompilerPass {
+
+  /**
+   * Analyzes a single script. This may be called concurrently for different scripts, so it must
+   * not modify any state shared with other scripts, nor read any state that other commits modify.
+   *
+   * @param compiler the compiler.
+   * @param root the script to analyze.
+   * @return the commit to run once every script has been analyzed.
+   */
+  Runnable analyze(DossierCompiler compiler, Node root);
+
+  @Override
+  default void process(DossierCompiler compiler, Node root) {
+    analyze(compiler, root).run();
+  }
+}
@@ -17,8 +17,6 @@ limitations under the License.
 package com.github.jsdossier.jscomp;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.nio.file.Files.newInputStream;
 import static java.util.stream.Collectors.toList;
 
 import com.github.jsdossier.annotations.Externs;
@@ -26,6 +24,7 @@ import com.github.jsdossier.annotations.Input;
 import com.github.jsdossier.annotations.Stderr;
 import com.github.jsdossier.annotations.Stdout;
 import com.github.jsdossier.annotations.StrictMode;
+import com.github.jsdossier.metrics.BuildMetrics;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.inject.Provider;
@@ -39,12 +38,13 @@ import com.google.javascript.jscomp.SourceFile;
 import com.google.javascript.jscomp.WhitelistWarningsGuard;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.PrintStream;
 import java.nio.file.FileSystem;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.logging.Logger;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -55,6 +55,8 @@ import javax.inject.Singleton;
 @Singleton
 public final class DossierCommandLineRunner extends CommandLineRunner implements Callable<Integer> {
 
+  private static final Logger log = Logger.getLogger(DossierCommandLineRunner.class.getName());
+
   private static final ImmutableSet<String> CHECKS =
       ImmutableSet.of(
           "accessControls",
@@ -82,31 +84,38 @@ public final class DossierCommandLineRunner extends CommandLineRunner implements
   private final FileSystem inputFileSystem;
   private final Provider<DossierCompiler> compilerProvider;
   private final Provider<CompilerOptions> optionsProvider;
+  private final BuildMetrics metrics;
 
   @Inject
   DossierCommandLineRunner(
       @StrictMode boolean strictMode,
+      CompilationProfile profile,
       @Stdout PrintStream stdout,
       @Stderr PrintStream stderr,
       @Input FileSystem inputFileSystem,
       @Input ImmutableSet<Path> sources,
       @Externs ImmutableSet<Path> externs,
       Provider<DossierCompiler> compilerProvider,
-      Provider<CompilerOptions> optionsProvider) {
+      Provider<CompilerOptions> optionsProvider,
+      BuildMetrics metrics) {
     super(new String[0], stdout, stderr);
     this.inputFileSystem = inputFileSystem;
     this.compilerProvider = compilerProvider;
     this.optionsProvider = optionsProvider;
+    this.metrics = metrics;
+
+    // The docs-only profile turns every check off, which also skips the passes that only exist to
+    // report them.
+    CheckLevel level;
+    if (profile == CompilationProfile.DOCS_ONLY) {
+      level = CheckLevel.OFF;
+    } else {
+      level = strictMode ? CheckLevel.ERROR : CheckLevel.WARNING;
+    }
 
     getCommandLineConfig()
         .setWarningGuards(
-            CHECKS
-                .stream()
-                .map(
-                    c ->
-                        new HiddenFlagEntry<>(
-                            strictMode ? CheckLevel.ERROR : CheckLevel.WARNING, c))
-                .collect(toList()))
+            CHECKS.stream().map(c -> new HiddenFlagEntry<>(level, c)).collect(toList()))
         .setCodingConvention(new ClosureCodingConvention())
         .setMixedJsSources(
             sources
@@ -151,21 +160,22 @@ public final class DossierCommandLineRunner extends CommandLineRunner implements
       return ImmutableList.of();
     }
 
-    ImmutableList.Builder<SourceFile> inputs = ImmutableList.builder();
+    List<Path> paths = new ArrayList<>(files.size());
     for (FlagEntry<JsSourceType> flagEntry : files) {
       checkArgument(
           flagEntry.getFlag() != JsSourceType.JS_ZIP,
           "Zip file inputs are not supported: %s",
           flagEntry.getValue());
       checkArgument(!"-".equals(flagEntry.getValue()), "Reading from stdin is not supported");
-
-      Path path = inputFileSystem.getPath(flagEntry.getValue());
-      try (InputStream inputStream = newInputStream(path)) {
-        SourceFile file = SourceFile.fromInputStream(path.toString(), inputStream, UTF_8);
-        inputs.add(file);
-      }
+      paths.add(inputFileSystem.getPath(flagEntry.getValue()));
     }
-    return inputs.build();
+
+    SourceFileLoader loader = SourceFileLoader.create();
+    ImmutableList<SourceFile> inputs = loader.load(paths);
+    metrics.recordInputLoad(
+        "sources", loader.getFileCount(), loader.getByteCount(), loader.getElapsed());
+    log.fine("Loaded " + loader);
+    return inputs;
   }
 
   @Override
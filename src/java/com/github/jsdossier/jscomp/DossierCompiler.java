@@ -18,21 +18,33 @@ package com.github.jsdossier.jscomp;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static java.util.stream.Collectors.toList;
 
 import com.github.jsdossier.annotations.Modules;
 import com.github.jsdossier.annotations.Stderr;
 import com.github.jsdossier.jscomp.Annotations.Internal;
+import com.github.jsdossier.metrics.BuildMetrics;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.javascript.jscomp.Compiler;
+import com.google.javascript.jscomp.CompilerInput;
 import com.google.javascript.jscomp.CompilerOptions;
 import com.google.javascript.jscomp.JSModule;
+import com.google.javascript.jscomp.JsAst;
 import com.google.javascript.jscomp.SourceFile;
+import com.google.javascript.rhino.InputId;
+import com.google.javascript.rhino.Node;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.inject.Inject;
 
 /**
@@ -41,22 +53,29 @@ import javax.inject.Inject;
  */
 public final class DossierCompiler extends Compiler {
 
+  /** The number of threads used to run {@link ConcurrentCompilerPass concurrent passes}. */
+  private static final int NUM_PASS_THREADS = Runtime.getRuntime().availableProcessors();
+
   private final ImmutableSet<Path> modulePaths;
   private final ImmutableList<DossierCompilerPass> passes;
   private final NodeLibrary nodeLibrary;
+  private final BuildMetrics metrics;
 
   private boolean hasParsed = false;
+  private boolean hasPruned = false;
 
   @Inject
   DossierCompiler(
       @Stderr PrintStream stream,
       @Modules ImmutableSet<Path> modulePaths,
       @Internal ImmutableList<DossierCompilerPass> passes,
-      NodeLibrary nodeLibrary) {
+      NodeLibrary nodeLibrary,
+      BuildMetrics metrics) {
     super(stream);
     this.modulePaths = modulePaths;
     this.passes = passes;
     this.nodeLibrary = nodeLibrary;
+    this.metrics = metrics;
   }
 
   @Override
@@ -68,8 +87,11 @@ public final class DossierCompiler extends Compiler {
       try {
         externList = concat(externs, nodeLibrary.getExternFiles());
 
+        // Only compile the extern modules that are actually required by the inputs.
         JSModule module = modules.iterator().next();
-        nodeLibrary.getExternModules().forEach(module::add);
+        List<SourceFile> inputs =
+            module.getInputs().stream().map(CompilerInput::getSourceFile).collect(toList());
+        nodeLibrary.getRequiredExternModules(inputs).forEach(module::add);
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
@@ -90,15 +112,109 @@ public final class DossierCompiler extends Compiler {
         getClass());
     hasParsed = true;
 
-    for (DossierCompilerPass pass : passes) {
-      getInputsById()
-          .values()
-          .stream()
-          .map(input -> input.getAstRoot(this))
-          .filter(Objects::nonNull)
-          .forEach(node -> pass.process(this, node));
+    // Inputs are parsed on first access, which must not happen concurrently.
+    List<Node> roots =
+        getInputsById()
+            .values()
+            .stream()
+            .map(input -> input.getAstRoot(this))
+            .filter(Objects::nonNull)
+            .collect(toList());
+
+    ExecutorService executor = Executors.newFixedThreadPool(NUM_PASS_THREADS);
+    try {
+      for (DossierCompilerPass pass : passes) {
+        try (BuildMetrics.Phase phase =
+            metrics.startPhase("pass:" + pass.getClass().getSimpleName())) {
+          if (pass instanceof ConcurrentCompilerPass && roots.size() > 1) {
+            runConcurrently(executor, (ConcurrentCompilerPass) pass, roots);
+          } else {
+            roots.forEach(root -> pass.process(this, root));
+          }
+        }
+      }
+    } finally {
+      executor.shutdownNow();
     }
 
     super.parseForCompilation();
   }
+
+  /**
+   * Analyzes every script concurrently, then runs each script's commit in input order. Commits are
+   * only started once every script has been analyzed, so analysis never observes a partial commit.
+   */
+  private void runConcurrently(
+      ExecutorService executor, ConcurrentCompilerPass pass, List<Node> roots) {
+    List<Future<Runnable>> futures = new ArrayList<>(roots.size());
+    for (Node root : roots) {
+      futures.add(executor.submit(() -> pass.analyze(this, root)));
+    }
+
+    List<Runnable> commits = new ArrayList<>(futures.size());
+    for (Future<Runnable> future : futures) {
+      try {
+        commits.add(future.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while running " + pass.getClass(), e);
+      } catch (ExecutionException e) {
+        throwIfUnchecked(e.getCause());
+        throw new RuntimeException(e.getCause());
+      }
+    }
+    commits.forEach(Runnable::run);
+  }
+
+  /** Returns whether the inputs have been compiled and may still be replaced. */
+  boolean canReplaceScripts() {
+    return hasParsed && !hasPruned;
+  }
+
+  /**
+   * Replaces inputs that were compiled by this instance using the compiler's hot-swap support,
+   * which only re-runs the checks for the replaced scripts. Dossier's own passes are run on each
+   * new script before it is swapped in, so everything previously recorded for the replaced files
+   * must already have been discarded.
+   *
+   * @param files the new versions of the inputs to replace, in the order to replace them.
+   * @throws IllegalArgumentException if a file is not an input.
+   * @throws IllegalStateException if the inputs have not been compiled yet, or have been pruned.
+   * @see Recompiler
+   */
+  void replaceScripts(List<SourceFile> files) {
+    checkState(hasParsed, "inputs must be compiled before they may be replaced");
+    checkState(!hasPruned, "inputs may not be replaced after they have been pruned");
+    for (SourceFile file : files) {
+      checkArgument(
+          getInput(new InputId(file.getName())) != null, "not an input: %s", file.getName());
+
+      JsAst ast = new JsAst(file);
+      Node root = ast.getAstRoot(this);
+      if (root != null) {
+        passes.forEach(pass -> pass.process(this, root));
+      }
+      replaceScript(ast);
+    }
+  }
+
+  /**
+   * Releases the parts of the compiled inputs that are not needed to render documentation: the
+   * bodies of functions that do not contain documented declarations. The source text of each input
+   * is kept, as it is needed to render the source pages. This may only be called after all type
+   * information has been collected, as the pruned inputs can no longer be compiled.
+   *
+   * @return the number of AST nodes removed.
+   */
+  public int pruneInputs() {
+    hasPruned = true;
+    int removed = 0;
+    for (CompilerInput input : getInputsById().values()) {
+      Node root = input.getAstRoot(this);
+      if (root != null) {
+        removed += AstPruner.pruneFunctionBodies(root);
+      }
+    }
+    return removed;
+  }
 }
@@ -17,7 +17,6 @@ limitations under the License.
 package com.github.jsdossier.jscomp;
 
 import com.github.jsdossier.annotations.Input;
-import com.google.javascript.jscomp.NodeTraversal;
 import com.google.javascript.rhino.JSDocInfo.Visibility;
 import com.google.javascript.rhino.Node;
 import java.nio.file.FileSystem;
@@ -25,7 +24,9 @@ import java.nio.file.Path;
 import javax.inject.Inject;
 
 /** A special compiler pass that collects the default visibility settings for each file. */
-final class FileVisibilityPass implements DossierCompilerPass {
+final class FileVisibilityPass implements ConcurrentCompilerPass {
+
+  private static final Runnable NO_OP = () -> {};
 
   private final TypeRegistry typeRegistry;
   private final FileSystem inputFs;
@@ -37,22 +38,18 @@ final class FileVisibilityPass implements DossierCompilerPass {
   }
 
   @Override
-  public void process(DossierCompiler compiler, Node root) {
-    NodeTraversal.traverse(
-        compiler,
-        root,
-        new NodeTraversal.AbstractShallowCallback() {
-          @Override
-          public void visit(NodeTraversal t, Node n, Node parent) {
-            if (n.isScript()) {
-              JsDoc docs = JsDoc.from(n.getJSDocInfo());
-              Visibility visibility = docs.getVisibility();
-              if (visibility != null && visibility != Visibility.INHERITED) {
-                Path path = inputFs.getPath(n.getSourceFileName());
-                typeRegistry.setDefaultVisibility(path, visibility);
-              }
-            }
-          }
-        });
+  public Runnable analyze(DossierCompiler compiler, Node root) {
+    if (!root.isScript()) {
+      return NO_OP;
+    }
+
+    JsDoc docs = JsDoc.from(root.getJSDocInfo());
+    Visibility visibility = docs.getVisibility();
+    if (visibility == null || visibility == Visibility.INHERITED) {
+      return NO_OP;
+    }
+
+    Path path = inputFs.getPath(root.getSourceFileName());
+    return () -> typeRegistry.setDefaultVisibility(path, visibility);
   }
 }
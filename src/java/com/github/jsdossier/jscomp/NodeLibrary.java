@@ -43,6 +43,16 @@ public interface NodeLibrary {
     return ImmutableList.of();
   }
 
+  /**
+   * Returns the modules in this library that are required, directly or transitively, by the given
+   * source files or by this library's {@linkplain #getExternFiles() extern files}. The default
+   * implementation returns every module in this library.
+   */
+  default ImmutableCollection<SourceFile> getRequiredExternModules(
+      Iterable<? extends SourceFile> files) throws IOException {
+    return getExternModules();
+  }
+
   /** Returns whether the provided {@code id} may be used to require a module in this library. */
   default boolean canRequireId(String id) {
     return false;
@@ -20,11 +20,11 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.io.Files.getNameWithoutExtension;
 import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.nio.file.Files.readAllBytes;
 
 import com.github.jsdossier.annotations.ModuleExterns;
 import com.github.jsdossier.annotations.Modules;
 import com.google.auto.value.AutoValue;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableCollection;
@@ -45,9 +45,19 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -62,27 +72,45 @@ final class NodeLibraryImpl implements NodeLibrary {
           + "/resources/externs/node";
   private static final String FILE_NAME_PREFIX = "dossier//node-externs.zip//";
 
+  /**
+   * Every node extern file concatenated into a single resource at build time. Each file is preceded
+   * by a header line with its file name and a line with its length in bytes.
+   */
+  private static final String NODE_EXTERNS_BUNDLE_RESOURCE =
+      NODE_EXTERNS_RESOURCE_DIRECTORY + ".bundle";
+
   private static final Supplier<ExternCollection> NODE_EXTERNS =
       Suppliers.memoize(
           () -> {
-            URI uri = getExternZipUri();
             try {
-              if ("file".equals(uri.getScheme())) {
-                return loadDirectory(Paths.get(uri));
-              } else {
-                log.fine("Loading externs from jar: " + uri);
-                ImmutableMap<String, String> env = ImmutableMap.of();
-                try (FileSystem jarFs = FileSystems.newFileSystem(uri, env)) {
-                  Path directory = jarFs.getPath(NODE_EXTERNS_RESOURCE_DIRECTORY);
-                  verify(Files.isDirectory(directory), "Node externs not found: %s", directory);
-                  return loadDirectory(directory);
-                }
-              }
+              long start = System.nanoTime();
+              ExternCollection externs = loadNodeExterns();
+              log.fine(
+                  String.format(
+                      "Loaded node core library externs in %d ms",
+                      TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+              return externs;
             } catch (IOException e) {
               throw new RuntimeException(e);
             }
           });
 
+  /**
+   * Matches the module ID in a {@code require()} call or ES6 import/export statement. This is a
+   * lexical scan, so it may also match references in comments and strings. Those only cause an
+   * unused extern module to be compiled.
+   */
+  private static final Pattern MODULE_ID_REFERENCE =
+      Pattern.compile("(?:\\brequire\\s*\\(\\s*|\\bfrom\\s*|\\bimport\\s*)(['\"])([^'\"\\s]+)\\1");
+
+  /**
+   * Matches a direct reference to the exports of an extern module, such as {@code
+   * module$exports$events.EventEmitter}, capturing the module's safe name. Extern files refer to
+   * types from other modules this way since they cannot call {@code require()}.
+   */
+  private static final Pattern MODULE_EXPORTS_REFERENCE =
+      Pattern.compile("\\bmodule\\$exports\\$(\\w+)");
+
   private final Supplier<ExternCollection> externs;
 
   @Inject
@@ -105,6 +133,72 @@ final class NodeLibraryImpl implements NodeLibrary {
     return externs.get().getModulesByPath().values();
   }
 
+  @Override
+  public ImmutableCollection<SourceFile> getRequiredExternModules(
+      Iterable<? extends SourceFile> files) throws IOException {
+    ExternCollection collection = externs.get();
+    Map<String, SourceFile> modulesById = new HashMap<>();
+    collection
+        .getModulesByPath()
+        .forEach((path, file) -> modulesById.put(collection.getIdsByPath().get(path), file));
+
+    Set<String> seen = new HashSet<>();
+    Deque<SourceFile> queue = new ArrayDeque<>();
+
+    // The global externs are always compiled, so the modules they reference are always required.
+    for (SourceFile file : collection.getFiles()) {
+      enqueueRequiredModules(file, modulesById, seen, queue);
+    }
+    for (SourceFile file : files) {
+      if (!collection.getModulesByPath().containsKey(file.getName())) {
+        enqueueRequiredModules(file, modulesById, seen, queue);
+      }
+    }
+
+    // The modules required by each extern module are only scanned once that module is required.
+    ImmutableSet.Builder<SourceFile> required = ImmutableSet.builder();
+    while (!queue.isEmpty()) {
+      SourceFile module = queue.remove();
+      required.add(module);
+      enqueueRequiredModules(module, modulesById, seen, queue);
+    }
+    return required.build();
+  }
+
+  private void enqueueRequiredModules(
+      SourceFile file,
+      Map<String, SourceFile> modulesById,
+      Set<String> seen,
+      Deque<SourceFile> queue)
+      throws IOException {
+    String code = file.getCode();
+    Matcher matcher = MODULE_ID_REFERENCE.matcher(code);
+    while (matcher.find()) {
+      String id = matcher.group(2);
+      if (canRequireId(id)) {
+        enqueueModule(toSafeName(id), modulesById, seen, queue);
+      }
+    }
+
+    matcher = MODULE_EXPORTS_REFERENCE.matcher(code);
+    while (matcher.find()) {
+      String safeId = matcher.group(1);
+      if (modulesById.containsKey(safeId)) {
+        enqueueModule(safeId, modulesById, seen, queue);
+      }
+    }
+  }
+
+  private static void enqueueModule(
+      String safeId,
+      Map<String, SourceFile> modulesById,
+      Set<String> seen,
+      Deque<SourceFile> queue) {
+    if (seen.add(safeId)) {
+      queue.add(modulesById.get(safeId));
+    }
+  }
+
   @Override
   public boolean canRequireId(String id) {
     return externs.get().getRequireIds().contains(id);
@@ -131,10 +225,79 @@ final class NodeLibraryImpl implements NodeLibrary {
     return name.replace('-', '_');
   }
 
-  private static SourceFile loadSource(Path path, boolean isInternal) throws IOException {
-    String sourceName = isInternal ? (FILE_NAME_PREFIX + path.getFileName()) : path.toString();
-    String content = new String(readAllBytes(path), UTF_8);
-    return SourceFile.fromCode(sourceName, content);
+  private static String getInternalName(Path path) {
+    return FILE_NAME_PREFIX + path.getFileName();
+  }
+
+  /**
+   * Loads the node core library externs from the bundle generated at build time, falling back to
+   * reading each file from the extern resource directory if the bundle is not on the classpath.
+   */
+  private static ExternCollection loadNodeExterns() throws IOException {
+    URL bundle = NodeLibraryImpl.class.getResource(NODE_EXTERNS_BUNDLE_RESOURCE);
+    if (bundle != null) {
+      log.fine("Loading node core library externs from " + bundle);
+      return loadBundle(Resources.toByteArray(bundle));
+    }
+    return loadExternDirectory();
+  }
+
+  /**
+   * Parses a node externs bundle. The bundle is read in full up front, so loading it does not
+   * require opening the jar as a file system or walking its directory entries.
+   */
+  @VisibleForTesting
+  static ExternCollection loadBundle(byte[] bundle) {
+    ExternCollection.Builder builder = ExternCollection.builder();
+    int offset = 0;
+    while (offset < bundle.length) {
+      int nameEnd = indexOfNewline(bundle, offset);
+      int lengthEnd = indexOfNewline(bundle, nameEnd + 1);
+      String name = new String(bundle, offset, nameEnd - offset, UTF_8);
+      int length =
+          Integer.parseInt(new String(bundle, nameEnd + 1, lengthEnd - nameEnd - 1, UTF_8));
+      checkArgument(
+          length >= 0 && length <= bundle.length - lengthEnd - 1,
+          "Invalid length for %s in node externs bundle: %s",
+          name,
+          length);
+
+      String code = new String(bundle, lengthEnd + 1, length, UTF_8);
+      SourceFile file = SourceFile.fromCode(FILE_NAME_PREFIX + name, code);
+      String id = getNameWithoutExtension(name);
+      if ("globals".equals(id)) {
+        builder.filesBuilder().add(file);
+      } else {
+        builder.add(id, file);
+      }
+      offset = lengthEnd + 1 + length;
+    }
+    return builder.build();
+  }
+
+  private static int indexOfNewline(byte[] bundle, int from) {
+    for (int i = from; i < bundle.length; i++) {
+      if (bundle[i] == '\n') {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Truncated node externs bundle at offset " + from);
+  }
+
+  /** Loads the node core library externs by reading each file in the extern resource directory. */
+  @VisibleForTesting
+  static ExternCollection loadExternDirectory() throws IOException {
+    URI uri = getExternZipUri();
+    if ("file".equals(uri.getScheme())) {
+      return loadDirectory(Paths.get(uri));
+    }
+    log.fine("Loading externs from jar: " + uri);
+    ImmutableMap<String, String> env = ImmutableMap.of();
+    try (FileSystem jarFs = FileSystems.newFileSystem(uri, env)) {
+      Path directory = jarFs.getPath(NODE_EXTERNS_RESOURCE_DIRECTORY);
+      verify(Files.isDirectory(directory), "Node externs not found: %s", directory);
+      return loadDirectory(directory);
+    }
   }
 
   private static URI getExternZipUri() {
@@ -164,6 +327,8 @@ final class NodeLibraryImpl implements NodeLibrary {
     ExternCollection.Builder builder = ExternCollection.builder();
     Map<String, String> pathsById = new HashMap<>();
 
+    SourceFileLoader loader = SourceFileLoader.create();
+    Iterator<SourceFile> files = loader.load(paths.asList()).iterator();
     for (Path path : paths) {
       String id = getNameWithoutExtension(path.getFileName().toString());
       if (pathsById.containsKey(id)) {
@@ -176,16 +341,17 @@ final class NodeLibraryImpl implements NodeLibrary {
                 + pathsById.get(id));
       }
       pathsById.put(id, path.toString());
-      builder.add(id, loadSource(path, false));
+      builder.add(id, files.next());
     }
+    log.fine("Loaded user extern modules: " + loader);
     return builder.build();
   }
 
   private static ExternCollection loadDirectory(Path directory) throws IOException {
     log.fine("Loading node core library externs from " + directory);
 
-    final ExternCollection.Builder builder = ExternCollection.builder();
-
+    List<Path> globals = new ArrayList<>();
+    List<Path> modules = new ArrayList<>();
     Files.walkFileTree(
         directory,
         new FileVisitor<Path>() {
@@ -195,20 +361,13 @@ final class NodeLibraryImpl implements NodeLibrary {
           }
 
           @Override
-          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
-              throws IOException {
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
             if (file.getFileName().toString().endsWith(".js")) {
               String id = getNameWithoutExtension(file.getFileName().toString());
               if ("globals".equals(id)) {
-                builder
-                    .filesBuilder()
-                    .add(
-                        SourceFile.fromInputStream(
-                            FILE_NAME_PREFIX + file.getFileName(),
-                            Files.newInputStream(file),
-                            UTF_8));
+                globals.add(file);
               } else {
-                builder.add(id, loadSource(file, true));
+                modules.add(file);
               }
             }
             return FileVisitResult.CONTINUE;
@@ -224,6 +383,16 @@ final class NodeLibraryImpl implements NodeLibrary {
             return FileVisitResult.CONTINUE;
           }
         });
+
+    SourceFileLoader loader = SourceFileLoader.create();
+    ExternCollection.Builder builder = ExternCollection.builder();
+    builder.filesBuilder().addAll(loader.load(globals, NodeLibraryImpl::getInternalName));
+
+    Iterator<SourceFile> files = loader.load(modules, NodeLibraryImpl::getInternalName).iterator();
+    for (Path module : modules) {
+      builder.add(getNameWithoutExtension(module.getFileName().toString()), files.next());
+    }
+    log.fine("Loaded node core library externs: " + loader);
     return builder.build();
   }
 
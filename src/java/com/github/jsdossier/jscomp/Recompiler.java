@@ -0,0 +1,142 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier.jscomp;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.github.jsdossier.annotations.Global;
+import com.github.jsdossier.annotations.Input;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableSet;
+import com.google.javascript.jscomp.CompilerInput;
+import com.google.javascript.jscomp.SourceFile;
+import com.google.javascript.rhino.InputId;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import javax.inject.Inject;
+
+/**
+ * Recompiles changed inputs in place, without recompiling the rest. Each changed file, along with
+ * every file that defines a type depending on a type from a changed file, is replaced using the
+ * compiler's hot-swap support, and only the symbols and types recorded for those files are
+ * collected again.
+ *
+ * <p>Inputs may only be recompiled after a successful compilation, and before the inputs are
+ * pruned. Inputs can not be added or removed; a full build is required for these changes, and
+ * whenever recompiling fails. Symbols declared by a {@code goog.provide} statement that was removed
+ * remain recorded until the next full build.
+ *
+ * <p>This is used by {@code --watch} to rebuild the documentation after existing inputs change.
+ */
+public final class Recompiler {
+
+  private static final Logger log = Logger.getLogger(Recompiler.class.getName());
+
+  private final DossierCompiler compiler;
+  private final TypeRegistry typeRegistry;
+  private final SymbolTable symbolTable;
+  private final ProvidedSymbolPass providedSymbolPass;
+  private final TypeCollectionPass typeCollectionPass;
+  private final FileSystem inputFs;
+
+  @Inject
+  Recompiler(
+      DossierCompiler compiler,
+      TypeRegistry typeRegistry,
+      @Global SymbolTable symbolTable,
+      ProvidedSymbolPass providedSymbolPass,
+      TypeCollectionPass typeCollectionPass,
+      @Input FileSystem inputFs) {
+    this.compiler = compiler;
+    this.typeRegistry = typeRegistry;
+    this.symbolTable = symbolTable;
+    this.providedSymbolPass = providedSymbolPass;
+    this.typeCollectionPass = typeCollectionPass;
+    this.inputFs = inputFs;
+  }
+
+  /**
+   * Recompiles the given inputs and updates the type registry, including the type relationships,
+   * for the files that were recompiled.
+   *
+   * @param files the new versions of the changed inputs.
+   * @return the files that were recompiled: the given files and every file with a type that
+   *     depended on one of their types.
+   * @throws IllegalArgumentException if a file is not an input.
+   * @throws IllegalStateException if the inputs can not be recompiled, or the compiler reported an
+   *     error while recompiling them.
+   */
+  public ImmutableSet<Path> recompile(Collection<SourceFile> files) {
+    checkState(
+        compiler.canReplaceScripts(),
+        "inputs may only be recompiled after they are compiled and before they are pruned");
+    Stopwatch stopwatch = Stopwatch.createStarted();
+
+    Map<Path, SourceFile> changed = new LinkedHashMap<>();
+    for (SourceFile file : files) {
+      checkArgument(
+          compiler.getInput(new InputId(file.getName())) != null,
+          "not an input: %s",
+          file.getName());
+      changed.put(inputFs.getPath(file.getName()), file);
+    }
+
+    ImmutableSet<Path> invalidated = typeRegistry.invalidate(changed.keySet());
+    List<SourceFile> replacements = new ArrayList<>(invalidated.size());
+    for (Path path : invalidated) {
+      symbolTable.removeFile(path);
+
+      SourceFile file = changed.get(path);
+      if (file == null) {
+        CompilerInput input = compiler.getInput(new InputId(path.toString()));
+        checkState(input != null, "no input for dependent file: %s", path);
+        file = input.getSourceFile();
+      }
+      replacements.add(file);
+    }
+
+    compiler.replaceScripts(replacements);
+    checkState(
+        compiler.getErrorCount() == 0,
+        "recompiling failed with %s error(s); a full build is required",
+        compiler.getErrorCount());
+
+    for (SourceFile file : replacements) {
+      providedSymbolPass.process(
+          null, compiler.getInput(new InputId(file.getName())).getAstRoot(compiler));
+    }
+    typeCollectionPass.collectTypes(invalidated);
+    typeRegistry.computeTypeRelationships(compiler.getTopScope(), compiler.getTypeRegistry());
+    typeRegistry.flattenAliases();
+
+    log.info(
+        String.format(
+            "Recompiled %d changed and %d dependent file(s) in %d ms",
+            changed.size(),
+            invalidated.size() - changed.size(),
+            stopwatch.elapsed(TimeUnit.MILLISECONDS)));
+    return invalidated;
+  }
+}
@@ -17,6 +17,8 @@ limitations under the License.
 package com.github.jsdossier.jscomp;
 
 import com.google.auto.value.AutoValue;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.javascript.rhino.JSDocInfo;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.StaticRef;
@@ -31,6 +33,12 @@ import javax.annotation.Nullable;
 @AutoValue
 public abstract class Symbol implements StaticSlot, StaticRef {
 
+  /**
+   * Interns symbol names. The same names are recorded by many symbols (e.g. as the referenced
+   * symbol of each alias) and are often looked up with the interned instance.
+   */
+  private static final Interner<String> NAMES = Interners.newWeakInterner();
+
   @Nullable private SymbolTable table;
 
   Symbol() {}
@@ -180,6 +188,15 @@ public abstract class Symbol implements StaticSlot, StaticRef {
 
     public abstract Builder setModuleExports(boolean exports);
 
-    public abstract Symbol build();
+    abstract Symbol autoBuild();
+
+    public Symbol build() {
+      setName(NAMES.intern(getName()));
+      String referencedSymbol = getReferencedSymbol();
+      if (referencedSymbol != null) {
+        setReferencedSymbol(NAMES.intern(referencedSymbol));
+      }
+      return autoBuild();
+    }
   }
 }
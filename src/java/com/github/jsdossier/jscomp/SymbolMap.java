@@ -0,0 +1,183 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier.jscomp;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+/**
+ * A compact map of symbols, keyed by name, for a single {@link SymbolTable}. Symbols are stored in
+ * a single open-addressed array using linear probing, so each entry costs one array slot instead
+ * of a hash map entry, and the symbol's own name serves as its key. Most tables hold a handful of
+ * symbols, so the array is only allocated once the first symbol is added.
+ *
+ * <p>Lookups take a hash precomputed with {@link #hash(String)}, so a name resolved against a
+ * chain of tables only needs to be hashed once. This class is not thread-safe.
+ */
+final class SymbolMap {
+
+  private static final Symbol[] EMPTY = new Symbol[0];
+  private static final int MIN_CAPACITY = 4;
+
+  private Symbol[] slots = EMPTY;
+  private int size;
+
+  /** Computes the hash used to look up a name. */
+  static int hash(String name) {
+    int h = name.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  /** Returns the number of symbols in this map. */
+  int size() {
+    return size;
+  }
+
+  /** Returns the number of slots allocated for this map. */
+  int capacity() {
+    return slots.length;
+  }
+
+  /** Returns the symbol with the given name and {@link #hash(String) hash}, if any. */
+  @Nullable
+  Symbol get(String name, int hash) {
+    if (size == 0) {
+      return null;
+    }
+    int mask = slots.length - 1;
+    for (int i = hash & mask; ; i = (i + 1) & mask) {
+      Symbol symbol = slots[i];
+      if (symbol == null) {
+        return null;
+      }
+      String key = symbol.getName();
+      // Names are interned, so most matches are found by identity.
+      if (key == name || key.equals(name)) {
+        return symbol;
+      }
+    }
+  }
+
+  /** Adds a symbol, replacing any symbol with the same name. */
+  void put(Symbol symbol) {
+    if ((size + 1) * 4 > slots.length * 3) {
+      resize(Math.max(MIN_CAPACITY, slots.length * 2));
+    }
+    if (insert(slots, symbol)) {
+      size++;
+    }
+  }
+
+  /** Removes every symbol that matches the given predicate. */
+  void removeIf(Predicate<? super Symbol> predicate) {
+    List<Symbol> retained = new ArrayList<>(size);
+    for (Symbol symbol : slots) {
+      if (symbol != null && !predicate.test(symbol)) {
+        retained.add(symbol);
+      }
+    }
+    if (retained.size() == size) {
+      return;
+    }
+
+    int capacity = MIN_CAPACITY;
+    while (retained.size() * 4 > capacity * 3) {
+      capacity *= 2;
+    }
+    slots = retained.isEmpty() ? EMPTY : new Symbol[capacity];
+    size = retained.size();
+    retained.forEach(symbol -> insert(slots, symbol));
+  }
+
+  /** Returns an unmodifiable view of the symbols in this map. */
+  Collection<Symbol> values() {
+    return new AbstractCollection<Symbol>() {
+      @Override
+      public Iterator<Symbol> iterator() {
+        return new SlotIterator(slots);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  private void resize(int capacity) {
+    Symbol[] newSlots = new Symbol[capacity];
+    for (Symbol symbol : slots) {
+      if (symbol != null) {
+        insert(newSlots, symbol);
+      }
+    }
+    slots = newSlots;
+  }
+
+  /** Inserts a symbol, returning whether it was added rather than replacing another symbol. */
+  private static boolean insert(Symbol[] slots, Symbol symbol) {
+    String name = symbol.getName();
+    int mask = slots.length - 1;
+    for (int i = hash(name) & mask; ; i = (i + 1) & mask) {
+      Symbol existing = slots[i];
+      if (existing == null) {
+        slots[i] = symbol;
+        return true;
+      } else if (existing.getName().equals(name)) {
+        slots[i] = symbol;
+        return false;
+      }
+    }
+  }
+
+  private static final class SlotIterator implements Iterator<Symbol> {
+    private final Symbol[] slots;
+    private int next;
+
+    private SlotIterator(Symbol[] slots) {
+      this.slots = slots;
+      advance();
+    }
+
+    private void advance() {
+      while (next < slots.length && slots[next] == null) {
+        next++;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < slots.length;
+    }
+
+    @Override
+    public Symbol next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Symbol symbol = slots[next++];
+      advance();
+      return symbol;
+    }
+  }
+}
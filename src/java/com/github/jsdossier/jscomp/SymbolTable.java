@@ -32,11 +32,14 @@ import com.google.common.collect.Range;
 import com.google.javascript.rhino.Node;
 import com.google.javascript.rhino.StaticScope;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.RandomAccess;
+import java.util.function.BiFunction;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nullable;
@@ -49,6 +52,24 @@ public final class SymbolTable implements StaticScope {
 
   private static final Logger log = Logger.getLogger(SymbolTable.class.getName());
 
+  // Shallow object sizes used to estimate memory usage. These follow the layout used by a 64-bit
+  // HotSpot JVM with compressed references, the default for heaps under 32 GB, and agree with the
+  // sizes reported by JOL: objects have a 12 byte header, arrays a 16 byte header, references take
+  // 4 bytes, and every object is padded to a multiple of 8 bytes.
+  private static final int REFERENCE_BYTES = 4;
+  private static final int ARRAY_HEADER_BYTES = 16;
+
+  // A table, with 11 references (56 bytes), and its symbol map, with a reference and an int (24).
+  private static final int TABLE_BYTES = 80;
+
+  // A table's child table lock, a bare object (16 bytes), and its list of child tables, an
+  // ArrayList with two ints and a reference to its elements (24). A list that has never had an
+  // element added shares an empty array.
+  private static final int CHILD_TABLES_BYTES = 40;
+
+  // A symbol, with 7 references and 3 booleans.
+  private static final int SYMBOL_BYTES = 48;
+
   @Nullable private final SymbolTable parent;
 
   @Nullable private final Node root;
@@ -58,8 +79,14 @@ public final class SymbolTable implements StaticScope {
   private final Map<String, Module> closureModulesById;
   private final Map<Node, Module> modulesByRoot;
   private final ListMultimap<String, ScopedRegion> regions;
+  private final Object childTablesLock = new Object();
+  private final List<SymbolTable> childTables = new ArrayList<>();
+
+  private final SymbolMap symbols = new SymbolMap();
 
-  private final Map<String, Symbol> symbols = new HashMap<>();
+  // Maps the name of each symbol in this table that is an alias to the fully resolved name. Null
+  // until the alias chains have been flattened, and whenever symbols have changed since.
+  @Nullable private volatile ImmutableMap<String, String> resolvedAliases;
 
   private SymbolTable(@Nullable SymbolTable parent, @Nullable Node root) {
     checkArgument(
@@ -90,7 +117,11 @@ public final class SymbolTable implements StaticScope {
 
   SymbolTable newChildTable(Node root) {
     checkState(getParentScope() == null, "only global symbol table may create child tables");
-    return new SymbolTable(this, root);
+    SymbolTable table = new SymbolTable(this, root);
+    synchronized (childTablesLock) {
+      childTables.add(table);
+    }
+    return table;
   }
 
   SymbolTable newGoogScopeTable(Node root) {
@@ -151,8 +182,9 @@ public final class SymbolTable implements StaticScope {
   @Override
   @Nullable
   public Symbol getSlot(String name) {
-    for (SymbolTable table = this; table != null; table = table.getParentScope()) {
-      Symbol symbol = table.getOwnSlot(name);
+    int hash = SymbolMap.hash(name);
+    for (SymbolTable table = this; table != null; table = table.parent) {
+      Symbol symbol = table.symbols.get(name, hash);
       if (symbol != null) {
         return symbol;
       }
@@ -163,20 +195,22 @@ public final class SymbolTable implements StaticScope {
   @Override
   @Nullable
   public Symbol getOwnSlot(String name) {
-    return symbols.get(name);
+    return symbols.get(name, SymbolMap.hash(name));
   }
 
   void add(Symbol symbol) {
-    Symbol prev = symbols.get(symbol.getName());
+    clearResolvedAliases();
+    Symbol prev = getOwnSlot(symbol.getName());
     if (prev == null) {
-      log.info("recording " + symbol);
       symbol.setScope(this);
-      symbols.put(symbol.getName(), symbol);
+      symbols.put(symbol);
 
     } else if (prev.isGoogProvideOnly()
         && !symbol.isGoogProvide()
         && prev.getFile().equals(symbol.getFile())) {
-      log.info("updating " + symbol + " for non-provide");
+      if (log.isLoggable(Level.FINE)) {
+        log.fine("updating " + symbol + " for non-provide");
+      }
       symbol =
           prev.toBuilder()
               .setGoogProvideOnly(false)
@@ -184,7 +218,7 @@ public final class SymbolTable implements StaticScope {
               .setPosition(symbol.getPosition())
               .build();
       symbol.setScope(this);
-      symbols.put(symbol.getName(), symbol);
+      symbols.put(symbol);
 
     } else {
       // Don't log an error for stuff like:
@@ -219,8 +253,9 @@ public final class SymbolTable implements StaticScope {
 
   void replace(Symbol symbol) {
     checkState(getParentScope() == null, "may only replace symbols in global symbol table");
+    clearResolvedAliases();
     symbol.setScope(this);
-    symbols.put(symbol.getName(), symbol);
+    symbols.put(symbol);
   }
 
   void add(Module module) {
@@ -235,6 +270,101 @@ public final class SymbolTable implements StaticScope {
     add(Symbol.forExports(module));
   }
 
+  /**
+   * Removes the module, scoped regions, and global symbols recorded for the given file so the file
+   * may be scanned again after it has been recompiled.
+   */
+  void removeFile(Path path) {
+    checkState(parent == null, "may only remove files from the global symbol table");
+    clearResolvedAliases();
+    Module module = modulesByPath.remove(path);
+    if (module != null) {
+      modulesById.remove(module.getId().getCompiledName());
+      modulesByRoot.remove(module.getInternalSymbolTable().getRootNode());
+      if (module.isClosure()) {
+        closureModulesById.remove(module.getId().getOriginalName());
+      }
+    }
+    regions.removeAll(path.toString());
+    symbols.removeIf(symbol -> path.equals(symbol.getFile()));
+    synchronized (childTablesLock) {
+      childTables.removeIf(table -> path.toString().equals(table.root.getSourceFileName()));
+    }
+  }
+
+  /**
+   * Flattens the alias chains for the symbols in this table and, for the global table, every table
+   * created from it.
+   *
+   * @param resolver resolves a name in the given table by walking its alias chain, returning null
+   *     if the name cannot be resolved.
+   */
+  void flattenAliases(BiFunction<SymbolTable, String, String> resolver) {
+    checkState(parent == null, "may only flatten aliases from the global symbol table");
+    List<SymbolTable> tables;
+    synchronized (childTablesLock) {
+      tables = new ArrayList<>(childTables.size() + 1);
+      tables.add(this);
+      tables.addAll(childTables);
+    }
+
+    // Resolve every table before publishing any of them, as the resolver walks the tables' symbols.
+    List<ImmutableMap<String, String>> resolved = new ArrayList<>(tables.size());
+    for (SymbolTable table : tables) {
+      ImmutableMap.Builder<String, String> aliases = ImmutableMap.builder();
+      for (Symbol symbol : table.symbols.values()) {
+        if (symbol.getReferencedSymbol() == null) {
+          continue;
+        }
+        String name = resolver.apply(table, symbol.getName());
+        if (name != null && !name.equals(symbol.getName())) {
+          aliases.put(symbol.getName(), name);
+        }
+      }
+      resolved.add(aliases.build());
+    }
+    for (int i = 0; i < tables.size(); i++) {
+      tables.get(i).resolvedAliases = resolved.get(i);
+    }
+  }
+
+  /** Returns whether the alias chains for this table and its parent have been flattened. */
+  boolean hasResolvedAliases() {
+    return resolvedAliases != null && (parent == null || parent.resolvedAliases != null);
+  }
+
+  /**
+   * Returns the fully resolved name for a symbol visible from this table, using the flattened
+   * alias chains. A symbol that is not an alias resolves to its own name. A symbol defined in a
+   * parent table is resolved in the scope of the parent.
+   *
+   * @return the resolved name, or null if there is no such symbol.
+   */
+  @Nullable
+  String getResolvedAlias(String name) {
+    int hash = SymbolMap.hash(name);
+    for (SymbolTable table = this; table != null; table = table.parent) {
+      if (table.symbols.get(name, hash) != null) {
+        ImmutableMap<String, String> aliases = table.resolvedAliases;
+        checkState(aliases != null, "aliases have not been flattened");
+        return aliases.getOrDefault(name, name);
+      }
+    }
+    return null;
+  }
+
+  private void clearResolvedAliases() {
+    if (resolvedAliases == null) {
+      return;
+    }
+    resolvedAliases = null;
+    if (parent == null) {
+      synchronized (childTablesLock) {
+        childTables.forEach(table -> table.resolvedAliases = null);
+      }
+    }
+  }
+
   @Nullable
   @CheckReturnValue
   public Module getClosureModuleById(String id) {
@@ -271,11 +401,56 @@ public final class SymbolTable implements StaticScope {
     return unmodifiableCollection(symbols.values());
   }
 
+  /**
+   * Returns statistics on the memory used by this table and, for the global table, every table
+   * created from it. The estimate covers the tables and their symbols, but not the AST nodes, JSDoc
+   * or names the symbols refer to, which are retained by the compiler anyway.
+   */
+  public MemoryStats getMemoryStats() {
+    int tableCount = 1;
+    int symbolCount = symbols.size();
+    long bytes = estimateBytes(this);
+    synchronized (childTablesLock) {
+      if (!childTables.isEmpty()) {
+        bytes += ARRAY_HEADER_BYTES + (long) childTables.size() * REFERENCE_BYTES;
+      }
+      for (SymbolTable table : childTables) {
+        tableCount++;
+        symbolCount += table.symbols.size();
+        bytes += estimateBytes(table);
+      }
+    }
+    return new AutoValue_SymbolTable_MemoryStats(symbolCount, tableCount, bytes);
+  }
+
+  private static long estimateBytes(SymbolTable table) {
+    return TABLE_BYTES
+        + CHILD_TABLES_BYTES
+        + ARRAY_HEADER_BYTES
+        + (long) table.symbols.capacity() * REFERENCE_BYTES
+        + (long) table.symbols.size() * SYMBOL_BYTES;
+  }
+
   /** Returns whether this table contains symbols for a {@code goog.scope()} block. */
   boolean isGoogScope() {
     return isGoogScopeCall(root);
   }
 
+  /** Statistics on the memory used by symbol tables. */
+  @AutoValue
+  public abstract static class MemoryStats {
+    MemoryStats() {}
+
+    /** Returns the number of symbols recorded. */
+    public abstract int getSymbolCount();
+
+    /** Returns the number of symbol tables. */
+    public abstract int getTableCount();
+
+    /** Returns the estimated number of bytes used by the tables and their symbols. */
+    public abstract long getEstimatedBytes();
+  }
+
   /** Defines a scope region in source code that has its own symbol table. */
   @AutoValue
   abstract static class ScopedRegion {
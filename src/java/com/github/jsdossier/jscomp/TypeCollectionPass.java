@@ -91,11 +91,25 @@ public final class TypeCollectionPass implements CompilerPass {
 
   @Override
   public void process(Node externsRoot, Node root) {
+    collectTypes(externsRoot, path -> true);
+  }
+
+  /**
+   * Collects the types defined in the given files after they have been recompiled. The types
+   * defined in every other file must still be registered, and are left as they are.
+   *
+   * @see TypeRegistry#invalidate(Set)
+   */
+  void collectTypes(Set<Path> files) {
+    collectTypes(compiler.getRoot().getFirstChild(), files::contains);
+  }
+
+  private void collectTypes(Node externsRoot, Predicate<Path> fileFilter) {
     if (compiler.getErrorCount() > 0) {
       return;
     }
 
-    new TypeCollector(externsRoot).collectTypes(compiler.getTopScope());
+    new TypeCollector(externsRoot, fileFilter).collectTypes(compiler.getTopScope());
 
     // Check for known modules that did not register as a type. These are modules that import
     // others, but have no exports of their own.
@@ -250,10 +264,12 @@ public final class TypeCollectionPass implements CompilerPass {
   private final class TypeCollector {
 
     private final Node externsRoot;
+    private final Predicate<Path> fileFilter;
     private final Set<JSType> externTypes = new HashSet<>();
 
-    private TypeCollector(Node externsRoot) {
+    private TypeCollector(Node externsRoot, Predicate<Path> fileFilter) {
       this.externsRoot = externsRoot;
+      this.fileFilter = fileFilter;
     }
 
     private boolean isExtern(Node node) {
@@ -661,6 +677,10 @@ public final class TypeCollectionPass implements CompilerPass {
     }
 
     private void recordType(NominalType type) {
+      if (!fileFilter.test(type.getSourceFile())) {
+        return;
+      }
+
       if (externTypes.contains(type.getType()) && !type.getJsDoc().isTypedef()) {
         logfmt("Skipping extern alias: %s", type.getName());
         return;
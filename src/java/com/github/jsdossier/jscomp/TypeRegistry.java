@@ -25,7 +25,10 @@ import static com.google.common.collect.Multimaps.filterKeys;
 
 import com.github.jsdossier.annotations.Global;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.MultimapBuilder;
@@ -41,17 +44,20 @@ import com.google.javascript.rhino.jstype.ObjectType;
 import com.google.javascript.rhino.jstype.StaticTypedScope;
 import com.google.javascript.rhino.jstype.TemplateType;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -66,6 +72,7 @@ public final class TypeRegistry {
 
   private final Map<Module.Id, Module> modulesById = new HashMap<>();
   private final Map<Path, Module> modulesByPath = new HashMap<>();
+  private final Map<String, Module> modulesByCompiledName = new HashMap<>();
 
   private final Map<Path, JSDocInfo.Visibility> defaultVisibilities = new HashMap<>();
   private final Multimap<Path, AliasRegion> aliasRegions =
@@ -90,6 +97,15 @@ public final class TypeRegistry {
   private final ListMultimap<FunctionType, JSType> typeHierarchy =
       MultimapBuilder.hashKeys().arrayListValues().build();
 
+  private volatile ImmutableMap<FunctionType, ImmutableList<JSType>> assignableTypes =
+      ImmutableMap.of();
+
+  @Nullable private volatile EquivalenceIndex equivalenceIndex;
+  private final LongAdder exactLookupHits = new LongAdder();
+  private final LongAdder equivalentLookupHits = new LongAdder();
+  private final LongAdder lookupMisses = new LongAdder();
+  private volatile int generation;
+
   private final SymbolTable symbolTable;
 
   @Inject
@@ -104,6 +120,7 @@ public final class TypeRegistry {
   /** Records a region of a file that defines variable aliases. */
   public void addAliasRegion(AliasRegion region) {
     aliasRegions.put(region.getPath(), region);
+    generation++;
   }
 
   /** Returns the alias regions defined for the file with the given path. */
@@ -119,6 +136,7 @@ public final class TypeRegistry {
    * @param jsRegistry The JS registry to use when resolving aliases.
    */
   public void collectModuleContentAliases(JSTypeRegistry jsRegistry) {
+    generation++;
     for (Module module : getAllModules()) {
       if (module.getId().getType() == Module.Type.ES6) {
         continue;
@@ -161,13 +179,49 @@ public final class TypeRegistry {
   @Nullable
   @CheckReturnValue
   String resolveAlias(SymbolTable table, String name) {
-    String resolved = resolveAlias(table, name, new HashSet<>());
+    String resolved =
+        table.hasResolvedAliases()
+            ? resolveFlattenedAlias(table, name)
+            : resolveAlias(table, name, new HashSet<>());
     if (resolved != null && !name.equals(resolved)) {
       return resolved;
     }
     return null;
   }
 
+  /**
+   * Flattens the alias chains recorded in every alias region and symbol table, so each alias may be
+   * resolved with a single lookup. This should be called once compilation has finished. The tables
+   * are discarded if aliases or symbols are added or removed afterwards, in which case aliases are
+   * resolved by walking their chains until this method is called again.
+   */
+  public void flattenAliases() {
+    for (AliasRegion region : aliasRegions.values()) {
+      region.flatten();
+    }
+    symbolTable.flattenAliases((table, name) -> resolveAlias(table, name, new HashSet<>()));
+  }
+
+  /**
+   * Resolves a name using the flattened alias tables. A symbol defined in a parent table is
+   * resolved in the scope of that table.
+   */
+  @Nullable
+  @CheckReturnValue
+  private String resolveFlattenedAlias(SymbolTable table, String name) {
+    String resolved = table.getResolvedAlias(name);
+    if (resolved == null) {
+      int index = name.indexOf('.');
+      if (index > 0) {
+        String base = table.getResolvedAlias(name.substring(0, index));
+        if (base != null) {
+          return base + name.substring(index);
+        }
+      }
+    }
+    return resolved;
+  }
+
   @Nullable
   @CheckReturnValue
   private String resolveAlias(SymbolTable table, String name, Set<String> seen) {
@@ -215,20 +269,13 @@ public final class TypeRegistry {
     }
     modulesById.put(module.getId(), module);
     modulesByPath.put(module.getId().getPath(), module);
+    modulesByCompiledName.put(module.getId().getCompiledName(), module);
     addAliasRegion(module.getAliases());
   }
 
   /** Returns whether there is a module registered with the given ID. */
   public boolean isModule(String id) {
-    return findModule(id).isPresent();
-  }
-
-  private Optional<Map.Entry<Module.Id, Module>> findModule(String id) {
-    return modulesById
-        .entrySet()
-        .stream()
-        .filter(e -> e.getKey().getCompiledName().equals(id))
-        .findFirst();
+    return modulesByCompiledName.containsKey(id);
   }
 
   /** Returns whether the given path defines a module. */
@@ -252,9 +299,9 @@ public final class TypeRegistry {
    * @throws IllegalArgumentException if there is no such module.
    */
   public Module getModule(String id) {
-    return findModule(id)
-        .orElseThrow(() -> new IllegalArgumentException("no such module: " + id))
-        .getValue();
+    Module module = modulesByCompiledName.get(id);
+    checkArgument(module != null, "no such module: %s", id);
+    return module;
   }
 
   /**
@@ -308,6 +355,8 @@ public final class TypeRegistry {
         type.getName());
     typesByName.put(type.getName(), type);
     typesByJsType.put(type.getType(), type);
+    equivalenceIndex = null;
+    generation++;
 
     int index = type.getName().lastIndexOf('.');
     if (index != -1) {
@@ -357,12 +406,61 @@ public final class TypeRegistry {
   /**
    * Finds all nominal types whose underlying JSType is <em>equivalent</em> to the given type. This
    * stands in contrast to {@link #getTypes(JSType)}, which returns the nominal types with the exact
-   * JSType.
+   * JSType. The types with the exact JSType are returned first.
+   *
+   * <p>Once the type relationships have been computed, candidates are found using an index of the
+   * registered types, so only types that may be equivalent are compared. Before then, every type
+   * is compared.
    */
   public Collection<NominalType> findTypes(final JSType type) {
-    Multimap<JSType, NominalType> filtered =
-        filterKeys(typesByJsType, input -> typesEqual(type, input));
-    return Collections.unmodifiableCollection(filtered.values());
+    EquivalenceIndex index = equivalenceIndex;
+    if (index == null) {
+      Multimap<JSType, NominalType> filtered =
+          filterKeys(typesByJsType, input -> typesEqual(type, input));
+      return Collections.unmodifiableCollection(filtered.values());
+    }
+
+    List<NominalType> exact = typesByJsType.get(type);
+    List<NominalType> result = new ArrayList<>(exact);
+    for (NominalType candidate : index.getCandidates(type)) {
+      @SuppressWarnings("ReferenceEquality") // Exact matches were already added.
+      boolean isExact = candidate.getType() == type;
+      if (!isExact && typesEqual(type, candidate.getType())) {
+        result.add(candidate);
+      }
+    }
+
+    if (result.isEmpty()) {
+      lookupMisses.increment();
+    } else if (result.size() == exact.size()) {
+      exactLookupHits.increment();
+    } else {
+      equivalentLookupHits.increment();
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /** Returns the number of indexed {@link #findTypes} lookups that only found exact matches. */
+  public long getExactLookupHits() {
+    return exactLookupHits.sum();
+  }
+
+  /** Returns the number of indexed {@link #findTypes} lookups that found equivalent types. */
+  public long getEquivalentLookupHits() {
+    return equivalentLookupHits.sum();
+  }
+
+  /** Returns the number of indexed {@link #findTypes} lookups that found no types. */
+  public long getLookupMisses() {
+    return lookupMisses.sum();
+  }
+
+  /**
+   * Returns a counter that changes whenever types or aliases are registered or discarded. Results
+   * derived from this registry may be cached as long as the generation does not change.
+   */
+  public int getGeneration() {
+    return generation;
   }
 
   private static boolean typesEqual(JSType a, JSType b) {
@@ -484,6 +582,119 @@ public final class TypeRegistry {
     return ImmutableList.copyOf(typeHierarchy.get(type.toMaybeFunctionType()));
   }
 
+  /**
+   * Returns every type that instances of the given type are assignable to: the instance type
+   * itself, followed by its implemented interfaces and its super types, as returned by {@link
+   * #getImplementedInterfaces} and {@link #getTypeHierarchy}. These lists are computed with the
+   * type relationships, so they are shared by everything that inspects the type.
+   */
+  public ImmutableList<JSType> getAssignableTypes(JSType type) {
+    FunctionType ctor = type.toMaybeFunctionType();
+    if (ctor == null) {
+      return ImmutableList.of();
+    }
+    ImmutableList<JSType> types = assignableTypes.get(ctor);
+    if (types == null) {
+      types = computeAssignableTypes(ctor);
+    }
+    return types;
+  }
+
+  private ImmutableList<JSType> computeAssignableTypes(FunctionType ctor) {
+    Set<JSType> types = new LinkedHashSet<>();
+    if (ctor.hasInstanceType()) {
+      types.add(ctor.getInstanceType());
+    }
+    types.addAll(implementedInterfaces.get(ctor));
+    types.addAll(typeHierarchy.get(ctor));
+    return ImmutableList.copyOf(types);
+  }
+
+  /**
+   * Discards everything recorded for the given files so they may be compiled again: their modules,
+   * alias regions, default visibility, and the nominal types they define. A type defined in another
+   * file is also discarded if it depends on a discarded type, as an alias, a nested type, or a
+   * subtype or implementation, as its JSType will refer to the stale compiled type. Dependents are
+   * found using the type relationships, so they should be computed before calling this method, and
+   * must be recomputed once the discarded types have been collected again.
+   *
+   * @param files the files to invalidate.
+   * @return the files whose types were discarded, which includes the given files.
+   */
+  public ImmutableSet<Path> invalidate(Set<Path> files) {
+    SetMultimap<Path, NominalType> typesByFile =
+        MultimapBuilder.hashKeys().hashSetValues().build();
+    for (NominalType type : typesByName.values()) {
+      typesByFile.put(type.getSourceFile(), type);
+    }
+
+    Set<Path> invalidated = new LinkedHashSet<>(files);
+    Set<NominalType> removed = new HashSet<>();
+    Deque<Path> pending = new ArrayDeque<>(files);
+    while (!pending.isEmpty()) {
+      for (NominalType type : typesByFile.get(pending.remove())) {
+        if (!removed.add(type)) {
+          continue;
+        }
+        for (NominalType dependent : getDependentTypes(type)) {
+          if (invalidated.add(dependent.getSourceFile())) {
+            pending.add(dependent.getSourceFile());
+          }
+        }
+      }
+    }
+
+    equivalenceIndex = null;
+    assignableTypes = ImmutableMap.of();
+    generation++;
+    for (NominalType type : removed) {
+      typesByName.remove(type.getName());
+      typesByJsType.remove(type.getType(), type);
+      nestedTypes.removeAll(type);
+    }
+    nestedTypes.values().removeAll(removed);
+    resolvedModuleContentAliases.clear();
+
+    for (Path path : invalidated) {
+      Module module = modulesByPath.remove(path);
+      if (module != null) {
+        modulesById.remove(module.getId());
+        modulesByCompiledName.remove(module.getId().getCompiledName());
+      }
+      aliasRegions.removeAll(path);
+      defaultVisibilities.remove(path);
+    }
+    return ImmutableSet.copyOf(invalidated);
+  }
+
+  private Set<NominalType> getDependentTypes(NominalType type) {
+    Set<NominalType> dependents = new HashSet<>(nestedTypes.get(type));
+
+    // Primitive and unknown types are shared by unrelated declarations (e.g. every typedef for a
+    // string), so only object types identify an alias.
+    JSType jsType = type.getType();
+    if (jsType.isObject() && !jsType.isNoType() && !jsType.isUnknownType()) {
+      dependents.addAll(getTypes(jsType));
+    }
+
+    if (jsType.isConstructor() || jsType.isInterface()) {
+      FunctionType ctor = jsType.toMaybeFunctionType();
+      if (ctor != null) {
+        Iterable<JSType> subtypes =
+            Iterables.concat(
+                directSubtypes.get(ctor), knownImplementations.get(ctor), subInterfaces.get(ctor));
+        for (JSType subtype : subtypes) {
+          ObjectType instance = subtype.toMaybeObjectType();
+          if (instance != null && instance.getConstructor() != null) {
+            dependents.addAll(getTypes(instance.getConstructor()));
+          }
+        }
+      }
+    }
+    dependents.remove(type);
+    return dependents;
+  }
+
   /**
    * Recomputes the type hierarchy relationships for all nominal types in this registry using the
    * given global scope and JS registry.
@@ -495,6 +706,8 @@ public final class TypeRegistry {
     subInterfaces.clear();
     directSubtypes.clear();
     implementedInterfaces.clear();
+    typeHierarchy.clear();
+    assignableTypes = ImmutableMap.of();
 
     Set<FunctionType> processed = new HashSet<>();
     for (NominalType nominalType : typesByName.values()) {
@@ -516,6 +729,14 @@ public final class TypeRegistry {
         computeTypeHiearchy(ctor, globalScope, jsRegistry);
       }
     }
+
+    ImmutableMap.Builder<FunctionType, ImmutableList<JSType>> assignable =
+        ImmutableMap.builderWithExpectedSize(processed.size());
+    for (FunctionType ctor : processed) {
+      assignable.put(ctor, computeAssignableTypes(ctor));
+    }
+    assignableTypes = assignable.build();
+    equivalenceIndex = new EquivalenceIndex(typesByName.values());
   }
 
   private void computeTypeHiearchy(
@@ -646,4 +867,57 @@ public final class TypeRegistry {
       }
     }
   }
+
+  /**
+   * Groups nominal types by a key shared by every pair of types equal under {@link
+   * #typesEqual(JSType, JSType)}, so {@link #findTypes(JSType)} only compares a type with the few
+   * types that share its key. A constructor is keyed by its instance type, as constructors are
+   * equal when their instance types are. Other types are keyed by their hash code, which the
+   * compiler keeps consistent with equality (nominal types hash their reference name). Anonymous
+   * object types are compared structurally but hashed by identity, so they are kept unkeyed and
+   * compared with each other.
+   *
+   * <p>The index is immutable, so it may be read by concurrent lookups.
+   */
+  private static final class EquivalenceIndex {
+    private final ImmutableListMultimap<Integer, NominalType> typesByKey;
+    private final ImmutableList<NominalType> unkeyedTypes;
+
+    private EquivalenceIndex(Collection<NominalType> types) {
+      ImmutableListMultimap.Builder<Integer, NominalType> typesByKey =
+          ImmutableListMultimap.builder();
+      ImmutableList.Builder<NominalType> unkeyedTypes = ImmutableList.builder();
+      for (NominalType type : types) {
+        Integer key = getKey(type.getType());
+        if (key == null) {
+          unkeyedTypes.add(type);
+        } else {
+          typesByKey.put(key, type);
+        }
+      }
+      this.typesByKey = typesByKey.build();
+      this.unkeyedTypes = unkeyedTypes.build();
+    }
+
+    /** Returns the types that may be equal to the given type. */
+    List<NominalType> getCandidates(JSType type) {
+      Integer key = getKey(type);
+      return key == null ? unkeyedTypes : typesByKey.get(key);
+    }
+
+    @Nullable
+    private static Integer getKey(JSType type) {
+      if (type.isConstructor() && type.toMaybeFunctionType() != null) {
+        ObjectType instance = type.toMaybeFunctionType().getInstanceType();
+        if (instance != null) {
+          return getKey(instance);
+        }
+      }
+      ObjectType object = type.toMaybeObjectType();
+      if (object != null && !object.isFunctionType() && !object.hasReferenceName()) {
+        return null;
+      }
+      return type.hashCode();
+    }
+  }
 }
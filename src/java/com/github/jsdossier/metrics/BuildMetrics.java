@@ -0,0 +1,445 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier.metrics;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.newBufferedWriter;
+
+import com.google.common.primitives.Longs;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.inject.Inject;
+
+/**
+ * Records timing and throughput metrics for a single documentation build.
+ *
+ * <p>Work is measured in named phases. Each phase records its wall time, the CPU time consumed by
+ * the whole process and the bytes allocated by all live threads while it was open. Since these are
+ * process-wide measurements, a phase nested inside another is included in its parent's totals.
+ * Allocation counts are approximate: bytes allocated by a thread that exits before the phase ends
+ * are not counted. CPU and allocation measurements are reported as -1 if the running JVM does not
+ * support them.
+ *
+ * <p>A partitioned build records each partition in its own instance, which is then added to the
+ * metrics for the whole build with {@link #addPartition}.
+ *
+ * <p>This class is thread-safe.
+ */
+public final class BuildMetrics {
+
+  private static final OperatingSystemMXBean OS_BEAN = ManagementFactory.getOperatingSystemMXBean();
+  private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+  private static final MemoryMXBean MEMORY_BEAN = ManagementFactory.getMemoryMXBean();
+
+  private final long startNanos = System.nanoTime();
+  private final List<JsonObject> phases = new ArrayList<>();
+  private final Map<String, TaskStats> tasks = new TreeMap<>();
+  private final Map<String, Long> heapUsage = new LinkedHashMap<>();
+  private final Map<String, JsonObject> inputLoads = new LinkedHashMap<>();
+  private final Map<String, Long> symbolTables = new LinkedHashMap<>();
+  private final Map<String, Long> typeLookups = new LinkedHashMap<>();
+  private final Map<String, Long> typeResolutions = new LinkedHashMap<>();
+  private JsonObject compileCache;
+
+  @Inject
+  public BuildMetrics() {}
+
+  /**
+   * Starts timing a new phase. The phase is recorded when the returned object is closed, so
+   * callers should use a try-with-resources statement:
+   *
+   * <pre><code>
+   *   try (BuildMetrics.Phase phase = metrics.startPhase("compile")) {
+   *     runCompiler();
+   *   }
+   * </code></pre>
+   */
+  public Phase startPhase(String name) {
+    return new Phase(name);
+  }
+
+  /**
+   * Records the completion of a single task.
+   *
+   * @param type the type of task that ran; tasks are grouped by type for reporting.
+   * @param latency how long the task ran.
+   * @param bytesWritten the number of bytes of output produced by the task.
+   */
+  public synchronized void recordTask(String type, Duration latency, long bytesWritten) {
+    TaskStats stats = tasks.computeIfAbsent(type, k -> new TaskStats());
+    stats.latencies.add(latency.toNanos());
+    stats.bytesWritten += bytesWritten;
+  }
+
+  /**
+   * Records the number of input files loaded and the load throughput.
+   *
+   * @param label the label to record the measurement under.
+   * @param fileCount the number of files loaded.
+   * @param byteCount the number of bytes loaded.
+   * @param elapsed how long it took to load the files.
+   */
+  public synchronized void recordInputLoad(
+      String label, int fileCount, long byteCount, Duration elapsed) {
+    double seconds = elapsed.toNanos() / 1e9;
+    JsonObject json = new JsonObject();
+    json.addProperty("files", fileCount);
+    json.addProperty("bytes", byteCount);
+    json.addProperty("wallMs", elapsed.toMillis());
+    json.addProperty("bytesPerSecond", seconds == 0 ? 0 : (long) (byteCount / seconds));
+    inputLoads.put(label, json);
+  }
+
+  /**
+   * Records the result of looking up a run's inputs in the compile cache.
+   *
+   * @param hit whether the cache had a snapshot for the run's inputs.
+   * @param pageCount the number of pages in the snapshot.
+   * @param snapshotBytes the size of the snapshot on disk.
+   * @param totalHits the number of hits recorded by every run sharing the cache.
+   * @param totalMisses the number of misses recorded by every run sharing the cache.
+   */
+  public synchronized void recordCompileCache(
+      boolean hit, int pageCount, long snapshotBytes, int totalHits, int totalMisses) {
+    compileCache = new JsonObject();
+    compileCache.addProperty("hit", hit);
+    compileCache.addProperty("pages", pageCount);
+    compileCache.addProperty("snapshotBytes", snapshotBytes);
+    compileCache.addProperty("totalHits", totalHits);
+    compileCache.addProperty("totalMisses", totalMisses);
+  }
+
+  /**
+   * Records the size of the symbol tables built for the compiled inputs. If recorded more than
+   * once, the counts are summed.
+   *
+   * @param symbolCount the number of symbols recorded.
+   * @param tableCount the number of symbol tables.
+   * @param estimatedBytes the estimated number of bytes used by the tables and their symbols.
+   */
+  public synchronized void recordSymbolTables(
+      int symbolCount, int tableCount, long estimatedBytes) {
+    symbolTables.merge("symbols", (long) symbolCount, Long::sum);
+    symbolTables.merge("tables", (long) tableCount, Long::sum);
+    symbolTables.merge("estimatedBytes", estimatedBytes, Long::sum);
+  }
+
+  /**
+   * Records the outcome of looking up nominal types by an equivalent JSType while rendering. If
+   * recorded more than once, the counts are summed.
+   *
+   * @param exactHits the number of lookups that only found types with the exact JSType.
+   * @param equivalentHits the number of lookups that found types with an equivalent JSType.
+   * @param misses the number of lookups that found no types.
+   */
+  public synchronized void recordTypeLookups(long exactHits, long equivalentHits, long misses) {
+    typeLookups.merge("exactHits", exactHits, Long::sum);
+    typeLookups.merge("equivalentHits", equivalentHits, Long::sum);
+    typeLookups.merge("misses", misses, Long::sum);
+  }
+
+  /**
+   * Records the outcome of resolving type names against a type context while rendering. If
+   * recorded more than once, the counts are summed.
+   *
+   * @param hits the number of names whose resolution was cached.
+   * @param misses the number of names that had to be resolved.
+   * @param evictions the number of cached resolutions discarded to bound the cache.
+   */
+  public synchronized void recordTypeResolutions(long hits, long misses, long evictions) {
+    typeResolutions.merge("hits", hits, Long::sum);
+    typeResolutions.merge("misses", misses, Long::sum);
+    typeResolutions.merge("evictions", evictions, Long::sum);
+  }
+
+  /**
+   * Requests a garbage collection, then records the number of bytes used by the heap. Since this
+   * forces a collection, it should only be called between phases.
+   *
+   * @param label the label to record the measurement under.
+   * @return the number of bytes used by the heap.
+   */
+  public long recordHeapUsage(String label) {
+    System.gc();
+    long used = MEMORY_BEAN.getHeapMemoryUsage().getUsed();
+    synchronized (this) {
+      heapUsage.put(label, used);
+    }
+    return used;
+  }
+
+  /**
+   * Adds the metrics recorded for one partition of a partitioned build. The partition's phases are
+   * labelled with its index, and its input loads and heap measurements are recorded under labels
+   * that include the index. Its tasks, symbol tables, type lookups and type resolutions are summed
+   * with those of every other partition.
+   *
+   * @param index the index of the partition.
+   * @param partition the metrics recorded for the partition.
+   */
+  public void addPartition(int index, BuildMetrics partition) {
+    checkArgument(partition != this, "metrics may not be added to themselves");
+    JsonObject json = partition.toJson();
+    long offsetMs = toMillis(partition.startNanos - startNanos);
+    String suffix = " (partition " + index + ")";
+
+    synchronized (this) {
+      for (JsonElement element : json.getAsJsonArray("phases")) {
+        JsonObject phase = element.getAsJsonObject().deepCopy();
+        phase.addProperty("startMs", phase.get("startMs").getAsLong() + offsetMs);
+        phase.addProperty("partition", index);
+        phases.add(phase);
+      }
+      json.getAsJsonObject("inputs")
+          .entrySet()
+          .forEach(e -> inputLoads.put(e.getKey() + suffix, e.getValue().getAsJsonObject()));
+      json.getAsJsonObject("heapBytes")
+          .entrySet()
+          .forEach(e -> heapUsage.put(e.getKey() + suffix, e.getValue().getAsLong()));
+
+      synchronized (partition) {
+        partition.tasks.forEach(
+            (type, stats) -> {
+              TaskStats merged = tasks.computeIfAbsent(type, k -> new TaskStats());
+              merged.latencies.addAll(stats.latencies);
+              merged.bytesWritten += stats.bytesWritten;
+            });
+        partition.symbolTables.forEach((k, v) -> symbolTables.merge(k, v, Long::sum));
+        partition.typeLookups.forEach((k, v) -> typeLookups.merge(k, v, Long::sum));
+        partition.typeResolutions.forEach((k, v) -> typeResolutions.merge(k, v, Long::sum));
+      }
+    }
+  }
+
+  private synchronized void recordPhase(JsonObject phase) {
+    phases.add(phase);
+  }
+
+  /** Returns the recorded metrics as a JSON object. */
+  public synchronized JsonObject toJson() {
+    JsonObject json = new JsonObject();
+    json.addProperty("wallMs", toMillis(System.nanoTime() - startNanos));
+
+    JsonArray phaseArray = new JsonArray();
+    phases
+        .stream()
+        .sorted((a, b) -> Long.compare(a.get("startMs").getAsLong(), b.get("startMs").getAsLong()))
+        .forEach(phaseArray::add);
+    json.add("phases", phaseArray);
+
+    long totalBytes = 0;
+    JsonObject taskJson = new JsonObject();
+    for (Map.Entry<String, TaskStats> entry : tasks.entrySet()) {
+      taskJson.add(entry.getKey(), entry.getValue().toJson());
+      totalBytes += entry.getValue().bytesWritten;
+    }
+    json.add("tasks", taskJson);
+    json.addProperty("bytesWritten", totalBytes);
+
+    JsonObject inputJson = new JsonObject();
+    inputLoads.forEach(inputJson::add);
+    json.add("inputs", inputJson);
+
+    JsonObject heapJson = new JsonObject();
+    heapUsage.forEach(heapJson::addProperty);
+    json.add("heapBytes", heapJson);
+
+    if (compileCache != null) {
+      json.add("compileCache", compileCache);
+    }
+    if (!symbolTables.isEmpty()) {
+      json.add("symbolTables", toJson(symbolTables));
+    }
+    if (!typeLookups.isEmpty()) {
+      json.add("typeLookups", toJson(typeLookups));
+    }
+    if (!typeResolutions.isEmpty()) {
+      JsonObject resolutionJson = toJson(typeResolutions);
+      long hits = typeResolutions.get("hits");
+      long total = hits + typeResolutions.get("misses");
+      resolutionJson.addProperty("hitRate", total == 0 ? 0 : (double) hits / total);
+      json.add("typeResolutions", resolutionJson);
+    }
+    return json;
+  }
+
+  private static JsonObject toJson(Map<String, Long> counts) {
+    JsonObject json = new JsonObject();
+    counts.forEach(json::addProperty);
+    return json;
+  }
+
+  /** Writes the recorded metrics to the given file as JSON. */
+  public void write(Path path) throws IOException {
+    if (path.getParent() != null) {
+      createDirectories(path.getParent());
+    }
+    try (Writer writer = newBufferedWriter(path, UTF_8)) {
+      new GsonBuilder().setPrettyPrinting().create().toJson(toJson(), writer);
+    }
+  }
+
+  private static long toMillis(long nanos) {
+    return Duration.ofNanos(nanos).toMillis();
+  }
+
+  private static long getProcessCpuNanos() {
+    if (OS_BEAN instanceof com.sun.management.OperatingSystemMXBean) {
+      return ((com.sun.management.OperatingSystemMXBean) OS_BEAN).getProcessCpuTime();
+    }
+    return -1;
+  }
+
+  private static Map<Long, Long> getAllocatedBytesByThread() {
+    if (!(THREAD_BEAN instanceof com.sun.management.ThreadMXBean)) {
+      return null;
+    }
+    com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_BEAN;
+    if (!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled()) {
+      return null;
+    }
+
+    long[] ids = bean.getAllThreadIds();
+    long[] bytes = bean.getThreadAllocatedBytes(ids);
+    Map<Long, Long> map = new HashMap<>(ids.length);
+    for (int i = 0; i < ids.length; i++) {
+      if (bytes[i] >= 0) {
+        map.put(ids[i], bytes[i]);
+      }
+    }
+    return map;
+  }
+
+  /** A phase of work that is being timed. */
+  public final class Phase implements AutoCloseable {
+    private final String name;
+    private final long startWallNanos;
+    private final long startCpuNanos;
+    private final Map<Long, Long> startAllocations;
+    private boolean closed;
+
+    private Phase(String name) {
+      this.name = name;
+      this.startAllocations = getAllocatedBytesByThread();
+      this.startCpuNanos = getProcessCpuNanos();
+      this.startWallNanos = System.nanoTime();
+    }
+
+    /** Stops timing this phase and records it. Closing a phase more than once has no effect. */
+    @Override
+    public void close() {
+      long endWallNanos = System.nanoTime();
+      long endCpuNanos = getProcessCpuNanos();
+      Map<Long, Long> endAllocations = getAllocatedBytesByThread();
+
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+      }
+
+      JsonObject json = new JsonObject();
+      json.addProperty("name", name);
+      json.addProperty("startMs", toMillis(startWallNanos - startNanos));
+      json.addProperty("wallMs", toMillis(endWallNanos - startWallNanos));
+      json.addProperty(
+          "cpuMs", startCpuNanos < 0 ? -1 : toMillis(endCpuNanos - startCpuNanos));
+
+      long allocated = -1;
+      if (startAllocations != null && endAllocations != null) {
+        allocated = 0;
+        for (Map.Entry<Long, Long> entry : endAllocations.entrySet()) {
+          long before = startAllocations.getOrDefault(entry.getKey(), 0L);
+          allocated += Math.max(0, entry.getValue() - before);
+        }
+      }
+      json.addProperty("allocatedBytes", allocated);
+      recordPhase(json);
+    }
+  }
+
+  private static final class TaskStats {
+    private final List<Long> latencies = new ArrayList<>();
+    private long bytesWritten;
+
+    JsonObject toJson() {
+      long[] sorted = Longs.toArray(latencies);
+      Arrays.sort(sorted);
+
+      long total = 0;
+      for (long latency : sorted) {
+        total += latency;
+      }
+
+      JsonObject json = new JsonObject();
+      json.addProperty("count", sorted.length);
+      json.addProperty("bytesWritten", bytesWritten);
+      json.addProperty("totalMs", toMillis(total));
+      json.addProperty("minMs", toMillis(sorted[0]));
+      json.addProperty("p50Ms", toMillis(percentile(sorted, 50)));
+      json.addProperty("p90Ms", toMillis(percentile(sorted, 90)));
+      json.addProperty("p99Ms", toMillis(percentile(sorted, 99)));
+      json.addProperty("maxMs", toMillis(sorted[sorted.length - 1]));
+      json.add("histogram", histogram(sorted));
+      return json;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+      int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+      return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    /**
+     * Buckets the given latencies by powers of two milliseconds. Each key in the returned object is
+     * the exclusive upper bound of a bucket.
+     */
+    private static JsonObject histogram(long[] sorted) {
+      Map<Long, Integer> buckets = new TreeMap<>();
+      for (long latency : sorted) {
+        long bound = 1;
+        while (bound <= toMillis(latency)) {
+          bound <<= 1;
+        }
+        buckets.merge(bound, 1, Integer::sum);
+      }
+
+      JsonObject json = new JsonObject();
+      buckets.forEach((bound, count) -> json.addProperty("<" + bound + "ms", count));
+      return json;
+    }
+  }
+}
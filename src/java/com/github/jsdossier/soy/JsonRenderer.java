@@ -16,19 +16,13 @@ limitations under the License.
 
 package com.github.jsdossier.soy;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.nio.file.Files.createDirectories;
-import static java.nio.file.Files.newBufferedWriter;
-import static java.nio.file.StandardOpenOption.CREATE;
-import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
-import static java.nio.file.StandardOpenOption.WRITE;
-
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.internal.Streams;
 import com.google.gson.stream.JsonWriter;
 import com.google.protobuf.Message;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.file.Path;
 import javax.inject.Inject;
@@ -37,10 +31,12 @@ import javax.inject.Inject;
 public final class JsonRenderer {
 
   private final JsonEncoder encoder;
+  private final OutputWriter outputWriter;
 
   @Inject
-  JsonRenderer(JsonEncoder encoder) {
+  JsonRenderer(JsonEncoder encoder, OutputWriter outputWriter) {
     this.encoder = encoder;
+    this.outputWriter = outputWriter;
   }
 
   public void render(Path output, Message message) throws IOException {
@@ -68,10 +64,9 @@ public final class JsonRenderer {
   }
 
   private void render(Path output, JsonElement json) throws IOException {
-    createDirectories(output.getParent());
-    try (Writer writer = newBufferedWriter(output, UTF_8, CREATE, WRITE, TRUNCATE_EXISTING)) {
-      render(writer, json);
-    }
+    StringWriter writer = new StringWriter();
+    render(writer, json);
+    outputWriter.write(output, writer.getBuffer());
   }
 
   private void render(Writer writer, JsonElement json) throws IOException {
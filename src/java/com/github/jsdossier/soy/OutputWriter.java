@@ -0,0 +1,97 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier.soy;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.google.common.io.ByteSource;
+import com.google.common.io.MoreFiles;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.inject.Inject;
+
+/**
+ * Writes generated files to the output directory. When configured to skip unchanged files, a file
+ * is only written if its content differs from the file already on disk, preserving the
+ * modification time of every file that did not change. This class is thread-safe.
+ */
+public final class OutputWriter {
+
+  private final boolean skipUnchanged;
+  private final AtomicInteger unchangedCount = new AtomicInteger();
+
+  @Inject
+  OutputWriter() {
+    this(false);
+  }
+
+  /**
+   * @param skipUnchanged whether to skip writing files whose content would not change.
+   */
+  public OutputWriter(boolean skipUnchanged) {
+    this.skipUnchanged = skipUnchanged;
+  }
+
+  /**
+   * Writes the given string to a file using UTF-8, creating its parent directories if necessary.
+   *
+   * @return whether the file was written.
+   */
+  public boolean write(Path path, CharSequence content) throws IOException {
+    return write(path, content.toString().getBytes(UTF_8));
+  }
+
+  /**
+   * Writes the given bytes to a file, creating its parent directories if necessary.
+   *
+   * @return whether the file was written.
+   */
+  public boolean write(Path path, byte[] content) throws IOException {
+    if (path.getParent() != null) {
+      createDirectories(path.getParent());
+    }
+
+    if (skipUnchanged && isUnchanged(path, content)) {
+      unchangedCount.incrementAndGet();
+      return false;
+    }
+
+    Files.write(path, content, CREATE, WRITE, TRUNCATE_EXISTING);
+    return true;
+  }
+
+  private static boolean isUnchanged(Path path, byte[] content) throws IOException {
+    if (!Files.isRegularFile(path) || Files.size(path) != content.length) {
+      return false;
+    }
+    return MoreFiles.asByteSource(path).contentEquals(ByteSource.wrap(content));
+  }
+
+  /**
+   * Returns the number of files that were not written because their content was unchanged since
+   * the last call to this method.
+   */
+  public int getAndResetUnchangedCount() {
+    return unchangedCount.getAndSet(0);
+  }
+}
@@ -17,11 +17,6 @@ limitations under the License.
 package com.github.jsdossier.soy;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.nio.file.Files.newBufferedWriter;
-import static java.nio.file.StandardOpenOption.CREATE;
-import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
-import static java.nio.file.StandardOpenOption.WRITE;
 
 import com.github.jsdossier.proto.PageData;
 import com.github.jsdossier.proto.Resources;
@@ -44,7 +39,6 @@ import com.google.template.soy.jssrc.SoyJsSrcOptions;
 import com.google.template.soy.tofu.SoyTofu;
 import java.io.IOException;
 import java.io.StringWriter;
-import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
@@ -62,12 +56,14 @@ public class Renderer {
   private final Provider<SoyFileSet.Builder> filesetBuilderProvider;
   private final SoyTofu tofu;
   private final JsonRenderer jsonRenderer;
+  private final OutputWriter outputWriter;
 
   @Inject
   Renderer(
       Provider<SoyFileSet.Builder> filesetBuilderProvider,
       ImmutableSet<Descriptors.GenericDescriptor> descriptors,
-      JsonRenderer jsonRenderer) {
+      JsonRenderer jsonRenderer,
+      OutputWriter outputWriter) {
     this.filesetBuilderProvider = filesetBuilderProvider;
     this.tofu =
         filesetBuilderProvider
@@ -78,6 +74,7 @@ public class Renderer {
             .build()
             .compileToTofu();
     this.jsonRenderer = jsonRenderer;
+    this.outputWriter = outputWriter;
   }
 
   public void render(Path htmlOut, Resources resources, PageData data) throws IOException {
@@ -85,19 +82,17 @@ public class Renderer {
     jsonRenderer.render(sw, data);
     String jsonData = sw.toString();
 
-    Files.createDirectories(htmlOut.getParent());
-
-    try (Writer writer = newBufferedWriter(htmlOut, UTF_8, CREATE, WRITE, TRUNCATE_EXISTING)) {
-      tofu.newRenderer("dossier.soy.page")
-          .setData(
-              ImmutableMap.of(
-                  "resources", resources,
-                  "data", data,
-                  "jsonData", jsonData,
-                  "headContent", renderHeadContent(resources),
-                  "tailContent", renderTailContent(resources)))
-          .render(writer);
-    }
+    StringBuilder html = new StringBuilder();
+    tofu.newRenderer("dossier.soy.page")
+        .setData(
+            ImmutableMap.of(
+                "resources", resources,
+                "data", data,
+                "jsonData", jsonData,
+                "headContent", renderHeadContent(resources),
+                "tailContent", renderTailContent(resources)))
+        .render(html);
+    outputWriter.write(htmlOut, html);
   }
 
   private SoyValue renderHeadContent(Resources resources) {
@@ -31,6 +31,7 @@ import com.github.jsdossier.annotations.SourcePrefix;
 import com.github.jsdossier.annotations.SourceUrlTemplate;
 import com.github.jsdossier.annotations.Stderr;
 import com.github.jsdossier.annotations.TypeFilter;
+import com.github.jsdossier.jscomp.CompilationProfile;
 import com.github.jsdossier.jscomp.CompilerModule;
 import com.github.jsdossier.jscomp.Environment;
 import com.github.jsdossier.jscomp.NodeLibrary;
@@ -67,6 +68,7 @@ public abstract class GuiceRule implements TestRule {
         .setTarget(target)
         .setModuleNamingConvention(ModuleNamingConvention.ES6)
         .setNewTypeInference(false)
+        .setCompilationProfile(CompilationProfile.DEFAULT)
         .setGuiceModules(ImmutableList.copyOf(modules))
         .setInputFs(Jimfs.newFileSystem())
         .setModulePrefix(Optional.empty())
@@ -104,6 +106,8 @@ public abstract class GuiceRule implements TestRule {
 
   abstract boolean getNewTypeInference();
 
+  abstract CompilationProfile getCompilationProfile();
+
   abstract FileSystem getOutputFs();
 
   abstract Optional<Path> getOutputDir();
@@ -195,6 +199,11 @@ public abstract class GuiceRule implements TestRule {
                     return getModuleExterns();
                   }
 
+                  @Provides
+                  CompilationProfile provideCompilationProfile() {
+                    return getCompilationProfile();
+                  }
+
                   @Provides
                   Environment provideEnvironment() {
                     return getModules().isEmpty() ? Environment.BROWSER : Environment.NODE;
@@ -228,6 +237,8 @@ public abstract class GuiceRule implements TestRule {
 
     public abstract Builder setNewTypeInference(boolean set);
 
+    public abstract Builder setCompilationProfile(CompilationProfile profile);
+
     public abstract Builder setModuleNamingConvention(ModuleNamingConvention convention);
 
     public abstract Builder setModulePathFilter(Predicate<Path> filter);
@@ -0,0 +1,153 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.github.jsdossier.annotations.Input;
+import com.github.jsdossier.jscomp.NominalType;
+import com.github.jsdossier.jscomp.TypeRegistry;
+import com.github.jsdossier.testing.CompilerUtil;
+import com.github.jsdossier.testing.GuiceRule;
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Injector;
+import java.nio.file.FileSystem;
+import javax.inject.Inject;
+
+/**
+ * Generates and compiles a synthetic code base for benchmarks. The code base contains a
+ * configurable number of classes arranged in inheritance chains of a fixed depth. Every class has
+ * the same set of documented methods, and every comment has the same number of words, with a link
+ * to another class roughly every ten words.
+ */
+final class BenchmarkFixture {
+
+  static final int METHODS_PER_TYPE = 5;
+
+  private static final String[] WORDS = {
+    "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit", "sed", "do"
+  };
+
+  @Inject @Input FileSystem fs;
+  @Inject CompilerUtil util;
+  @Inject TypeRegistry typeRegistry;
+
+  private final Injector injector;
+  private final int numTypes;
+  private final int inheritanceDepth;
+  private final int commentWords;
+
+  /**
+   * @param numTypes the total number of classes to generate.
+   * @param inheritanceDepth the length of each inheritance chain.
+   * @param commentWords the number of words in each comment.
+   */
+  BenchmarkFixture(int numTypes, int inheritanceDepth, int commentWords) {
+    checkArgument(numTypes > 0, "invalid number of types: %s", numTypes);
+    checkArgument(inheritanceDepth > 0, "invalid inheritance depth: %s", inheritanceDepth);
+    checkArgument(commentWords >= 0, "invalid comment length: %s", commentWords);
+    this.numTypes = numTypes;
+    this.inheritanceDepth = inheritanceDepth;
+    this.commentWords = commentWords;
+
+    this.injector =
+        GuiceRule.builder(this)
+            .setOutputDir("/out")
+            .setSourcePrefix("/src")
+            .setModulePrefix("/src/modules")
+            .setUseNodeLibrary(false)
+            .build()
+            .createInjector();
+    injector.injectMembers(this);
+    util.compile(fs.getPath("/src/types.js"), generateSource());
+  }
+
+  /** Returns the injector used to compile the code base. */
+  Injector getInjector() {
+    return injector;
+  }
+
+  /** Returns the name of the i-th generated type. */
+  static String typeName(int i) {
+    return "Type" + i;
+  }
+
+  /** Returns the generated types. */
+  ImmutableList<NominalType> getTypes() {
+    ImmutableList.Builder<NominalType> types = ImmutableList.builder();
+    for (int i = 0; i < numTypes; i++) {
+      types.add(typeRegistry.getType(typeName(i)));
+    }
+    return types.build();
+  }
+
+  /**
+   * Returns the generated types that are at the end of an inheritance chain, and so inherit the
+   * most members.
+   */
+  ImmutableList<NominalType> getLeafTypes() {
+    ImmutableList.Builder<NominalType> types = ImmutableList.builder();
+    for (int i = 0; i < numTypes; i++) {
+      if (i % inheritanceDepth == inheritanceDepth - 1 || i == numTypes - 1) {
+        types.add(typeRegistry.getType(typeName(i)));
+      }
+    }
+    return types.build();
+  }
+
+  private String[] generateSource() {
+    ImmutableList.Builder<String> lines = ImmutableList.builder();
+    for (int i = 0; i < numTypes; i++) {
+      lines.add("/**");
+      lines.add(" * " + comment(i));
+      lines.add(" */");
+      if (i % inheritanceDepth == 0) {
+        lines.add("class " + typeName(i) + " {");
+      } else {
+        lines.add("class " + typeName(i) + " extends " + typeName(i - 1) + " {");
+      }
+
+      for (int j = 0; j < METHODS_PER_TYPE; j++) {
+        lines.add("  /**");
+        lines.add("   * " + comment(i + j));
+        lines.add("   * @param {string} a The first parameter.");
+        lines.add("   * @param {!Array<number>} b The second parameter.");
+        lines.add("   * @return {?" + typeName((i + j) % numTypes) + "} The result.");
+        lines.add("   */");
+        lines.add("  method" + j + "_" + i + "(a, b) { return null; }");
+      }
+      lines.add("}");
+      lines.add("");
+    }
+    return lines.build().toArray(new String[0]);
+  }
+
+  private String comment(int seed) {
+    StringBuilder comment = new StringBuilder();
+    for (int i = 0; i < commentWords; i++) {
+      if (i > 0) {
+        comment.append(' ');
+      }
+      if (i % 10 == 9) {
+        comment.append("{@link ").append(typeName((seed + i) % numTypes)).append('}');
+      } else {
+        comment.append(WORDS[(seed + i) % WORDS.length]);
+      }
+    }
+    return comment.toString();
+  }
+}
@@ -0,0 +1,190 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.createFile;
+import static java.nio.file.Files.delete;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.write;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.jimfs.Jimfs;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link BuildManifest}. */
+@RunWith(JUnit4.class)
+public class BuildManifestTest {
+
+  private final FileSystem fs = Jimfs.newFileSystem();
+
+  private Path output;
+  private Path input;
+  private Config config;
+
+  @Before
+  public void setUp() throws IOException {
+    output = fs.getPath("/out");
+    createDirectories(output);
+
+    input = fs.getPath("/src/input.js");
+    createDirectories(input.getParent());
+    write(input, "var x = 1;".getBytes(UTF_8));
+
+    config =
+        Config.builder()
+            .setFileSystem(fs)
+            .setOutput(output)
+            .setSources(ImmutableSet.of(input))
+            .build();
+  }
+
+  @Test
+  public void disabledManifestNeverSkipsWork() throws IOException {
+    BuildManifest manifest = BuildManifest.disabled();
+    Path page = createFile(output.resolve("page.html"));
+
+    assertThat(manifest.isEnabled()).isFalse();
+    assertThat(manifest.isInputUnchanged(input)).isFalse();
+    assertThat(manifest.updatePage(page, hash("content"))).isFalse();
+    assertThat(manifest.carryForward(page)).isFalse();
+
+    manifest.write();
+    assertThat(exists(output.resolve(BuildManifest.FILE_NAME))).isFalse();
+  }
+
+  @Test
+  public void firstRunRendersEverything() throws IOException {
+    BuildManifest manifest = BuildManifest.load(config, output);
+    Path page = createFile(output.resolve("page.html"));
+
+    assertThat(manifest.isInputUnchanged(input)).isFalse();
+    assertThat(manifest.updatePage(page, hash("content"))).isFalse();
+    assertThat(manifest.getSkippedPageCount()).isEqualTo(0);
+
+    manifest.write();
+    assertThat(exists(output.resolve(BuildManifest.FILE_NAME))).isTrue();
+  }
+
+  @Test
+  public void skipsPagesWithUnchangedContent() throws IOException {
+    Path same = createFile(output.resolve("same.html"));
+    Path changed = createFile(output.resolve("changed.html"));
+
+    BuildManifest first = BuildManifest.load(config, output);
+    first.updatePage(same, hash("same"));
+    first.updatePage(changed, hash("before"));
+    first.write();
+
+    BuildManifest second = BuildManifest.load(config, output);
+    assertThat(second.updatePage(same, hash("same"))).isTrue();
+    assertThat(second.updatePage(changed, hash("after"))).isFalse();
+    assertThat(second.getSkippedPageCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void doesNotSkipPagesThatWereDeleted() throws IOException {
+    Path page = createFile(output.resolve("page.html"));
+
+    BuildManifest first = BuildManifest.load(config, output);
+    first.updatePage(page, hash("content"));
+    first.write();
+
+    delete(page);
+
+    BuildManifest second = BuildManifest.load(config, output);
+    assertThat(second.updatePage(page, hash("content"))).isFalse();
+  }
+
+  @Test
+  public void carriesForwardPagesForUnchangedInputs() throws IOException {
+    Path page = output.resolve("source/input.js.src.html");
+    createDirectories(page.getParent());
+    createFile(page);
+
+    BuildManifest first = BuildManifest.load(config, output);
+    first.updatePage(page, hash("content"));
+    first.write();
+
+    BuildManifest second = BuildManifest.load(config, output);
+    assertThat(second.isInputUnchanged(input)).isTrue();
+    assertThat(second.carryForward(page)).isTrue();
+    second.write();
+
+    write(input, "var x = 2;".getBytes(UTF_8));
+
+    BuildManifest third = BuildManifest.load(config, output);
+    assertThat(third.isInputUnchanged(input)).isFalse();
+  }
+
+  @Test
+  public void advancingTreatsTheLastRunAsThePreviousRun() throws IOException {
+    Path same = createFile(output.resolve("same.html"));
+    Path changed = createFile(output.resolve("changed.html"));
+
+    BuildManifest manifest = BuildManifest.load(config, output);
+    manifest.updatePage(same, hash("same"));
+    manifest.updatePage(changed, hash("before"));
+
+    manifest.advance(config);
+    assertThat(manifest.isInputUnchanged(input)).isTrue();
+    assertThat(manifest.updatePage(same, hash("same"))).isTrue();
+    assertThat(manifest.updatePage(changed, hash("after"))).isFalse();
+    assertThat(manifest.getSkippedPageCount()).isEqualTo(1);
+
+    write(input, "var x = 2;".getBytes(UTF_8));
+    manifest.advance(config);
+    assertThat(manifest.isInputUnchanged(input)).isFalse();
+    assertThat(manifest.updatePage(changed, hash("after"))).isTrue();
+    assertThat(manifest.getSkippedPageCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void configChangeInvalidatesPreviousRun() throws IOException {
+    Path page = createFile(output.resolve("page.html"));
+
+    BuildManifest first = BuildManifest.load(config, output);
+    first.updatePage(page, hash("content"));
+    first.write();
+
+    Config newConfig =
+        Config.builder()
+            .setFileSystem(fs)
+            .setOutput(output)
+            .setSources(ImmutableSet.of(input))
+            .setStrict(true)
+            .build();
+
+    BuildManifest second = BuildManifest.load(newConfig, output);
+    assertThat(second.isInputUnchanged(input)).isFalse();
+    assertThat(second.updatePage(page, hash("content"))).isFalse();
+  }
+
+  private static HashCode hash(String content) {
+    return Hashing.sha256().hashString(content, UTF_8);
+  }
+}
@@ -0,0 +1,114 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.jimfs.Jimfs;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ClosureDependencyCache}. */
+@RunWith(JUnit4.class)
+public class ClosureDependencyCacheTest {
+
+  private final FileSystem fs = Jimfs.newFileSystem();
+
+  @Test
+  public void returnsDependenciesForUnchangedFiles() throws IOException {
+    ClosureDependencyCache cache = ClosureDependencyCache.open(fs.getPath("/cache"));
+    Path base = fs.getPath("/closure/goog");
+    Path file = fs.getPath("/src/foo.js");
+
+    String hash = ClosureDependencyCache.hash(base, "goog.provide('foo');");
+    assertThat(cache.get(file, hash)).isNull();
+
+    cache.put(file, hash, "goog.addDependency('../../src/foo.js', ['foo'], []);\n");
+    assertThat(cache.get(file, hash))
+        .isEqualTo("goog.addDependency('../../src/foo.js', ['foo'], []);\n");
+    assertThat(cache.get(file, ClosureDependencyCache.hash(base, "goog.provide('bar');")))
+        .isNull();
+    Path otherBase = fs.getPath("/lib/goog");
+    assertThat(cache.get(file, ClosureDependencyCache.hash(otherBase, "goog.provide('foo');")))
+        .isNull();
+  }
+
+  @Test
+  public void persistsEntriesToCacheDirectory() throws IOException {
+    Path dir = fs.getPath("/cache");
+    Path file = fs.getPath("/src/foo.js");
+    String hash = ClosureDependencyCache.hash(fs.getPath("/closure/goog"), "var foo;");
+
+    ClosureDependencyCache cache = ClosureDependencyCache.open(dir);
+    cache.put(file, hash, "deps");
+    cache.write();
+
+    assertThat(Files.exists(dir.resolve(ClosureDependencyCache.FILE_NAME))).isTrue();
+    assertThat(ClosureDependencyCache.open(dir).get(file, hash)).isEqualTo("deps");
+  }
+
+  @Test
+  public void retainAllDiscardsEntriesForRemovedFiles() throws IOException {
+    Path dir = fs.getPath("/cache");
+    Path foo = fs.getPath("/src/foo.js");
+    Path bar = fs.getPath("/src/bar.js");
+
+    ClosureDependencyCache cache = ClosureDependencyCache.open(dir);
+    cache.put(foo, "1", "foo deps");
+    cache.put(bar, "2", "bar deps");
+    cache.retainAll(ImmutableList.of(foo));
+    cache.write();
+
+    cache = ClosureDependencyCache.open(dir);
+    assertThat(cache.get(foo, "1")).isEqualTo("foo deps");
+    assertThat(cache.get(bar, "2")).isNull();
+  }
+
+  @Test
+  public void ignoresInvalidCacheFile() throws IOException {
+    Path dir = fs.getPath("/cache");
+    Files.createDirectories(dir);
+    Files.write(dir.resolve(ClosureDependencyCache.FILE_NAME), "{\"version\":".getBytes(UTF_8));
+
+    ClosureDependencyCache cache = ClosureDependencyCache.open(dir);
+    assertThat(cache.get(fs.getPath("/src/foo.js"), "1")).isNull();
+
+    cache.put(fs.getPath("/src/foo.js"), "1", "deps");
+    cache.write();
+    assertThat(ClosureDependencyCache.open(dir).get(fs.getPath("/src/foo.js"), "1"))
+        .isEqualTo("deps");
+  }
+
+  @Test
+  public void ignoresCacheFileWithDifferentVersion() throws IOException {
+    Path dir = fs.getPath("/cache");
+    Files.createDirectories(dir);
+    Files.write(
+        dir.resolve(ClosureDependencyCache.FILE_NAME),
+        "{\"version\":0,\"files\":{\"/src/foo.js\":{\"hash\":\"1\",\"deps\":\"deps\"}}}"
+            .getBytes(UTF_8));
+
+    assertThat(ClosureDependencyCache.open(dir).get(fs.getPath("/src/foo.js"), "1")).isNull();
+  }
+}
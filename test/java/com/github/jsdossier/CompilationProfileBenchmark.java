@@ -0,0 +1,152 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.github.jsdossier.annotations.Externs;
+import com.github.jsdossier.annotations.Input;
+import com.github.jsdossier.annotations.Stdout;
+import com.github.jsdossier.annotations.StrictMode;
+import com.github.jsdossier.jscomp.CompilationProfile;
+import com.github.jsdossier.jscomp.DossierCommandLineRunner;
+import com.github.jsdossier.jscomp.DossierCompiler;
+import com.github.jsdossier.testing.GuiceRule;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.google.common.jimfs.Jimfs;
+import com.google.inject.AbstractModule;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the time taken to compile a code base under each {@link CompilationProfile}. The
+ * compiler is run through the {@link DossierCommandLineRunner}, so the diagnostic checks enabled
+ * for each profile are included. Each file in the code base defines a documented class whose
+ * methods contain enough code for the diagnostic checks to have something to inspect.
+ *
+ * <p>Run with {@code -prof gc} to compare the memory allocated by each profile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CompilationProfileBenchmark {
+
+  @Param({"200", "1000"})
+  public int numFiles;
+
+  @Param({"DEFAULT", "DOCS_ONLY"})
+  public CompilationProfile profile;
+
+  private DossierCommandLineRunner runner;
+  private DossierCompiler compiler;
+
+  @Setup(Level.Iteration)
+  public void setUp() throws IOException {
+    FileSystem fs = Jimfs.newFileSystem();
+    ImmutableSet.Builder<Path> sources = ImmutableSet.builder();
+    for (int i = 0; i < numFiles; i++) {
+      Path path = fs.getPath("/src/file" + i + ".js");
+      Files.createDirectories(path.getParent());
+      Files.write(path, generateSource(i).getBytes(UTF_8));
+      sources.add(path);
+    }
+    ImmutableSet<Path> inputs = sources.build();
+
+    Injector injector =
+        GuiceRule.builder(
+                this,
+                new AbstractModule() {
+                  @Override
+                  protected void configure() {
+                    bindConstant().annotatedWith(StrictMode.class).to(false);
+                    bind(PrintStream.class)
+                        .annotatedWith(Stdout.class)
+                        .toInstance(new PrintStream(ByteStreams.nullOutputStream()));
+                    bind(new Key<ImmutableSet<Path>>(Input.class) {}).toInstance(inputs);
+                    bind(new Key<ImmutableSet<Path>>(Externs.class) {})
+                        .toInstance(ImmutableSet.of());
+                  }
+                })
+            .setInputFs(fs)
+            .setSourcePrefix("/src")
+            .setCompilationProfile(profile)
+            .setUseNodeLibrary(false)
+            .build()
+            .createInjector();
+    runner = injector.getInstance(DossierCommandLineRunner.class);
+    compiler = injector.getInstance(DossierCompiler.class);
+  }
+
+  @Benchmark
+  public DossierCompiler compile() throws IOException {
+    runner.call();
+    return compiler;
+  }
+
+  private static String generateSource(int i) {
+    String name = "Type" + i;
+    StringBuilder source = new StringBuilder();
+    source.append("/** A generated class. */\n");
+    source.append(i == 0 ? "class " + name + " {\n" : "class " + name + " extends Type0 {\n");
+    source.append("  /** @param {number} n The count. */\n");
+    source.append("  constructor(n) {\n");
+    if (i != 0) {
+      source.append("    super(n);\n");
+    }
+    source.append("    /** @private {number} */\n");
+    source.append("    this.n_ = n;\n");
+    source.append("  }\n\n");
+    source.append("  /** @deprecated Use {@link #format}. */\n");
+    source.append("  legacy() { return this.format('x'); }\n\n");
+    source.append("  /**\n");
+    source.append("   * Formats a value.\n");
+    source.append("   * @param {string} value The value.\n");
+    source.append("   * @return {string} The formatted value.\n");
+    source.append("   */\n");
+    source.append("  format(value) {\n");
+    source.append("    let result = '';\n");
+    source.append("    for (let j = 0; j < this.n_; j++) {\n");
+    source.append("      result += value.replace(/[a-z]+(\\d*)/g, '$1');\n");
+    source.append("    }\n");
+    source.append("    return result;\n");
+    source.append("  }\n");
+    source.append("}\n");
+    return source.toString();
+  }
+}
@@ -0,0 +1,166 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.newDirectoryStream;
+import static java.nio.file.Files.write;
+
+import com.github.jsdossier.proto.Index;
+import com.github.jsdossier.proto.NamedType;
+import com.github.jsdossier.proto.PageData;
+import com.github.jsdossier.proto.RenderSnapshot;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.jimfs.Jimfs;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link CompileCache}. */
+@RunWith(JUnit4.class)
+public class CompileCacheTest {
+
+  private final FileSystem fs = Jimfs.newFileSystem();
+
+  private Path cacheDir;
+  private Path input;
+  private Config config;
+
+  @Before
+  public void setUp() throws IOException {
+    cacheDir = fs.getPath("/cache");
+
+    input = fs.getPath("/src/input.js");
+    createDirectories(input.getParent());
+    write(input, "var x = 1;".getBytes(UTF_8));
+
+    config =
+        Config.builder()
+            .setFileSystem(fs)
+            .setOutput(fs.getPath("/out"))
+            .setSources(ImmutableSet.of(input))
+            .build();
+  }
+
+  @Test
+  public void disabledCacheNeverRecords() throws IOException {
+    CompileCache cache = CompileCache.disabled();
+
+    assertThat(cache.isEnabled()).isFalse();
+    assertThat(cache.isRecording()).isFalse();
+    assertThat(cache.getSnapshot().isPresent()).isFalse();
+
+    cache.recordPage(fs.getPath("a.html"), page("a"));
+    assertThat(cache.getPageCount()).isEqualTo(0);
+
+    cache.write();
+    assertThat(exists(cacheDir)).isFalse();
+  }
+
+  @Test
+  public void restoresSnapshotForUnchangedInputs() throws IOException {
+    Index index = Index.newBuilder().addType(entry("Foo")).build();
+
+    CompileCache first = CompileCache.open(cacheDir, config, Shard.all());
+    assertThat(first.getSnapshot().isPresent()).isFalse();
+    assertThat(first.isRecording()).isTrue();
+    first.recordPage(fs.getPath("b.html"), page("b"));
+    first.recordPage(fs.getPath("type/a.html"), page("a"));
+    first.recordIndex(index);
+    first.write();
+    assertThat(first.getHitCount()).isEqualTo(0);
+    assertThat(first.getMissCount()).isEqualTo(1);
+    assertThat(first.getSnapshotSize()).isGreaterThan(0L);
+
+    CompileCache second = CompileCache.open(cacheDir, config, Shard.all());
+    assertThat(second.isRecording()).isFalse();
+    assertThat(second.getSnapshot().isPresent()).isTrue();
+
+    RenderSnapshot snapshot = second.getSnapshot().get();
+    assertThat(snapshot.getPageCount()).isEqualTo(2);
+    assertThat(snapshot.getPage(0).getPath()).isEqualTo("b.html");
+    assertThat(snapshot.getPage(0).getData()).isEqualTo(page("b"));
+    assertThat(snapshot.getPage(1).getPath()).isEqualTo("type/a.html");
+    assertThat(snapshot.getPage(1).getData()).isEqualTo(page("a"));
+    assertThat(snapshot.getIndex()).isEqualTo(index);
+
+    second.write();
+    assertThat(second.getHitCount()).isEqualTo(1);
+    assertThat(second.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void missesWhenAnInputChanges() throws IOException {
+    CompileCache first = CompileCache.open(cacheDir, config, Shard.all());
+    first.recordPage(fs.getPath("a.html"), page("a"));
+    first.write();
+
+    write(input, "var x = 2;".getBytes(UTF_8));
+
+    CompileCache second = CompileCache.open(cacheDir, config, Shard.all());
+    assertThat(second.getSnapshot().isPresent()).isFalse();
+    second.write();
+    assertThat(second.getMissCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void shardsHaveSeparateEntries() throws IOException {
+    CompileCache first = CompileCache.open(cacheDir, config, Shard.parse("1/2"));
+    first.recordPage(fs.getPath("a.html"), page("a"));
+    first.write();
+
+    assertThat(CompileCache.open(cacheDir, config, Shard.parse("2/2")).getSnapshot().isPresent())
+        .isFalse();
+    assertThat(CompileCache.open(cacheDir, config, Shard.parse("1/2")).getSnapshot().isPresent())
+        .isTrue();
+  }
+
+  @Test
+  public void ignoresCorruptEntries() throws IOException {
+    CompileCache first = CompileCache.open(cacheDir, config, Shard.all());
+    first.write();
+
+    try (DirectoryStream<Path> stream =
+        newDirectoryStream(cacheDir, "*" + CompileCache.SNAPSHOT_EXTENSION)) {
+      for (Path entry : stream) {
+        write(entry, "not a snapshot".getBytes(UTF_8));
+      }
+    }
+
+    CompileCache second = CompileCache.open(cacheDir, config, Shard.all());
+    assertThat(second.getSnapshot().isPresent()).isFalse();
+    assertThat(second.isRecording()).isTrue();
+  }
+
+  private static PageData page(String title) {
+    return PageData.newBuilder()
+        .setMarkdown(PageData.Markdown.newBuilder().setTitle(title))
+        .build();
+  }
+
+  private static Index.Entry entry(String name) {
+    return Index.Entry.newBuilder().setType(NamedType.newBuilder().setName(name)).build();
+  }
+}
@@ -0,0 +1,133 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import com.github.jsdossier.annotations.Input;
+import com.github.jsdossier.jscomp.DossierCompiler;
+import com.github.jsdossier.testing.CompilerUtil;
+import com.github.jsdossier.testing.GuiceRule;
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Injector;
+import com.google.javascript.jscomp.SourceFile;
+import java.nio.file.FileSystem;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time spent parsing a large code base and running the custom passes the {@link
+ * DossierCompiler} applies to each script. The code base contains one ES6 module per file, each of
+ * which imports the module before it and exports a documented class.
+ *
+ * <p>Each benchmark is run twice: once with every available processor, and once restricted to a
+ * single processor so the passes run serially. Compare the two to measure the speedup from running
+ * passes over independent scripts concurrently.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CompilerPassBenchmark {
+
+  @Param({"2000", "5000"})
+  public int numFiles;
+
+  @Inject @Input FileSystem fs;
+  @Inject CompilerUtil util;
+
+  private List<SourceFile> inputs;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    Injector injector =
+        GuiceRule.builder(this)
+            .setSourcePrefix("/src")
+            .setModulePrefix("/src/modules")
+            .setUseNodeLibrary(false)
+            .build()
+            .createInjector();
+    injector.injectMembers(this);
+
+    inputs = new ArrayList<>(numFiles);
+    for (int i = 0; i < numFiles; i++) {
+      inputs.add(
+          CompilerUtil.createSourceFile(fs.getPath("/src/modules/file" + i + ".js"), lines(i)));
+    }
+  }
+
+  @Benchmark
+  public DossierCompiler parseForCompilation() {
+    return parse();
+  }
+
+  @Benchmark
+  @Fork(value = 1, jvmArgsAppend = "-XX:ActiveProcessorCount=1")
+  public DossierCompiler parseForCompilation_singleProcessor() {
+    return parse();
+  }
+
+  private DossierCompiler parse() {
+    DossierCompiler compiler = util.getCompiler();
+    compiler.init(ImmutableList.<SourceFile>of(), inputs, util.getOptions());
+    compiler.parseForCompilation();
+    return compiler;
+  }
+
+  private static String[] lines(int i) {
+    List<String> lines = new ArrayList<>();
+    if (i > 0) {
+      lines.add("import {Type" + (i - 1) + " as Base} from './file" + (i - 1) + ".js';");
+    } else {
+      lines.add("class Base {}");
+    }
+    lines.add("");
+    lines.add("/** The number of instances created. */");
+    lines.add("let count = 0;");
+    lines.add("");
+    lines.add("/** A generated class. */");
+    lines.add("export class Type" + i + " extends Base {");
+    lines.add("  /** @param {number} n A number. */");
+    lines.add("  constructor(n) {");
+    lines.add("    super();");
+    lines.add("    /** @const {number} */");
+    lines.add("    this.n = n;");
+    lines.add("    count++;");
+    lines.add("  }");
+    lines.add("}");
+    lines.add("");
+    lines.add("/** @return {number} The number of instances created. */");
+    lines.add("export function getCount" + i + "() { return count; }");
+    lines.add("");
+    lines.add("export {Type" + i + " as Alias" + i + "};");
+    return lines.toArray(new String[0]);
+  }
+}
@@ -26,6 +26,7 @@ import static java.nio.file.Files.write;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
+import com.github.jsdossier.jscomp.CompilationProfile;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.jimfs.Jimfs;
 import com.google.gson.JsonArray;
@@ -459,6 +460,149 @@ public class ConfigTest {
     assertThat(config).isEqualTo(expected);
   }
 
+  @Test
+  public void recordsClosureDependenciesOfParsedSourcesInTheCache() throws IOException {
+    Path closure = createClosureLibrary();
+    Path source = fs.getPath("/src/one.js");
+    createDirectories(source.getParent());
+    String content = "goog.provide('one'); goog.require('goog.dom');";
+    write(source, content.getBytes(UTF_8));
+
+    ClosureDependencyCache cache = ClosureDependencyCache.inMemory();
+    load(closureConfig(closure, source), cache);
+
+    String deps = cache.get(source, ClosureDependencyCache.hash(closure, content));
+    assertThat(deps).contains("'one'");
+    assertThat(deps).contains("'goog.dom'");
+  }
+
+  @Test
+  public void usesCachedClosureDependenciesForUnchangedSources() throws IOException {
+    Path closure = createClosureLibrary();
+    Path source = fs.getPath("/src/one.js");
+    createDirectories(source.getParent());
+    String content = "goog.provide('one'); goog.require('goog.dom');";
+    write(source, content.getBytes(UTF_8));
+
+    // The cached entry claims the source only requires goog.array. Since the source is unchanged,
+    // the cached entry is used instead of parsing the source again.
+    ClosureDependencyCache cache = ClosureDependencyCache.inMemory();
+    cache.put(
+        source,
+        ClosureDependencyCache.hash(closure, content),
+        "goog.addDependency('../../../src/one.js', ['one'], ['goog.array'], false);\n");
+
+    Config config = load(closureConfig(closure, source), cache);
+    assertThat(config.getSources())
+        .containsExactly(closure.resolve("base.js"), closure.resolve("array/array.js"), source)
+        .inOrder();
+
+    // Once the source changes, it is parsed again.
+    content = "goog.provide('one'); goog.require('goog.dom'); var x;";
+    write(source, content.getBytes(UTF_8));
+    config = load(closureConfig(closure, source), cache);
+    assertThat(config.getSources())
+        .containsExactly(
+            closure.resolve("base.js"),
+            closure.resolve("array/array.js"),
+            closure.resolve("dom/dom.js"),
+            source)
+        .inOrder();
+  }
+
+  @Test
+  public void eachInMemoryDependencyCacheIsIndependent() throws IOException {
+    Path closure = createClosureLibrary();
+    Path source = fs.getPath("/src/one.js");
+    createDirectories(source.getParent());
+    String content = "goog.provide('one');";
+    write(source, content.getBytes(UTF_8));
+
+    load(closureConfig(closure, source));
+
+    ClosureDependencyCache cache = ClosureDependencyCache.inMemory();
+    assertThat(cache.get(source, ClosureDependencyCache.hash(closure, content))).isNull();
+  }
+
+  @Test
+  public void parsesCompilationProfile() throws IOException {
+    Path source = fs.getPath("/src/one.js");
+    createDirectories(source.getParent());
+    createFile(source);
+
+    JsonObject json = new JsonObject();
+    json.addProperty("output", fs.getPath("/out").toString());
+    json.add("sources", jsonArray(source));
+    assertThat(load(json.toString()).getCompilationProfile())
+        .isEqualTo(CompilationProfile.DEFAULT);
+
+    json.addProperty("compilationProfile", "DOCS_ONLY");
+    assertThat(load(json.toString()).getCompilationProfile())
+        .isEqualTo(CompilationProfile.DOCS_ONLY);
+  }
+
+  @Test
+  public void docsOnlyProfileMayNotBeUsedInStrictMode() throws IOException {
+    createFile(fs.getPath("a.js"));
+    Config.Builder builder =
+        Config.builder()
+            .setFileSystem(fs)
+            .setOutput(fs.getPath("out"))
+            .setSources(ImmutableSet.of(fs.getPath("a.js")))
+            .setCompilationProfile(CompilationProfile.DOCS_ONLY)
+            .setStrict(true);
+
+    try {
+      builder.build();
+      fail();
+    } catch (InvalidConfigurationException expected) {
+      assertThat(expected)
+          .hasMessageThat()
+          .isEqualTo("Strict mode requires the DEFAULT compilation profile");
+    }
+  }
+
+  @Test
+  public void excludedDirectoriesArePrunedWhenExpandingInputs() throws IOException {
+    Path rootDir = fs.getPath("/root");
+    createDirectories(rootDir.resolve("vendor/lib"));
+    createDirectories(rootDir.resolve("lib"));
+    createFile(rootDir.resolve("main.js"));
+    createFile(rootDir.resolve("lib/util.js"));
+    createFile(rootDir.resolve("lib/util_test.js"));
+    createFile(rootDir.resolve("vendor/jquery.js"));
+    createFile(rootDir.resolve("vendor/lib/sizzle.js"));
+
+    JsonObject json = new JsonObject();
+    json.addProperty("output", rootDir.resolveSibling("out").toString());
+    json.add("sources", jsonArray(rootDir));
+    json.add("excludes", jsonArray(rootDir.resolve("vendor"), rootDir.resolve("lib/*_test.js")));
+
+    Config config = load(json.toString());
+    assertThat(config.getSources())
+        .containsExactly(rootDir.resolve("main.js"), rootDir.resolve("lib/util.js"));
+    assertThat(config.getExcludes())
+        .containsExactly(rootDir.resolve("vendor"), rootDir.resolve("lib/util_test.js"));
+  }
+
+  @Test
+  public void excludedDirectoriesAreRemovedFromInputsSetOnTheBuilder() throws IOException {
+    Path rootDir = fs.getPath("/root");
+    createDirectories(rootDir.resolve("vendor"));
+    createFile(rootDir.resolve("main.js"));
+    createFile(rootDir.resolve("vendor/jquery.js"));
+
+    Config config =
+        Config.builder()
+            .setFileSystem(fs)
+            .setOutput(rootDir.resolveSibling("out"))
+            .setSources(
+                ImmutableSet.of(rootDir.resolve("main.js"), rootDir.resolve("vendor/jquery.js")))
+            .setExcludes(ImmutableSet.of(rootDir.resolve("vendor")))
+            .build();
+    assertThat(config.getSources()).containsExactly(rootDir.resolve("main.js"));
+  }
+
   private JsonArray jsonArray(Object... items) {
     JsonArray array = new JsonArray();
     for (Object item : items) {
@@ -472,6 +616,35 @@ public class ConfigTest {
     return Config.fromJson(input, fs);
   }
 
+  private Config load(String string, ClosureDependencyCache cache) {
+    ByteArrayInputStream input = new ByteArrayInputStream(string.getBytes(StandardCharsets.UTF_8));
+    return Config.fromJson(input, fs, cache);
+  }
+
+  /** Creates a stub Closure library with goog.array and goog.dom, which requires goog.array. */
+  private Path createClosureLibrary() throws IOException {
+    Path closure = fs.getPath("/tp/closure/goog");
+    createDirectories(closure.resolve("array"));
+    createDirectories(closure.resolve("dom"));
+    createFile(closure.resolve("base.js"));
+    createFile(closure.resolve("array/array.js"));
+    createFile(closure.resolve("dom/dom.js"));
+    write(
+        closure.resolve("deps.js"),
+        ("goog.addDependency('array/array.js', ['goog.array'], [], false);\n"
+                + "goog.addDependency('dom/dom.js', ['goog.dom'], ['goog.array'], false);\n")
+            .getBytes(UTF_8));
+    return closure;
+  }
+
+  private String closureConfig(Path closure, Path source) {
+    JsonObject json = new JsonObject();
+    json.addProperty("output", fs.getPath("/out").toString());
+    json.add("sources", jsonArray(source));
+    json.addProperty("closureLibraryDir", closure.toString());
+    return json.toString();
+  }
+
   @SafeVarargs
   private static <T> void assertContentsAnyOrder(Iterable<T> iterable, T... expected) {
     assertEquals(ImmutableSet.copyOf(expected), ImmutableSet.copyOf(iterable));
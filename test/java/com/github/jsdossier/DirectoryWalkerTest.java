@@ -0,0 +1,142 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.jimfs.Jimfs;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link DirectoryWalker}. */
+@RunWith(JUnit4.class)
+public class DirectoryWalkerTest {
+
+  private final FileSystem fs = Jimfs.newFileSystem();
+
+  @Test
+  public void collectsFilesInEveryDirectory() throws IOException {
+    List<Path> expected = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 5; j++) {
+        expected.add(createFile("/src/dir" + i + "/sub" + j + "/file.js"));
+      }
+    }
+    createFile("/src/readme.txt");
+
+    DirectoryWalker walker = DirectoryWalker.create(path -> true);
+    List<Path> files = walker.walk(fs.getPath("/src"), path -> path.toString().endsWith(".js"));
+
+    assertThat(files).containsExactlyElementsIn(expected);
+    assertThat(walker.getFileCount()).isEqualTo(50);
+    assertThat(walker.getDirectoryCount()).isEqualTo(61);
+    assertThat(walker.getPrunedCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void listsFilesBeforeTheFilesInSubdirectories() throws IOException {
+    Path nested = createFile("/src/a/nested.js");
+    Path top = createFile("/src/top.js");
+
+    List<Path> files = DirectoryWalker.create(path -> true).walk(fs.getPath("/src"), path -> true);
+    assertThat(files).containsExactly(top, nested).inOrder();
+  }
+
+  @Test
+  public void prunesRejectedDirectories() throws IOException {
+    Path main = createFile("/src/main.js");
+    createFile("/src/vendor/a.js");
+    createFile("/src/vendor/lib/b.js");
+    Path util = createFile("/src/lib/util.js");
+    createFile("/src/lib/skip.js");
+
+    ImmutableSet<Path> excluded =
+        ImmutableSet.of(fs.getPath("/src/vendor"), fs.getPath("/src/lib/skip.js"));
+    DirectoryWalker walker = DirectoryWalker.create(path -> !excluded.contains(path));
+    List<Path> files = walker.walk(fs.getPath("/src"), path -> true);
+
+    assertThat(files).containsExactly(main, util);
+    assertThat(walker.getDirectoryCount()).isEqualTo(2);
+    assertThat(walker.getPrunedCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void accumulatesStatsAcrossWalks() throws IOException {
+    createFile("/a/one.js");
+    createFile("/b/two.js");
+
+    DirectoryWalker walker = DirectoryWalker.create(path -> true);
+    walker.walk(fs.getPath("/a"), path -> true);
+    walker.walk(fs.getPath("/b"), path -> true);
+
+    assertThat(walker.getFileCount()).isEqualTo(2);
+    assertThat(walker.getDirectoryCount()).isEqualTo(2);
+    assertThat(walker.toString()).startsWith("2 files in 2 directories (0 paths pruned) in ");
+  }
+
+  @Test
+  public void followsSymbolicLinksToDirectories() throws IOException {
+    createFile("/lib/util.js");
+    Path main = createFile("/src/main.js");
+    Files.createSymbolicLink(fs.getPath("/src/lib"), fs.getPath("/lib"));
+    Files.createSymbolicLink(fs.getPath("/src/main_link.js"), main);
+
+    List<Path> files = DirectoryWalker.create(path -> true).walk(fs.getPath("/src"), path -> true);
+    assertThat(files)
+        .containsExactly(main, fs.getPath("/src/main_link.js"), fs.getPath("/src/lib/util.js"));
+  }
+
+  @Test
+  public void doesNotFollowSymbolicLinkCycles() throws IOException {
+    Path a = createFile("/src/a/a.js");
+    Path b = createFile("/src/b/b.js");
+    Files.createSymbolicLink(fs.getPath("/src/a/up"), fs.getPath("/src"));
+    Files.createSymbolicLink(fs.getPath("/src/a/to_b"), fs.getPath("/src/b"));
+    Files.createSymbolicLink(fs.getPath("/src/b/to_a"), fs.getPath("/src/a"));
+
+    List<Path> files = DirectoryWalker.create(path -> true).walk(fs.getPath("/src"), path -> true);
+    assertThat(files)
+        .containsExactly(a, b, fs.getPath("/src/a/to_b/b.js"), fs.getPath("/src/b/to_a/a.js"));
+  }
+
+  @Test
+  public void rejectsPathsThatAreNotDirectories() throws IOException {
+    Path file = createFile("/src/main.js");
+    try {
+      DirectoryWalker.create(path -> true).walk(file, path -> true);
+      fail();
+    } catch (IllegalArgumentException expected) {
+      assertThat(expected).hasMessageThat().isEqualTo("/src/main.js is not a directory");
+    }
+  }
+
+  private Path createFile(String name) throws IOException {
+    Path path = fs.getPath(name);
+    Files.createDirectories(path.getParent());
+    Files.createFile(path);
+    return path;
+  }
+}
@@ -0,0 +1,124 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.github.jsdossier;
+
+import static com.google.common.collect.Iterables.getOnlyElement;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.github.jsdossier.jscomp.CompilationProfile;
+import com.github.jsdossier.jscomp.NominalType;
+import com.github.jsdossier.jscomp.TypeRegistry;
+import com.github.jsdossier.proto.Function;
+import com.github.jsdossier.proto.NamedType;
+import com.github.jsdossier.testing.CompilerUtil;
+import com.github.jsdossier.testing.GuiceRule;
+import com.google.common.jimfs.Jimfs;
+import com.google.javascript.rhino.jstype.FunctionType;
+import java.nio.file.FileSystem;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests that compiling with the {@link CompilationProfile#DOCS_ONLY} profile still collects
+ * everything needed to document each type, even though the type checker does not run.
+ */
+@RunWith(JUnit4.class)
+public class DocsOnlyCompilationTest {
+
+  private static final FileSystem FILE_SYSTEM = Jimfs.newFileSystem();
+
+  @Rule
+  public GuiceRule guice =
+      GuiceRule.builder(this)
+          .setCompilationProfile(CompilationProfile.DOCS_ONLY)
+          .setUseNodeLibrary(false)
+          .setSourcePrefix("/src")
+          .setOutputDir("/out")
+          .build();
+
+  @Inject CompilerUtil util;
+  @Inject TypeRegistry typeRegistry;
+  @Inject TypeInspectorFactory typeInspectorFactory;
+
+  @Test
+  public void doesNotRunTheTypeChecker() {
+    assertThat(util.getOptions().checkTypes).isFalse();
+    assertThat(util.getOptions().inferTypes).isTrue();
+  }
+
+  @Test
+  public void collectsTypesAndTheirHierarchy() {
+    compile(
+        "/** @interface */ function Greeter() {}",
+        "/** @constructor @implements {Greeter} */ function A() {}",
+        "/** @constructor @extends {A} */ function B() {}");
+
+    NominalType a = typeRegistry.getType("A");
+    NominalType b = typeRegistry.getType("B");
+    assertThat(a.getType().isConstructor()).isTrue();
+    assertThat(((FunctionType) b.getType()).getSuperClassConstructor()).isSameAs(a.getType());
+
+    assertThat(names(typeInspectorFactory.create(b).getTypeHierarchy()))
+        .containsExactly("B", "A")
+        .inOrder();
+    assertThat(names(typeInspectorFactory.create(a).getImplementedTypes()))
+        .containsExactly("Greeter");
+    assertThat(names(typeInspectorFactory.create(a).getSubtypes())).containsExactly("B");
+  }
+
+  @Test
+  public void resolvesInheritedMembersAndTheirParameterTypes() {
+    compile(
+        "/** @constructor */ function A() {}",
+        "",
+        "/**",
+        " * Says hello.",
+        " * @param {string} name The person to greet.",
+        " * @return {number} The greeting's length.",
+        " */",
+        "A.prototype.greet = function(name) { return name.length; };",
+        "",
+        "/** @constructor @extends {A} */ function B() {}");
+
+    NominalType b = typeRegistry.getType("B");
+    TypeInspector.Report report = typeInspectorFactory.create(b).inspectInstanceType();
+
+    Function greet = getOnlyElement(report.getFunctions());
+    assertThat(greet.getBase().getName()).isEqualTo("greet");
+    assertThat(greet.getBase().getDefinedBy().getName()).isEqualTo("A");
+    assertThat(greet.getBase().getDescription().getToken(0).getHtml())
+        .isEqualTo("<p>Says hello.</p>\n");
+
+    assertThat(greet.getParameterCount()).isEqualTo(1);
+    assertThat(greet.getParameter(0).getName()).isEqualTo("name");
+    assertThat(greet.getParameter(0).getType().getNamedType().getName()).isEqualTo("string");
+    assertThat(greet.getReturn().getType().getNamedType().getName()).isEqualTo("number");
+  }
+
+  private void compile(String... lines) {
+    util.compile(FILE_SYSTEM.getPath("/src/foo.js"), lines);
+  }
+
+  private static List<String> names(Collection<NamedType> types) {
+    return types.stream().map(NamedType::getName).collect(Collectors.toList());
+  }
+}
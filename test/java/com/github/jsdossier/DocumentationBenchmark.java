@@ -0,0 +1,193 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import com.github.jsdossier.jscomp.NominalType;
+import com.github.jsdossier.proto.Comment;
+import com.github.jsdossier.proto.JsType;
+import com.github.jsdossier.proto.NamedType;
+import com.github.jsdossier.proto.PageData;
+import com.github.jsdossier.proto.Resources;
+import com.github.jsdossier.proto.TypeExpression;
+import com.github.jsdossier.soy.JsonRenderer;
+import com.github.jsdossier.soy.Renderer;
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Injector;
+import com.google.javascript.rhino.jstype.FunctionType;
+import com.google.javascript.rhino.jstype.JSType;
+import com.google.javascript.rhino.jstype.ObjectType;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the hot paths in generating the documentation for a single type. Each benchmark
+ * operates on a {@link BenchmarkFixture} and cycles through the generated types so results are not
+ * skewed by a single, unusually cheap or expensive input.
+ *
+ * <p>Run with {@code bazel run //test/java/com/github/jsdossier:benchmarks}. Standard JMH options
+ * may be passed after {@code --}, e.g.
+ * {@code -- -p numTypes=100 DocumentationBenchmark.parseComment}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentationBenchmark {
+
+  @Param({"10", "100"})
+  public int numTypes;
+
+  @Param({"1", "5"})
+  public int inheritanceDepth;
+
+  @Param({"10", "200"})
+  public int commentWords;
+
+  private TypeInspectorFactory typeInspectorFactory;
+  private LinkFactoryBuilder linkFactoryBuilder;
+  private TypeExpressionParserFactory parserFactory;
+  private CommentParser commentParser;
+  private JsonRenderer jsonRenderer;
+  private Renderer renderer;
+
+  private ImmutableList<NominalType> types;
+  private ImmutableList<NominalType> leafTypes;
+  private List<LinkFactory> linkFactories;
+  private List<JSType> methodTypes;
+  private List<String> comments;
+  private List<PageData> pages;
+  private Path output;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    BenchmarkFixture fixture = new BenchmarkFixture(numTypes, inheritanceDepth, commentWords);
+    Injector injector = fixture.getInjector();
+
+    typeInspectorFactory = injector.getInstance(TypeInspectorFactory.class);
+    linkFactoryBuilder = injector.getInstance(LinkFactoryBuilder.class);
+    parserFactory = injector.getInstance(TypeExpressionParserFactory.class);
+    commentParser = injector.getInstance(CommentParser.class);
+    jsonRenderer = injector.getInstance(JsonRenderer.class);
+    renderer = injector.getInstance(Renderer.class);
+
+    types = fixture.getTypes();
+    leafTypes = fixture.getLeafTypes();
+    output = fixture.fs.getPath("/out/benchmark.html");
+
+    linkFactories = new ArrayList<>();
+    methodTypes = new ArrayList<>();
+    comments = new ArrayList<>();
+    pages = new ArrayList<>();
+    for (NominalType type : types) {
+      linkFactories.add(linkFactoryBuilder.create(type));
+      comments.add(type.getJsDoc().getBlockComment());
+
+      ObjectType instanceType = ((FunctionType) type.getType()).getInstanceType();
+      for (String name : instanceType.getOwnPropertyNames()) {
+        methodTypes.add(instanceType.getPropertyType(name));
+      }
+    }
+
+    for (NominalType type : leafTypes) {
+      pages.add(buildPage(type));
+    }
+  }
+
+  private PageData buildPage(NominalType type) {
+    TypeInspector inspector = typeInspectorFactory.create(type);
+    TypeInspector.Report report = inspector.inspectInstanceType();
+    JsType jsType =
+        JsType.newBuilder()
+            .setName(type.getName())
+            .setDescription(inspector.getTypeDescription())
+            .addAllExtendedType(inspector.getTypeHierarchy())
+            .addAllMethod(report.getFunctions())
+            .addAllField(report.getProperties())
+            .build();
+    return PageData.newBuilder()
+        .setTypes(PageData.TypeCollection.newBuilder().addType(jsType))
+        .build();
+  }
+
+  private int next(int size) {
+    int index = next % size;
+    next = index + 1;
+    return index;
+  }
+
+  @Benchmark
+  public void inspectInstanceType(Blackhole blackhole) {
+    NominalType type = leafTypes.get(next(leafTypes.size()));
+    blackhole.consume(typeInspectorFactory.create(type).inspectInstanceType());
+  }
+
+  @Benchmark
+  public NamedType resolveTypeReference() {
+    int index = next(types.size());
+    return linkFactories
+        .get(index)
+        .resolveTypeReference(BenchmarkFixture.typeName((index + 1) % numTypes));
+  }
+
+  @Benchmark
+  public TypeExpression parseTypeExpression() {
+    int index = next(methodTypes.size());
+    return parserFactory
+        .create(linkFactories.get(index % linkFactories.size()))
+        .parse(methodTypes.get(index));
+  }
+
+  @Benchmark
+  public Comment parseComment() {
+    int index = next(comments.size());
+    return commentParser.parseComment(comments.get(index), linkFactories.get(index));
+  }
+
+  /** Benchmarks {@link com.github.jsdossier.soy.JsonEncoder} through its public entry point. */
+  @Benchmark
+  public String encodeJson() throws IOException {
+    StringWriter writer = new StringWriter();
+    jsonRenderer.render(writer, pages.get(next(pages.size())));
+    return writer.toString();
+  }
+
+  @Benchmark
+  public Path renderPage() throws IOException {
+    renderer.render(output, Resources.getDefaultInstance(), pages.get(next(pages.size())));
+    return output;
+  }
+}
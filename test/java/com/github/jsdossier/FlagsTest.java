@@ -0,0 +1,80 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.github.jsdossier;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.jimfs.Jimfs;
+import java.nio.file.FileSystem;
+import java.util.Locale;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link Flags}. */
+@RunWith(JUnit4.class)
+public class FlagsTest {
+
+  private final FileSystem fs = Jimfs.newFileSystem();
+
+  @Test
+  public void usesTheFixedExecutorByDefault() {
+    Flags flags = Flags.parse(new String[0], fs);
+    assertThat(flags.executor).isEqualTo(RenderExecutor.FIXED);
+    assertThat(flags.getNumThreads()).isEqualTo(RenderExecutor.FIXED.getDefaultNumThreads());
+  }
+
+  @Test
+  public void skipUnchangedWritesIsOffByDefault() {
+    assertThat(Flags.parse(new String[0], fs).skipUnchangedWrites).isFalse();
+    assertThat(Flags.parse(new String[] {"--skip_unchanged_writes"}, fs).skipUnchangedWrites)
+        .isTrue();
+  }
+
+  @Test
+  public void numThreadsDefaultsToTheSelectedExecutor() {
+    for (RenderExecutor type : RenderExecutor.values()) {
+      Flags flags = Flags.parse(new String[] {"--executor", flagValue(type)}, fs);
+      assertThat(flags.executor).isEqualTo(type);
+      assertThat(flags.getNumThreads()).isEqualTo(type.getDefaultNumThreads());
+    }
+  }
+
+  @Test
+  public void threadPerTaskExecutorIsBoundedByDefault() {
+    Flags flags = Flags.parse(new String[] {"--executor", "thread_per_task"}, fs);
+    assertThat(flags.getNumThreads()).isLessThan(Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void executorTypeMayUseDashes() {
+    Flags flags = Flags.parse(new String[] {"--executor", "work-stealing"}, fs);
+    assertThat(flags.executor).isEqualTo(RenderExecutor.WORK_STEALING);
+  }
+
+  @Test
+  public void explicitNumThreadsOverridesTheExecutorDefault() {
+    for (RenderExecutor type : RenderExecutor.values()) {
+      Flags flags =
+          Flags.parse(new String[] {"--executor", flagValue(type), "--num_threads", "3"}, fs);
+      assertThat(flags.getNumThreads()).isEqualTo(3);
+    }
+  }
+
+  private static String flagValue(RenderExecutor type) {
+    return type.name().toLowerCase(Locale.ROOT);
+  }
+}
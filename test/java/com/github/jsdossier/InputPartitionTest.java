@@ -0,0 +1,128 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.jimfs.Jimfs;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link InputPartition}. */
+@RunWith(JUnit4.class)
+public class InputPartitionTest {
+
+  private final FileSystem fs = Jimfs.newFileSystem();
+
+  @Test
+  public void groupsModulesByImportEdges() throws IOException {
+    Path a = createFile("/src/pkg1/a.js", "const b = require('./b');");
+    Path b = createFile("/src/pkg1/b.js", "import {c} from '../shared/c.js';");
+    Path c = createFile("/src/shared/c.js", "export const c = 1;");
+    Path d = createFile("/src/pkg2/d.js", "export * from './e';");
+    Path e = createFile("/src/pkg2/e/index.js", "exports.e = 1;");
+    Path f = createFile("/src/pkg3/f.js", "require('fs');");
+
+    Config config = newConfig().setModules(ImmutableSet.of(a, b, c, d, e, f)).build();
+    ImmutableList<InputPartition> partitions = InputPartition.partition(config, 3);
+
+    assertThat(partitions).hasSize(3);
+    assertThat(partitions.get(0).getConfig().getModules()).containsExactly(a, b, c).inOrder();
+    assertThat(partitions.get(1).getConfig().getModules()).containsExactly(d, e).inOrder();
+    assertThat(partitions.get(2).getConfig().getModules()).containsExactly(f);
+
+    for (int i = 0; i < partitions.size(); i++) {
+      InputPartition partition = partitions.get(i);
+      assertThat(partition.getShard().getIndex()).isEqualTo(i + 1);
+      assertThat(partition.getShard().getCount()).isEqualTo(3);
+      assertThat(partition.getShard().getOwnedFiles().get())
+          .containsExactlyElementsIn(partition.getConfig().getModules());
+      assertThat(partition.getConfig().getModulePrefix()).hasValue(fs.getPath("/src"));
+      assertThat(partition.getConfig().getSourcePrefix()).isEqualTo(config.getSourcePrefix());
+    }
+  }
+
+  @Test
+  public void packsGroupsIntoTheRequestedNumberOfPartitions() throws IOException {
+    Path a = createFile("/src/a.js", "var aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa;");
+    Path b = createFile("/src/b.js", "var b;");
+    Path c = createFile("/src/c.js", "var c;");
+
+    Config config = newConfig().setModules(ImmutableSet.of(a, b, c)).build();
+    ImmutableList<InputPartition> partitions = InputPartition.partition(config, 2);
+
+    assertThat(partitions).hasSize(2);
+    assertThat(partitions.get(0).getConfig().getModules()).containsExactly(a);
+    assertThat(partitions.get(1).getConfig().getModules()).containsExactly(b, c).inOrder();
+  }
+
+  @Test
+  public void groupsClosureSourcesByProvideAndRequireEdges() throws IOException {
+    Path base = createFile("/closure/base.js", "/** @provideGoog */ var goog = goog || {};");
+    Path x = createFile("/src/x.js", "goog.provide('x');");
+    Path y = createFile("/src/y.js", "goog.module('y');\nconst x = goog.require('x');");
+    Path z = createFile("/src/z.js", "goog.provide('z.Widget');\ngoog.requireType('other');");
+
+    Config config = newConfig().setSources(ImmutableSet.of(base, x, y, z)).build();
+    ImmutableList<InputPartition> partitions = InputPartition.partition(config, 4);
+
+    assertThat(partitions).hasSize(2);
+
+    InputPartition first = partitions.get(0);
+    assertThat(first.getConfig().getSources()).containsExactly(base, x, y).inOrder();
+    assertThat(first.getShard().owns(base)).isTrue();
+    assertThat(first.getShard().owns(x)).isTrue();
+    assertThat(first.getShard().owns(z)).isFalse();
+
+    InputPartition second = partitions.get(1);
+    assertThat(second.getConfig().getSources()).containsExactly(base, z).inOrder();
+    assertThat(second.getShard().owns(base)).isFalse();
+    assertThat(second.getShard().owns(z)).isTrue();
+  }
+
+  @Test
+  public void returnsASinglePartitionWhenInputsCannotBeSplit() throws IOException {
+    Path a = createFile("/src/a.js", "goog.provide('a');");
+    Path b = createFile("/src/b.js", "goog.require('a');");
+
+    Config config = newConfig().setSources(ImmutableSet.of(a, b)).build();
+    ImmutableList<InputPartition> partitions = InputPartition.partition(config, 4);
+
+    assertThat(partitions).hasSize(1);
+    assertThat(partitions.get(0).getConfig()).isSameAs(config);
+    assertThat(partitions.get(0).getShard()).isEqualTo(Shard.all());
+  }
+
+  private Config.Builder newConfig() {
+    return Config.builder().setFileSystem(fs).setOutput(fs.getPath("/out"));
+  }
+
+  private Path createFile(String name, String content) throws IOException {
+    Path path = fs.getPath(name);
+    Files.createDirectories(path.getParent());
+    Files.write(path, content.getBytes(UTF_8));
+    return path;
+  }
+}
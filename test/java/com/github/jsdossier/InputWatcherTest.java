@@ -0,0 +1,160 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.createDirectory;
+import static java.nio.file.Files.write;
+
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link InputWatcher}. These use the default file system, as the in-memory file system
+ * only polls for changes every few seconds.
+ */
+@RunWith(JUnit4.class)
+public class InputWatcherTest {
+
+  private static final long TIMEOUT_MS = 30_000;
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private Path root;
+  private Path src;
+  private Path input;
+  private Config config;
+  private InputWatcher watcher;
+
+  @Before
+  public void setUp() throws IOException {
+    root = tmp.getRoot().toPath().toRealPath();
+    src = createDirectories(root.resolve("src"));
+    input = root.resolve("src/input.js");
+    write(input, "var x = 1;".getBytes(UTF_8));
+
+    config =
+        Config.builder()
+            .setFileSystem(root.getFileSystem())
+            .setOutput(root.resolve("out"))
+            .setSources(ImmutableSet.of(input))
+            .build();
+
+    watcher = new InputWatcher(root.getFileSystem());
+    watcher.watch(config, Optional.empty());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    watcher.close();
+  }
+
+  @Test(timeout = TIMEOUT_MS)
+  public void reportsChangedInputs() throws Exception {
+    write(input, "var x = 2;".getBytes(UTF_8));
+    assertThat(watcher.awaitChanges()).containsExactly(input);
+  }
+
+  @Test(timeout = TIMEOUT_MS)
+  public void reportsNewScriptsNextToInputs() throws Exception {
+    Path other = src.resolve("other.js");
+    write(other, "var y = 1;".getBytes(UTF_8));
+    assertThat(watcher.awaitChanges()).contains(other);
+  }
+
+  @Test(timeout = TIMEOUT_MS)
+  public void ignoresIrrelevantFiles() throws Exception {
+    write(src.resolve(".input.js.swp"), new byte[0]);
+    write(src.resolve("notes.txt"), new byte[0]);
+    write(input, "var x = 2;".getBytes(UTF_8));
+    assertThat(watcher.awaitChanges()).containsExactly(input);
+  }
+
+  @Test(timeout = TIMEOUT_MS)
+  public void reportsFilesAddedToNewSubdirectories() throws Exception {
+    Path lib = createDirectory(src.resolve("lib"));
+    Path first = lib.resolve("first.js");
+    write(first, "var a = 1;".getBytes(UTF_8));
+    assertThat(watcher.awaitChanges()).contains(first);
+    assertThat(watcher.getWatchedDirectories()).contains(lib);
+
+    Path second = lib.resolve("second.js");
+    write(second, "var b = 1;".getBytes(UTF_8));
+    assertThat(watcher.awaitChanges()).contains(second);
+  }
+
+  @Test(timeout = TIMEOUT_MS)
+  public void reportsFilesInNestedNewSubdirectories() throws Exception {
+    Path nested = createDirectories(src.resolve("a/b"));
+    Path script = nested.resolve("script.js");
+    write(script, "var a = 1;".getBytes(UTF_8));
+    assertThat(watcher.awaitChanges()).contains(script);
+    assertThat(watcher.getWatchedDirectories()).contains(src.resolve("a"));
+    assertThat(watcher.getWatchedDirectories()).contains(nested);
+  }
+
+  @Test(timeout = TIMEOUT_MS)
+  public void keepsWatchingEmptyNewSubdirectoriesAfterRewatching() throws Exception {
+    Path lib = createDirectory(src.resolve("lib"));
+    write(input, "var x = 2;".getBytes(UTF_8));
+    assertThat(watcher.awaitChanges()).contains(input);
+    assertThat(watcher.getWatchedDirectories()).contains(lib);
+
+    watcher.watch(config, Optional.empty());
+    assertThat(watcher.getWatchedDirectories()).containsExactly(src, lib);
+
+    Path script = lib.resolve("script.js");
+    write(script, "var a = 1;".getBytes(UTF_8));
+    assertThat(watcher.awaitChanges()).contains(script);
+  }
+
+  @Test(timeout = TIMEOUT_MS)
+  public void keepsEveryEmptyNewSubdirectoryAfterRewatching() throws Exception {
+    Path a = createDirectory(src.resolve("a"));
+    Path b = createDirectory(src.resolve("b"));
+    Path c = createDirectory(src.resolve("c"));
+    write(input, "var x = 2;".getBytes(UTF_8));
+    assertThat(watcher.awaitChanges()).contains(input);
+    assertThat(watcher.getWatchedDirectories()).containsExactly(src, a, b, c);
+
+    watcher.watch(config, Optional.empty());
+    assertThat(watcher.getWatchedDirectories()).containsExactly(src, a, b, c);
+  }
+
+  @Test(timeout = TIMEOUT_MS)
+  public void doesNotWatchTheOutputDirectory() throws Exception {
+    Config nested = config.toBuilder().setOutput(src.resolve("out")).build();
+    watcher.watch(nested, Optional.empty());
+
+    Path out = createDirectory(src.resolve("out"));
+    write(out.resolve("page.js"), new byte[0]);
+    write(input, "var x = 2;".getBytes(UTF_8));
+    assertThat(watcher.awaitChanges()).containsExactly(input);
+    assertThat(watcher.getWatchedDirectories()).doesNotContain(out);
+  }
+}
@@ -0,0 +1,76 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.github.jsdossier.TypeInspector.InstanceProperty;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.javascript.rhino.jstype.ObjectType;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.inject.Inject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link InstancePropertyCache}. */
+@RunWith(JUnit4.class)
+public class InstancePropertyCacheTest extends AbstractTypeInspectorTest {
+
+  @Inject private InstancePropertyCache cache;
+
+  private final AtomicInteger collections = new AtomicInteger();
+  private final Function<ObjectType, ImmutableMap<String, InstanceProperty>> collector =
+      type -> {
+        collections.incrementAndGet();
+        return ImmutableMap.of();
+      };
+
+  @Test
+  public void collectsEachTypeOnce() {
+    compile("class A {}", "class B {}");
+
+    ObjectType a = getInstanceType("A");
+    ObjectType b = getInstanceType("B");
+    cache.get(a, collector);
+    cache.get(a, collector);
+    assertThat(collections.get()).isEqualTo(1);
+
+    cache.get(b, collector);
+    assertThat(collections.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void discardsEntriesWhenTheTypeRegistryChanges() {
+    compile("class A {}");
+
+    ObjectType a = getInstanceType("A");
+    cache.get(a, collector);
+    typeRegistry.invalidate(ImmutableSet.of(fs.getPath("/src/other.js")));
+    cache.get(a, collector);
+    assertThat(collections.get()).isEqualTo(2);
+
+    cache.get(a, collector);
+    assertThat(collections.get()).isEqualTo(2);
+  }
+
+  private ObjectType getInstanceType(String name) {
+    return typeRegistry.getType(name).getType().toMaybeFunctionType().getInstanceType();
+  }
+}
@@ -19,12 +19,15 @@ package com.github.jsdossier;
 import static com.github.jsdossier.Paths.expandDir;
 import static com.github.jsdossier.Paths.getCommonPrefix;
 import static com.github.jsdossier.Paths.getRelativePath;
+import static com.github.jsdossier.Paths.notUnder;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Sets.newHashSet;
 import static java.nio.file.Files.createDirectories;
 import static java.nio.file.Files.write;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -36,6 +39,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -128,6 +132,19 @@ public class PathsTest {
         ImmutableSet.copyOf(found));
   }
 
+  @Test
+  public void notUnderRejectsPathsWithAnExcludedAncestor() {
+    Predicate<Path> filter =
+        notUnder(
+            ImmutableSet.of(FILE_SYSTEM.getPath("/src/vendor"), FILE_SYSTEM.getPath("/src/a.js")));
+
+    assertTrue(filter.test(FILE_SYSTEM.getPath("/src/b.js")));
+    assertTrue(filter.test(FILE_SYSTEM.getPath("/src/vendored.js")));
+    assertFalse(filter.test(FILE_SYSTEM.getPath("/src/a.js")));
+    assertFalse(filter.test(FILE_SYSTEM.getPath("/src/vendor")));
+    assertFalse(filter.test(FILE_SYSTEM.getPath("/src/vendor/lib/jquery.js")));
+  }
+
   @Test
   public void computingRelativePaths() {
     Path a = FILE_SYSTEM.getPath("/foo/bar/bim/baz");
@@ -0,0 +1,156 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.github.jsdossier.jscomp.NominalType;
+import com.github.jsdossier.proto.JsType;
+import com.github.jsdossier.proto.PageData;
+import com.github.jsdossier.proto.Resources;
+import com.github.jsdossier.soy.Renderer;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures render throughput for each {@link RenderExecutor} type. Each operation renders one page
+ * for every type in a {@link BenchmarkFixture} through the {@link RenderTaskScheduler}.
+ *
+ * <p>The {@code MEMORY} destination writes pages to an in-memory file system, so the cost of each
+ * task is dominated by template rendering. The {@code ZIP} destination writes pages to a zip file
+ * on disk, which serializes writes much like a slow network mount would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderExecutorBenchmark {
+
+  /** The output destinations to benchmark. */
+  public enum Destination {
+    MEMORY,
+    ZIP
+  }
+
+  @Param({"FIXED", "WORK_STEALING", "THREAD_PER_TASK"})
+  public String executorType;
+
+  @Param({"MEMORY", "ZIP"})
+  public Destination destination;
+
+  @Param({"200"})
+  public int numTypes;
+
+  private Renderer renderer;
+  private List<PageData> pages;
+  private ListeningExecutorService executor;
+  private FileSystem outputFs;
+  private Path zipFile;
+  private Path outputDir;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    BenchmarkFixture fixture = new BenchmarkFixture(numTypes, 3, 50);
+    TypeInspectorFactory inspectorFactory =
+        fixture.getInjector().getInstance(TypeInspectorFactory.class);
+    renderer = fixture.getInjector().getInstance(Renderer.class);
+
+    pages = new ArrayList<>();
+    for (NominalType type : fixture.getTypes()) {
+      TypeInspector.Report report = inspectorFactory.create(type).inspectInstanceType();
+      JsType jsType =
+          JsType.newBuilder()
+              .setName(type.getName())
+              .addAllMethod(report.getFunctions())
+              .addAllField(report.getProperties())
+              .build();
+      pages.add(
+          PageData.newBuilder()
+              .setTypes(PageData.TypeCollection.newBuilder().addType(jsType))
+              .build());
+    }
+
+    RenderExecutor type = RenderExecutor.valueOf(executorType);
+    executor = type.create(type.getDefaultNumThreads());
+
+    switch (destination) {
+      case MEMORY:
+        outputFs = fixture.fs;
+        outputDir = fixture.fs.getPath("/out");
+        break;
+      case ZIP:
+        zipFile = Files.createTempFile("dossier-benchmark", ".zip");
+        Files.delete(zipFile);
+        outputFs =
+            FileSystems.newFileSystem(
+                URI.create("jar:" + zipFile.toUri()),
+                ImmutableMap.of("create", "true", "encoding", UTF_8.displayName()));
+        outputDir = outputFs.getPath("/");
+        break;
+      default:
+        throw new AssertionError();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    executor.shutdownNow();
+    if (zipFile != null) {
+      outputFs.close();
+      Files.deleteIfExists(zipFile);
+    }
+  }
+
+  @Benchmark
+  public List<Path> renderAll() throws Exception {
+    List<RenderTask> tasks = new ArrayList<>(pages.size());
+    for (int i = 0; i < pages.size(); i++) {
+      PageData page = pages.get(i);
+      Path path = outputDir.resolve("type" + i + ".html");
+      tasks.add(
+          () -> {
+            renderer.render(path, Resources.getDefaultInstance(), page);
+            return path;
+          });
+    }
+    return new RenderTaskScheduler(executor).schedule(tasks).get();
+  }
+}
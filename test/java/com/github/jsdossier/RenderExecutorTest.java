@@ -0,0 +1,98 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.github.jsdossier;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link RenderExecutor}. */
+@RunWith(JUnit4.class)
+public class RenderExecutorTest {
+
+  @Test
+  public void everyExecutorHasABoundedDefaultNumberOfThreads() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    for (RenderExecutor type : RenderExecutor.values()) {
+      assertThat(type.getDefaultNumThreads()).isAtLeast(1);
+      assertThat(type.getDefaultNumThreads()).isAtMost(processors * 8);
+    }
+  }
+
+  @Test
+  public void everyExecutorRunsAllTasks() throws Exception {
+    for (RenderExecutor type : RenderExecutor.values()) {
+      ListeningExecutorService executor = type.create(2);
+      try {
+        AtomicInteger count = new AtomicInteger();
+        List<ListenableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+          futures.add(executor.submit(count::incrementAndGet));
+        }
+        for (ListenableFuture<?> future : futures) {
+          future.get(10, SECONDS);
+        }
+        assertThat(count.get()).isEqualTo(10);
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  @Test(timeout = 30_000)
+  public void threadPerTaskNeverRunsMoreThanTheRequestedNumberOfThreads() throws Exception {
+    ListeningExecutorService executor = RenderExecutor.THREAD_PER_TASK.create(2);
+    try {
+      CountDownLatch release = new CountDownLatch(1);
+      AtomicInteger running = new AtomicInteger();
+      AtomicInteger maxRunning = new AtomicInteger();
+      List<ListenableFuture<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 6; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                  release.await();
+                  running.decrementAndGet();
+                  return null;
+                }));
+      }
+
+      while (running.get() < 2) {
+        Thread.sleep(10);
+      }
+      Thread.sleep(100);
+      assertThat(running.get()).isEqualTo(2);
+
+      release.countDown();
+      for (ListenableFuture<?> future : futures) {
+        future.get();
+      }
+      assertThat(maxRunning.get()).isEqualTo(2);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.write;
+
+import com.github.jsdossier.jscomp.CompilerModule;
+import com.github.jsdossier.metrics.BuildMetrics;
+import com.github.jsdossier.soy.DossierSoyModule;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.jimfs.Jimfs;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link RenderTaskModule}. Like {@link Main}, these create a child of a shared renderer
+ * injector for each build.
+ */
+@RunWith(JUnit4.class)
+public class RenderTaskModuleTest {
+
+  private final FileSystem fs = Jimfs.newFileSystem();
+  private final Injector rendererInjector = Guice.createInjector(new DossierSoyModule());
+
+  private Flags flags;
+  private Config config;
+
+  @Before
+  public void setUp() throws IOException {
+    Path input = fs.getPath("/src/input.js");
+    createDirectories(input.getParent());
+    write(input, "class A {}".getBytes(UTF_8));
+
+    flags = Flags.parse(new String[0], fs);
+    config =
+        Config.builder()
+            .setFileSystem(fs)
+            .setOutput(fs.getPath("/out"))
+            .setSources(ImmutableSet.of(input))
+            .build();
+  }
+
+  @Test
+  public void eachBuildHasItsOwnInstancePropertyCache() {
+    Injector first = createBuildInjector();
+    Injector second = createBuildInjector();
+
+    InstancePropertyCache cache = first.getInstance(InstancePropertyCache.class);
+    assertThat(first.getInstance(InstancePropertyCache.class)).isSameAs(cache);
+    assertThat(second.getInstance(InstancePropertyCache.class)).isNotSameAs(cache);
+    assertThat(rendererInjector.getExistingBinding(Key.get(InstancePropertyCache.class))).isNull();
+  }
+
+  @Test
+  public void eachBuildHasItsOwnTypeResolutionCache() {
+    Injector first = createBuildInjector();
+    Injector second = createBuildInjector();
+
+    TypeResolutionCache cache = first.getInstance(TypeResolutionCache.class);
+    assertThat(first.getInstance(TypeResolutionCache.class)).isSameAs(cache);
+    assertThat(second.getInstance(TypeResolutionCache.class)).isNotSameAs(cache);
+    assertThat(rendererInjector.getExistingBinding(Key.get(TypeResolutionCache.class))).isNull();
+  }
+
+  private Injector createBuildInjector() {
+    return rendererInjector.createChildInjector(
+        new CompilerModule(),
+        new ConfigModule(
+            flags,
+            config,
+            flags.shard,
+            config.getOutput(),
+            new ExplicitScope(),
+            BuildManifest.disabled(),
+            CompileCache.disabled(),
+            new BuildMetrics()),
+        new RenderTaskModule());
+  }
+}
@@ -0,0 +1,205 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.fail;
+
+import com.github.jsdossier.RenderTask.Artifact;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.jimfs.Jimfs;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link RenderTaskScheduler}. */
+@RunWith(JUnit4.class)
+public class RenderTaskSchedulerTest {
+
+  private final FileSystem fs = Jimfs.newFileSystem();
+  private final ListeningExecutorService executor = listeningDecorator(newFixedThreadPool(4));
+
+  @After
+  public void shutDownExecutor() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void returnsResultsInTaskOrder() throws Exception {
+    RenderTaskScheduler scheduler = new RenderTaskScheduler(executor);
+    List<Path> results =
+        scheduler
+            .schedule(ImmutableList.of(new FakeTask("a"), new FakeTask("b"), new FakeTask("c")))
+            .get();
+    assertThat(results)
+        .containsExactly(fs.getPath("a"), fs.getPath("b"), fs.getPath("c"))
+        .inOrder();
+    assertThat(scheduler.getTimings()).hasSize(3);
+  }
+
+  @Test
+  public void consumerWaitsForAllProducers() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicBoolean producersDone = new AtomicBoolean();
+
+    FakeTask slowProducer =
+        new FakeTask("slow", ImmutableSet.of(Artifact.INDEX_ENTRIES), ImmutableSet.of()) {
+          @Override
+          public Path call() throws Exception {
+            release.await(5, TimeUnit.SECONDS);
+            producersDone.set(true);
+            return super.call();
+          }
+        };
+    FakeTask fastProducer =
+        new FakeTask("fast", ImmutableSet.of(Artifact.INDEX_ENTRIES), ImmutableSet.of());
+    FakeTask consumer =
+        new FakeTask("consumer", ImmutableSet.of(), ImmutableSet.of(Artifact.INDEX_ENTRIES)) {
+          @Override
+          public Path call() throws Exception {
+            assertThat(producersDone.get()).isTrue();
+            return super.call();
+          }
+        };
+    FakeTask unrelated =
+        new FakeTask("unrelated") {
+          @Override
+          public Path call() throws Exception {
+            // Would deadlock if this task were held behind the slow producer.
+            release.countDown();
+            return super.call();
+          }
+        };
+
+    RenderTaskScheduler scheduler = new RenderTaskScheduler(executor);
+    List<Path> results =
+        scheduler
+            .schedule(ImmutableList.of(consumer, slowProducer, fastProducer, unrelated))
+            .get(10, TimeUnit.SECONDS);
+    assertThat(results).hasSize(4);
+  }
+
+  @Test
+  public void criticalPathFollowsDependencyChain() throws Exception {
+    FakeTask unrelated = new FakeTask("unrelated");
+    FakeTask producer =
+        new FakeTask("producer", ImmutableSet.of(Artifact.INDEX_ENTRIES), ImmutableSet.of());
+    FakeTask consumer =
+        new FakeTask("consumer", ImmutableSet.of(), ImmutableSet.of(Artifact.INDEX_ENTRIES));
+
+    RenderTaskScheduler scheduler = new RenderTaskScheduler(newDirectExecutorService());
+    scheduler.schedule(ImmutableList.of(unrelated, producer, consumer)).get();
+
+    List<Path> path =
+        scheduler
+            .getCriticalPath()
+            .stream()
+            .map(RenderTaskScheduler.TaskTiming::getOutput)
+            .collect(toList());
+    assertThat(path).containsExactly(fs.getPath("producer"), fs.getPath("consumer")).inOrder();
+  }
+
+  @Test
+  public void failedProducerFailsItsConsumers() throws Exception {
+    AtomicBoolean consumerRan = new AtomicBoolean();
+    FakeTask producer =
+        new FakeTask("producer", ImmutableSet.of(Artifact.INDEX_ENTRIES), ImmutableSet.of()) {
+          @Override
+          public Path call() throws Exception {
+            throw new IOException("boom");
+          }
+        };
+    FakeTask consumer =
+        new FakeTask("consumer", ImmutableSet.of(), ImmutableSet.of(Artifact.INDEX_ENTRIES)) {
+          @Override
+          public Path call() throws Exception {
+            consumerRan.set(true);
+            return super.call();
+          }
+        };
+
+    try {
+      new RenderTaskScheduler(executor).schedule(ImmutableList.of(producer, consumer)).get();
+      fail();
+    } catch (ExecutionException expected) {
+      assertThat(expected).hasCauseThat().isInstanceOf(IOException.class);
+    }
+    assertThat(consumerRan.get()).isFalse();
+  }
+
+  @Test
+  public void rejectsCyclicDependencies() {
+    FakeTask a =
+        new FakeTask(
+            "a", ImmutableSet.of(Artifact.INDEX_ENTRIES), ImmutableSet.of(Artifact.PAGE_WRITTEN));
+    FakeTask b =
+        new FakeTask(
+            "b", ImmutableSet.of(Artifact.PAGE_WRITTEN), ImmutableSet.of(Artifact.INDEX_ENTRIES));
+    try {
+      new RenderTaskScheduler(executor).schedule(ImmutableList.of(a, b));
+      fail();
+    } catch (IllegalStateException expected) {
+      // Do nothing.
+    }
+  }
+
+  private class FakeTask implements RenderTask {
+    private final String name;
+    private final ImmutableSet<Artifact> produces;
+    private final ImmutableSet<Artifact> consumes;
+
+    FakeTask(String name) {
+      this(name, ImmutableSet.of(Artifact.PAGE_WRITTEN), ImmutableSet.of());
+    }
+
+    FakeTask(String name, ImmutableSet<Artifact> produces, ImmutableSet<Artifact> consumes) {
+      this.name = name;
+      this.produces = produces;
+      this.consumes = consumes;
+    }
+
+    @Override
+    public ImmutableSet<Artifact> getProducedArtifacts() {
+      return produces;
+    }
+
+    @Override
+    public ImmutableSet<Artifact> getConsumedArtifacts() {
+      return consumes;
+    }
+
+    @Override
+    public Path call() throws Exception {
+      return fs.getPath(name);
+    }
+  }
+}
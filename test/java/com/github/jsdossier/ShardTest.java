@@ -0,0 +1,160 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.github.jsdossier.proto.Index;
+import com.github.jsdossier.proto.Link;
+import com.github.jsdossier.proto.NamedType;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.jimfs.Jimfs;
+import java.nio.file.Path;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link Shard} and merging the partial indices written by each shard. */
+@RunWith(JUnit4.class)
+public class ShardTest {
+
+  @Test
+  public void parse() {
+    Shard shard = Shard.parse("2/3");
+    assertThat(shard.getIndex()).isEqualTo(2);
+    assertThat(shard.getCount()).isEqualTo(3);
+    assertThat(shard.isSharded()).isTrue();
+    assertThat(shard.isFirst()).isFalse();
+    assertThat(shard.toString()).isEqualTo("2/3");
+  }
+
+  @Test
+  public void parse_rejectsInvalidSpecs() {
+    for (String spec : ImmutableList.of("", "1", "0/2", "3/2", "1/0", "a/b", "-1/2")) {
+      try {
+        Shard.parse(spec);
+        fail("should have rejected " + spec);
+      } catch (IllegalArgumentException expected) {
+        // Do nothing.
+      }
+    }
+  }
+
+  @Test
+  public void unshardedContainsEverything() {
+    assertThat(Shard.all().isSharded()).isFalse();
+    assertThat(Shard.all().isFirst()).isTrue();
+    assertThat(Shard.all().contains("foo.html")).isTrue();
+    assertThat(Shard.parse("1/1").contains("foo.html")).isTrue();
+  }
+
+  @Test
+  public void partitionContainsEveryKeyButOnlyOwnsItsInputs() {
+    Path owned = Jimfs.newFileSystem().getPath("/src/owned.js");
+    Shard shard = Shard.partition(2, 3, ImmutableSet.of(owned));
+
+    assertThat(shard.isSharded()).isTrue();
+    assertThat(shard.isFirst()).isFalse();
+    assertThat(shard.contains("foo.html")).isTrue();
+    assertThat(shard.owns(owned)).isTrue();
+    assertThat(shard.owns(owned.resolveSibling("other.js"))).isFalse();
+    assertThat(Shard.parse("2/3").owns(owned)).isTrue();
+    assertThat(Shard.fromPartialIndexFileName(shard.getPartialIndexFileName()))
+        .isEqualTo(Shard.parse("2/3"));
+  }
+
+  @Test
+  public void everyKeyBelongsToExactlyOneShard() {
+    int count = 4;
+    int[] assigned = new int[count];
+    for (int i = 0; i < 1000; i++) {
+      String key = "type_" + i + ".html";
+      int owners = 0;
+      for (int index = 1; index <= count; index++) {
+        if (Shard.parse(index + "/" + count).contains(key)) {
+          owners++;
+          assigned[index - 1]++;
+        }
+      }
+      assertThat(owners).isEqualTo(1);
+    }
+    for (int n : assigned) {
+      assertThat(n).isGreaterThan(0);
+    }
+  }
+
+  @Test
+  public void partialIndexFileName() {
+    Shard shard = Shard.parse("3/5");
+    String name = shard.getPartialIndexFileName();
+    assertThat(Shard.isPartialIndexFileName(name)).isTrue();
+    assertThat(Shard.fromPartialIndexFileName(name)).isEqualTo(shard);
+    assertThat(Shard.isPartialIndexFileName("types.js")).isFalse();
+  }
+
+  @Test
+  public void mergeIndices_combinesEntriesForTheSameType() {
+    Index a =
+        Index.newBuilder()
+            .addModule(
+                entry("foo")
+                    .addChild(entry("foo.Bar").addProperty("b"))
+                    .addStaticProperty("x"))
+            .addType(entry("Zed"))
+            .addPage(link("Readme", "readme.html"))
+            .addSourceFile(link("", "source/b.js.src.html"))
+            .build();
+    Index b =
+        Index.newBuilder()
+            .addModule(
+                entry("foo")
+                    .addChild(entry("foo.Bar").addProperty("a"))
+                    .addChild(entry("foo.Baz"))
+                    .addStaticProperty("x"))
+            .addType(entry("Abc"))
+            .addPage(link("Readme", "readme.html"))
+            .addSourceFile(link("", "source/a.js.src.html"))
+            .build();
+
+    Index expected =
+        Index.newBuilder()
+            .addModule(
+                entry("foo")
+                    .addChild(entry("foo.Bar").addProperty("a").addProperty("b"))
+                    .addChild(entry("foo.Baz"))
+                    .addStaticProperty("x"))
+            .addType(entry("Abc"))
+            .addType(entry("Zed"))
+            .addPage(link("Readme", "readme.html"))
+            .addSourceFile(link("", "source/a.js.src.html"))
+            .addSourceFile(link("", "source/b.js.src.html"))
+            .build();
+
+    assertThat(IndexBuilder.merge(ImmutableList.of(a, b))).isEqualTo(expected);
+    assertThat(IndexBuilder.merge(ImmutableList.of(b, a))).isEqualTo(expected);
+  }
+
+  private static Index.Entry.Builder entry(String name) {
+    return Index.Entry.newBuilder().setType(NamedType.newBuilder().setName(name));
+  }
+
+  private static Link link(String text, String href) {
+    return Link.newBuilder().setText(text).setHref(href).build();
+  }
+}
@@ -48,6 +48,7 @@ public class TypeContextTest {
   @Inject private CompilerUtil util;
   @Inject private TypeRegistry typeRegistry;
   @Inject private TypeContext context;
+  @Inject private TypeResolutionCache resolutionCache;
 
   @Test
   public void canResolveTypes() {
@@ -230,4 +231,62 @@ public class TypeContextTest {
     assertThat(typeRegistry.getTypes(barB.getType())).containsExactly(fooDefault, barB).inOrder();
     assertThat(typeRegistry.getTypes(barC.getType())).containsExactly(fooA, barC).inOrder();
   }
+
+  @Test
+  public void cachesResolvedNamesPerContext() {
+    util.compile(
+        createSourceFile(
+            fs.getPath("foo.js"),
+            "goog.provide('foo');",
+            "class A {}",
+            "class B {}",
+            "goog.scope(function() {",
+            "  let A = B;",
+            "  foo.X = class X {}",
+            "});"));
+
+    NominalType x = typeRegistry.getType("foo.X");
+    assertThat(context.resolveType("A")).isSameAs(typeRegistry.getType("A"));
+    assertThat(context.resolveType("A")).isSameAs(typeRegistry.getType("A"));
+    assertThat(context.changeContext(x).resolveType("A")).isSameAs(typeRegistry.getType("B"));
+    assertThat(context.changeContext(x).resolveType("A")).isSameAs(typeRegistry.getType("B"));
+    assertThat(context.resolveType("Missing")).isNull();
+    assertThat(context.resolveType("Missing")).isNull();
+
+    assertThat(resolutionCache.getStats().missCount()).isEqualTo(3);
+    assertThat(resolutionCache.getStats().hitCount()).isEqualTo(3);
+    assertThat(resolutionCache.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void discardsCachedResolutionsWhenTypesAreAdded() {
+    util.compile(createSourceFile(fs.getPath("foo.js"), "class A {}"));
+    assertThat(context.resolveType("Alias")).isNull();
+
+    NominalType a = typeRegistry.getType("A");
+    NominalType alias =
+        NominalType.builder()
+            .setName("Alias")
+            .setType(a.getType())
+            .setSourceFile(a.getSourceFile())
+            .setNode(a.getNode())
+            .setJsDoc(a.getJsDoc())
+            .build();
+    typeRegistry.addType(alias);
+
+    assertThat(context.resolveType("Alias")).isSameAs(alias);
+  }
+
+  @Test
+  public void resolutionCacheIsBounded() {
+    util.compile(createSourceFile(fs.getPath("foo.js"), "class A {}", "class B {}"));
+
+    TypeResolutionCache cache = new TypeResolutionCache(typeRegistry, 1);
+    NominalType a = typeRegistry.getType("A");
+    NominalType b = typeRegistry.getType("B");
+    assertThat(cache.get(null, "A", () -> a)).isSameAs(a);
+    assertThat(cache.get(null, "B", () -> b)).isSameAs(b);
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.getStats().evictionCount()).isEqualTo(1);
+  }
 }
@@ -231,6 +231,29 @@ public class TypeInspectorTest extends AbstractTypeInspectorTest {
     assertInstanceProperty(power).isDefinedOn(hero.getType());
   }
 
+  @Test
+  public void getInstanceProperties_areSharedByAllInspectors() {
+    compile(
+        DEFINE_INHERITS,
+        "/** @constructor */",
+        "function Person() {}",
+        "/** @type {number} */Person.prototype.age;",
+        "",
+        "/** @constructor @extends {Person} */",
+        "function SuperHero() {}",
+        "inherits(SuperHero, Person);",
+        "/** @type {string} */SuperHero.prototype.power;");
+
+    NominalType person = typeRegistry.getType("Person");
+    NominalType hero = typeRegistry.getType("SuperHero");
+
+    Map<String, InstanceProperty> properties =
+        typeInspectorFactory.create(person).getInstanceProperties(person.getType());
+    assertThat(properties.keySet()).containsExactly("age");
+    assertThat(typeInspectorFactory.create(hero).getInstanceProperties(person.getType()))
+        .isSameAs(properties);
+  }
+
   @Test
   public void getInstanceProperties_doesNotIncludePropertiesFromParentInterface() {
     compile(
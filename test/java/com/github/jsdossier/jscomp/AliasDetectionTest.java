@@ -67,6 +67,26 @@ public class AliasDetectionTest {
     assertThat(typeRegistry.resolveAlias(a, "foo")).isNull();
   }
 
+  @Test
+  public void resolveAliasChainFromGoogScopeBlock() {
+    util.compile(
+        inputFs.getPath("foo/bar.js"),
+        "goog.provide('foo');",
+        "goog.scope(function() {",
+        "  var x = foo;",
+        "  var y = x;",
+        "  y.A = class {};",
+        "});");
+
+    NominalType a = typeRegistry.getType("foo.A");
+    SymbolTable table = typeRegistry.getGlobalSymbolTable().findTableFor(a.getNode());
+    assertThat(table.hasResolvedAliases()).isTrue();
+    assertThat(typeRegistry.resolveAlias(a, "x")).isEqualTo("foo");
+    assertThat(typeRegistry.resolveAlias(a, "y")).isEqualTo("foo");
+    assertThat(typeRegistry.resolveAlias(a, "y.B")).isEqualTo("foo.B");
+    assertThat(typeRegistry.resolveAlias(a, "z.A")).isNull();
+  }
+
   @Test
   public void resolveAliasFromGoogModule() {
     util.compile(
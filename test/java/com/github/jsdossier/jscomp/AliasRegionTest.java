@@ -0,0 +1,70 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.jimfs.Jimfs;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link AliasRegion}. */
+@RunWith(JUnit4.class)
+public class AliasRegionTest {
+
+  private final AliasRegion region = AliasRegion.forFile(Jimfs.newFileSystem().getPath("foo.js"));
+
+  @Test
+  public void resolvesAliasChains() {
+    region.addAlias("a", "b");
+    region.addAlias("b", "c");
+    region.addAlias("c", "foo.Bar");
+
+    assertThat(region.resolveAlias("a")).isEqualTo("foo.Bar");
+    assertThat(region.resolveAlias("d")).isNull();
+
+    region.flatten();
+    assertThat(region.resolveAlias("a")).isEqualTo("foo.Bar");
+    assertThat(region.resolveAlias("b")).isEqualTo("foo.Bar");
+    assertThat(region.resolveAlias("c")).isEqualTo("foo.Bar");
+    assertThat(region.resolveAlias("d")).isNull();
+  }
+
+  @Test
+  public void flattenStopsAtCircularAliases() {
+    region.addAlias("a", "b");
+    region.addAlias("b", "a");
+
+    region.flatten();
+    assertThat(region.resolveAlias("a")).isEqualTo("a");
+    assertThat(region.resolveAlias("b")).isEqualTo("b");
+  }
+
+  @Test
+  public void addingAnAliasDiscardsTheFlattenedChains() {
+    region.addAlias("a", "b");
+    region.flatten();
+    assertThat(region.resolveAlias("a")).isEqualTo("b");
+
+    region.addAlias("b", "c");
+    assertThat(region.resolveAlias("a")).isEqualTo("c");
+
+    region.flatten();
+    assertThat(region.resolveAlias("a")).isEqualTo("c");
+  }
+}
@@ -0,0 +1,95 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Joiner;
+import com.google.javascript.jscomp.Compiler;
+import com.google.javascript.jscomp.CompilerOptions;
+import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
+import com.google.javascript.jscomp.SourceFile;
+import com.google.javascript.rhino.Node;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link AstPruner}. */
+@RunWith(JUnit4.class)
+public class AstPrunerTest {
+
+  @Test
+  public void prunesUndocumentedFunctionBodies() {
+    Node root = parse("function foo(a, b) {", "  var c = a + b;", "  return c * 2;", "}");
+    Node function = root.getFirstChild();
+
+    assertThat(AstPruner.pruneFunctionBodies(root)).isGreaterThan(0);
+    assertThat(function.isFunction()).isTrue();
+    assertThat(function.getSecondChild().getChildCount()).isEqualTo(2);
+    assertThat(function.getLastChild().hasChildren()).isFalse();
+  }
+
+  @Test
+  public void retainsFunctionBodiesWithDocumentedDeclarations() {
+    Node root =
+        parse(
+            "/** @constructor */",
+            "function Foo() {",
+            "  /** @type {number} */",
+            "  this.x = 1;",
+            "}");
+    Node function = root.getFirstChild();
+
+    assertThat(AstPruner.pruneFunctionBodies(root)).isEqualTo(0);
+    assertThat(function.getLastChild().hasChildren()).isTrue();
+  }
+
+  @Test
+  public void retainsFunctionBodiesWithClassDeclarations() {
+    Node root = parse("(function() {", "  class Foo {}", "  window.Foo = Foo;", "})();");
+
+    assertThat(AstPruner.pruneFunctionBodies(root)).isEqualTo(0);
+  }
+
+  @Test
+  public void prunesNestedFunctionsIndependently() {
+    Node root =
+        parse(
+            "function outer() {",
+            "  /** @return {number} */",
+            "  function documented() { return helper(); }",
+            "  function helper() { return 1; }",
+            "}");
+    Node outerBody = root.getFirstChild().getLastChild();
+    Node documented = outerBody.getFirstChild();
+    Node helper = outerBody.getLastChild();
+
+    AstPruner.pruneFunctionBodies(root);
+    assertThat(outerBody.getChildCount()).isEqualTo(2);
+    assertThat(documented.getLastChild().hasChildren()).isFalse();
+    assertThat(helper.getLastChild().hasChildren()).isFalse();
+  }
+
+  private static Node parse(String... lines) {
+    CompilerOptions options = new CompilerOptions();
+    options.setLanguageIn(LanguageMode.ECMASCRIPT_2017);
+
+    Compiler compiler = new Compiler();
+    compiler.initOptions(options);
+    return compiler.parse(SourceFile.fromCode("test.js", Joiner.on('\n').join(lines)));
+  }
+}
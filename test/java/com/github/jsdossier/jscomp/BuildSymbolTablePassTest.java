@@ -88,6 +88,27 @@ public final class BuildSymbolTablePassTest {
       assertThat(table).hasEs6Module(two);
     }
 
+    @Test
+    public void multipleFiles_modulesInterleavedWithGlobalScripts() {
+      Scenario scenario = new Scenario();
+      List<String> expected = new ArrayList<>();
+      for (int i = 0; i < 50; i++) {
+        scenario.addFile(fs.getPath("/global" + i + ".js"), "goog.provide('ns" + i + "');");
+        scenario.addFile(fs.getPath("/mod" + i + ".js"), "export class Foo" + i + " {}");
+        expected.add("ns" + i);
+        expected.add("module$mod" + i);
+        expected.add("Foo" + i + "$$module$mod" + i);
+        expected.add("module$mod" + i + ".Foo" + i);
+      }
+
+      SymbolTable table = scenario.compile();
+      assertThat(table).containsExactly(expected);
+      for (int i = 0; i < 50; i++) {
+        assertThat(table).doesNotHaveModule(fs.getPath("/global" + i + ".js"));
+        assertThat(table).hasEs6Module(fs.getPath("/mod" + i + ".js"));
+      }
+    }
+
     @Test
     public void recordsFileAsEs6_onImport() {
       Path one = fs.getPath("one.js");
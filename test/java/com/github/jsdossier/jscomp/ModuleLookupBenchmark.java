@@ -0,0 +1,106 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier.jscomp;
+
+import com.google.javascript.rhino.IR;
+import com.google.javascript.rhino.JSDocInfo;
+import com.google.javascript.rhino.Node;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures looking up modules by their compiled name in the {@link TypeRegistry}, as done when
+ * resolving links and aliases. Each operation looks up the next module in turn, followed by an ID
+ * that is not a module. Compare {@link #indexedLookup} to {@link #linearScan}, which scans every
+ * module the way the registry used to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModuleLookupBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  public int numModules;
+
+  private TypeRegistry typeRegistry;
+  private String[] ids;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    FileSystem fs = FileSystems.getDefault();
+    SymbolTable globalSymbolTable = SymbolTable.createGlobalSymbolTable();
+    typeRegistry = new TypeRegistry(globalSymbolTable);
+
+    ids = new String[numModules];
+    for (int i = 0; i < numModules; i++) {
+      Path path = fs.getPath("/src/lib" + (i % 10) + "/module" + i + ".js");
+      Node script = IR.script();
+      Module module =
+          Module.builder()
+              .setId(Module.Type.NODE.newId(path))
+              .setJsDoc(JsDoc.from((JSDocInfo) null))
+              .setAliases(AliasRegion.forFile(path))
+              .setRoot(script)
+              .setInternalSymbolTable(globalSymbolTable.newChildTable(script))
+              .build();
+      typeRegistry.addModule(module);
+      ids[i] = module.getId().getCompiledName();
+    }
+  }
+
+  private String nextId() {
+    String id = ids[next];
+    next = (next + 1) % ids.length;
+    return id;
+  }
+
+  @Benchmark
+  public boolean indexedLookup() {
+    return typeRegistry.getModule(nextId()) != null && !typeRegistry.isModule("module$missing");
+  }
+
+  @Benchmark
+  public boolean linearScan() {
+    return findModule(nextId()).isPresent() && !findModule("module$missing").isPresent();
+  }
+
+  private Optional<Module> findModule(String id) {
+    return typeRegistry
+        .getAllModules()
+        .stream()
+        .filter(m -> m.getId().getCompiledName().equals(id))
+        .findFirst();
+  }
+}
@@ -0,0 +1,57 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier.jscomp;
+
+import com.google.common.io.Resources;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time taken to load the node core library externs when running with {@code
+ * --environment NODE}. The externs are only loaded once per process, so each measurement is taken
+ * in a freshly forked JVM with no warmup to capture the cost paid at startup.
+ *
+ * <p>Run the benchmarks from the deployed jar (the externs are loaded from the jar there) and
+ * compare {@link #loadBundle} to {@link #loadExternDirectory} to measure the savings from loading
+ * the bundle generated at build time.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class NodeExternsBenchmark {
+
+  @Benchmark
+  public NodeLibraryImpl.ExternCollection loadBundle() throws IOException {
+    return NodeLibraryImpl.loadBundle(
+        Resources.toByteArray(
+            Resources.getResource(NodeLibraryImpl.class, "resources/externs/node.bundle")));
+  }
+
+  @Benchmark
+  public NodeLibraryImpl.ExternCollection loadExternDirectory() throws IOException {
+    return NodeLibraryImpl.loadExternDirectory();
+  }
+}
@@ -17,18 +17,26 @@ limitations under the License.
 package com.github.jsdossier.jscomp;
 
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.fail;
 
 import com.github.jsdossier.annotations.ModuleExterns;
 import com.github.jsdossier.annotations.Modules;
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Resources;
 import com.google.common.jimfs.Jimfs;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Provides;
+import com.google.javascript.jscomp.SourceFile;
 import java.io.IOException;
+import java.net.URL;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -130,4 +138,160 @@ public class NodeLibraryImplTest {
     assertThat(library.normalizeRequireId("foo-bar")).isEqualTo("foo_bar");
     assertThat(library.canRequireId("foo_bar")).isFalse();
   }
+
+  @Test
+  public void requiredExternModulesIncludeTransitiveDependencies() throws IOException {
+    NodeLibrary library = createLibrary(ImmutableSet.of());
+
+    ImmutableCollection<SourceFile> modules =
+        library.getRequiredExternModules(
+            ImmutableList.of(
+                SourceFile.fromCode("/src/a.js", "var http = require('http');"),
+                SourceFile.fromCode("/src/b.js", "import * as path from \"path\";")));
+
+    assertThat(getNames(modules))
+        .containsExactly(
+            "dossier//node-externs.zip//events.js",
+            "dossier//node-externs.zip//http.js",
+            "dossier//node-externs.zip//net.js",
+            "dossier//node-externs.zip//path.js",
+            "dossier//node-externs.zip//stream.js");
+  }
+
+  @Test
+  public void requiredExternModulesIgnoresUnknownAndRelativeIds() throws IOException {
+    NodeLibrary library = createLibrary(ImmutableSet.of());
+
+    ImmutableCollection<SourceFile> modules =
+        library.getRequiredExternModules(
+            ImmutableList.of(
+                SourceFile.fromCode(
+                    "/src/a.js", "require('./path'); require('not-a-module'); require(x);")));
+
+    // The global externs always require the events module.
+    assertThat(getNames(modules)).containsExactly("dossier//node-externs.zip//events.js");
+  }
+
+  @Test
+  public void requiredExternModulesIncludeModulesUsedByGlobalExterns() throws IOException {
+    NodeLibrary library = createLibrary(ImmutableSet.of());
+
+    ImmutableCollection<SourceFile> modules =
+        library.getRequiredExternModules(
+            ImmutableList.of(SourceFile.fromCode("/src/a.js", "process.on('exit', f);")));
+
+    assertThat(getNames(modules)).containsExactly("dossier//node-externs.zip//events.js");
+  }
+
+  @Test
+  public void requiredExternModulesDetectsModuleExportsReferences() throws IOException {
+    NodeLibrary library = createLibrary(ImmutableSet.of());
+
+    ImmutableCollection<SourceFile> modules =
+        library.getRequiredExternModules(
+            ImmutableList.of(
+                SourceFile.fromCode(
+                    "/src/a.js",
+                    "/** @type {module$exports$child_process.ChildProcess} */ var p;")));
+
+    assertThat(getNames(modules)).contains("dossier//node-externs.zip//child_process.js");
+    assertThat(getNames(modules)).doesNotContain("dossier//node-externs.zip//path.js");
+  }
+
+  @Test
+  public void requiredExternModulesIncludesCustomExterns() throws IOException {
+    Path externPath = fs.getPath("foo-bar.js");
+    Files.write(externPath, "var events = require('events');".getBytes(UTF_8));
+    NodeLibrary library = createLibrary(ImmutableSet.of(externPath));
+
+    ImmutableCollection<SourceFile> modules =
+        library.getRequiredExternModules(
+            ImmutableList.of(SourceFile.fromCode("/src/a.js", "require('foo-bar');")));
+
+    assertThat(getNames(modules))
+        .containsExactly("foo-bar.js", "dossier//node-externs.zip//events.js");
+  }
+
+  @Test
+  public void loadBundle() {
+    String bundle = "globals.js\n8\nvar x;\n\nfoo-bar.js\n0\nbaz.js\n8\nvar \u00e9;\n";
+
+    NodeLibraryImpl.ExternCollection externs =
+        NodeLibraryImpl.loadBundle(bundle.getBytes(UTF_8));
+
+    assertThat(externs.getFiles()).hasSize(1);
+    assertThat(externs.getFiles().get(0).getName())
+        .isEqualTo("dossier//node-externs.zip//globals.js");
+    assertThat(externs.getFiles().get(0).getCode()).isEqualTo("var x;\n\n");
+    assertThat(externs.getRequireIds()).containsExactly("foo-bar", "baz").inOrder();
+    assertThat(externs.getIdsByPath())
+        .containsExactly(
+            "dossier//node-externs.zip//foo-bar.js", "foo_bar",
+            "dossier//node-externs.zip//baz.js", "baz");
+    assertThat(externs.getModulesByPath().get("dossier//node-externs.zip//baz.js").getCode())
+        .isEqualTo("var \u00e9;\n");
+  }
+
+  @Test
+  public void loadBundle_rejectsTruncatedBundle() {
+    for (String bundle : ImmutableList.of("globals.js", "globals.js\n8\nvar x;")) {
+      try {
+        NodeLibraryImpl.loadBundle(bundle.getBytes(UTF_8));
+        fail("should have rejected " + bundle);
+      } catch (IllegalArgumentException expected) {
+        // Do nothing.
+      }
+    }
+  }
+
+  @Test
+  public void bundledExternsMatchExternDirectory() throws IOException {
+    URL url = NodeLibraryImpl.class.getResource("resources/externs/node.bundle");
+    assertThat(url).isNotNull();
+
+    NodeLibraryImpl.ExternCollection bundled =
+        NodeLibraryImpl.loadBundle(Resources.toByteArray(url));
+    NodeLibraryImpl.ExternCollection loaded = NodeLibraryImpl.loadExternDirectory();
+
+    assertThat(bundled.getRequireIds()).containsExactlyElementsIn(loaded.getRequireIds());
+    assertThat(bundled.getIdsByPath()).containsExactlyEntriesIn(loaded.getIdsByPath());
+    assertThat(bundled.getFiles()).hasSize(loaded.getFiles().size());
+    for (int i = 0; i < loaded.getFiles().size(); i++) {
+      assertThat(bundled.getFiles().get(i).getName())
+          .isEqualTo(loaded.getFiles().get(i).getName());
+      assertThat(bundled.getFiles().get(i).getCode())
+          .isEqualTo(loaded.getFiles().get(i).getCode());
+    }
+    for (Map.Entry<String, SourceFile> entry : loaded.getModulesByPath().entrySet()) {
+      assertThat(bundled.getModulesByPath().get(entry.getKey()).getCode())
+          .isEqualTo(entry.getValue().getCode());
+    }
+  }
+
+  private NodeLibrary createLibrary(ImmutableSet<Path> externs) {
+    return Guice.createInjector(
+            new AbstractModule() {
+              @Override
+              protected void configure() {}
+
+              @Provides
+              @ModuleExterns
+              ImmutableSet<Path> provideExterns() {
+                return externs;
+              }
+
+              @Provides
+              @Modules
+              ImmutableSet<Path> provideModules() {
+                return ImmutableSet.of(fs.getPath("some-module"));
+              }
+            })
+        .getInstance(NodeLibraryImpl.class);
+  }
+
+  private static ImmutableList<String> getNames(Iterable<SourceFile> files) {
+    ImmutableList.Builder<String> names = ImmutableList.builder();
+    files.forEach(file -> names.add(file.getName()));
+    return names.build();
+  }
 }
@@ -1083,6 +1083,19 @@ public class NodeModulePassTest {
                 "module$exports$xml.parse(\"abc\");"));
   }
 
+  @Test
+  public void globalExternsCanUseModulesThatAreNotRequired() {
+    Path module = path("foo.js");
+    CompilerUtil compiler = createCompiler(ImmutableSet.of(), ImmutableSet.of(module), false);
+    compiler.compile(module, "process.on('exit', function() {});");
+
+    // Process extends events.EventEmitter, which is only compiled if the events module is kept.
+    JSType process = compiler.getCompiler().getTopScope().getVar("process").getType();
+    JSType on = process.restrictByNotNullOrUndefined().findPropertyType("on");
+    assertNotNull(on);
+    assertTrue(on.toString(), on.isFunctionType());
+  }
+
   @Test
   public void splitsMultipleRequireDeclarations() {
     Path foo = fs.getPath("/src/modules/foo/index.js");
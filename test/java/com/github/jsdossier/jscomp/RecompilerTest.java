@@ -0,0 +1,120 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier.jscomp;
+
+import static com.github.jsdossier.testing.CompilerUtil.createSourceFile;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.github.jsdossier.annotations.Global;
+import com.github.jsdossier.annotations.Input;
+import com.github.jsdossier.testing.CompilerUtil;
+import com.github.jsdossier.testing.GuiceRule;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.javascript.jscomp.SourceFile;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import javax.inject.Inject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link Recompiler}. */
+@RunWith(JUnit4.class)
+public class RecompilerTest {
+
+  @Rule public GuiceRule guice = GuiceRule.builder(this).build();
+
+  @Inject @Input private FileSystem fs;
+  @Inject @Global private SymbolTable symbolTable;
+  @Inject private CompilerUtil util;
+  @Inject private TypeRegistry typeRegistry;
+  @Inject private Recompiler recompiler;
+
+  @Test
+  public void recompilesChangedFileAndItsDependents() {
+    Path a = fs.getPath("a.js");
+    Path b = fs.getPath("b.js");
+    Path c = fs.getPath("c.js");
+    util.compile(
+        createSourceFile(a, "class A {}", "class Removed {}"),
+        createSourceFile(b, "class B extends A {}"),
+        createSourceFile(c, "class C {}"));
+    NominalType typeC = typeRegistry.getType("C");
+
+    ImmutableSet<Path> recompiled =
+        recompiler.recompile(ImmutableList.of(createSourceFile(a, "class A {}", "class Added {}")));
+
+    assertThat(recompiled).containsExactly(a, b).inOrder();
+    assertThat(typeRegistry.isType("Removed")).isFalse();
+    assertThat(symbolTable.getSlot("Removed")).isNull();
+    assertThat(typeRegistry.getType("Added").getSourceFile()).isEqualTo(a);
+    assertThat(typeRegistry.getType("C")).isSameAs(typeC);
+
+    NominalType typeA = typeRegistry.getType("A");
+    NominalType typeB = typeRegistry.getType("B");
+    assertThat(typeRegistry.getDirectSubTypes(typeA.getType().toMaybeFunctionType()))
+        .containsExactly(typeB.getType().toMaybeFunctionType().getInstanceType());
+  }
+
+  @Test
+  public void invalidatesAliasesDefinedInOtherFiles() {
+    Path a = fs.getPath("a.js");
+    Path b = fs.getPath("b.js");
+    util.compile(
+        createSourceFile(a, "var ns = {};", "/** @constructor */ ns.A = function() {};"),
+        createSourceFile(b, "var alias = {};", "/** @const */ alias.A = ns.A;"));
+
+    ImmutableSet<Path> invalidated = typeRegistry.invalidate(ImmutableSet.of(a));
+
+    assertThat(invalidated).containsExactly(a, b);
+    assertThat(typeRegistry.isType("ns.A")).isFalse();
+    assertThat(typeRegistry.isType("alias.A")).isFalse();
+  }
+
+  @Test
+  public void rejectsFilesThatAreNotInputs() {
+    util.compile(fs.getPath("a.js"), "class A {}");
+
+    SourceFile file = createSourceFile(fs.getPath("b.js"), "class B {}");
+    try {
+      recompiler.recompile(ImmutableList.of(file));
+      fail();
+    } catch (IllegalArgumentException expected) {
+      assertThat(expected).hasMessageThat().isEqualTo("not an input: b.js");
+    }
+  }
+
+  @Test
+  public void rejectsPrunedInputs() {
+    Path a = fs.getPath("a.js");
+    util.compile(a, "class A {}");
+    util.getCompiler().pruneInputs();
+
+    try {
+      recompiler.recompile(ImmutableList.of(createSourceFile(a, "class A {}")));
+      fail();
+    } catch (IllegalStateException expected) {
+      assertThat(expected)
+          .hasMessageThat()
+          .isEqualTo(
+              "inputs may only be recompiled after they are compiled and before they are pruned");
+    }
+  }
+}
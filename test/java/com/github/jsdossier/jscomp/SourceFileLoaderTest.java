@@ -0,0 +1,130 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.jimfs.Jimfs;
+import com.google.javascript.jscomp.SourceFile;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link SourceFileLoader}. */
+@RunWith(JUnit4.class)
+public class SourceFileLoaderTest {
+
+  private final FileSystem fs = Jimfs.newFileSystem();
+
+  @Test
+  public void loadsFilesInOrder() throws IOException {
+    List<Path> paths = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      paths.add(createFile("/src/file" + i + ".js", "var x" + i + " = " + i + ";"));
+    }
+
+    SourceFileLoader loader = SourceFileLoader.create();
+    ImmutableList<SourceFile> files = loader.load(paths);
+
+    assertThat(files).hasSize(50);
+    for (int i = 0; i < 50; i++) {
+      assertThat(files.get(i).getName()).isEqualTo("/src/file" + i + ".js");
+      assertThat(files.get(i).getCode()).isEqualTo("var x" + i + " = " + i + ";");
+    }
+    assertThat(loader.getFileCount()).isEqualTo(50);
+  }
+
+  @Test
+  public void usesNameFunction() throws IOException {
+    Path path = createFile("/src/foo.js", "var foo;");
+
+    ImmutableList<SourceFile> files =
+        SourceFileLoader.create().load(ImmutableList.of(path), p -> "custom/" + p.getFileName());
+
+    assertThat(files.get(0).getName()).isEqualTo("custom/foo.js");
+  }
+
+  @Test
+  public void decodesUtf8() throws IOException {
+    String content = "var s = 'café ☃';";
+    Path a = createFile("/src/a.js", content);
+    Path b = createFile("/src/b.js", content);
+
+    SourceFileLoader loader = SourceFileLoader.create();
+    ImmutableList<SourceFile> files = loader.load(ImmutableList.of(a, b));
+
+    assertThat(files.get(0).getCode()).isEqualTo(content);
+    assertThat(files.get(1).getCode()).isEqualTo(content);
+    assertThat(loader.getByteCount()).isEqualTo(2L * content.getBytes(UTF_8).length);
+  }
+
+  @Test
+  public void loadsLargeFilesFromFileSystemsThatCannotMapFiles() throws IOException {
+    String content = "// " + Strings.repeat("é", 512 * 1024);
+    Path path = createFile("/src/large.js", content);
+
+    ImmutableList<SourceFile> files =
+        SourceFileLoader.create().load(ImmutableList.of(path, createFile("/src/b.js", "")));
+
+    assertThat(files.get(0).getCode()).isEqualTo(content);
+    assertThat(files.get(1).getCode()).isEmpty();
+  }
+
+  @Test
+  public void memoryMapsLargeFilesOnTheDefaultFileSystem() throws IOException {
+    String content = "// " + Strings.repeat("é", 512 * 1024);
+    Path path = Files.createTempFile("dossier", ".js");
+    try {
+      Files.write(path, content.getBytes(UTF_8));
+      ImmutableList<SourceFile> files = SourceFileLoader.create().load(ImmutableList.of(path));
+      assertThat(files.get(0).getCode()).isEqualTo(content);
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void propagatesReadErrors() throws IOException {
+    Path a = createFile("/src/a.js", "var a;");
+    Path b = fs.getPath("/src/missing.js");
+
+    try {
+      SourceFileLoader.create().load(ImmutableList.of(a, b));
+      fail();
+    } catch (NoSuchFileException expected) {
+      assertThat(expected.getFile()).isEqualTo("/src/missing.js");
+    }
+  }
+
+  private Path createFile(String name, String content) throws IOException {
+    Path path = fs.getPath(name);
+    Files.createDirectories(path.getParent());
+    Files.write(path, content.getBytes(UTF_8));
+    return path;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.jimfs.Jimfs;
+import com.google.javascript.rhino.IR;
+import java.nio.file.FileSystem;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link SymbolMap}. */
+@RunWith(JUnit4.class)
+public class SymbolMapTest {
+
+  private final FileSystem fs = Jimfs.newFileSystem();
+
+  @Test
+  public void emptyMapDoesNotAllocateSlots() {
+    SymbolMap map = new SymbolMap();
+    assertThat(map.size()).isEqualTo(0);
+    assertThat(map.capacity()).isEqualTo(0);
+    assertThat(map.get("foo", SymbolMap.hash("foo"))).isNull();
+    assertThat(map.values()).isEmpty();
+  }
+
+  @Test
+  public void storesAndRetrievesSymbols() {
+    SymbolMap map = new SymbolMap();
+    List<Symbol> symbols = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      Symbol symbol = newSymbol("name" + i, "file.js");
+      symbols.add(symbol);
+      map.put(symbol);
+    }
+
+    assertThat(map.size()).isEqualTo(1000);
+    assertThat(map.capacity()).isEqualTo(2048);
+    for (Symbol symbol : symbols) {
+      // Look up with an equal, but not identical, name.
+      String name = new String(symbol.getName());
+      assertThat(map.get(name, SymbolMap.hash(name))).isSameAs(symbol);
+    }
+    assertThat(map.get("missing", SymbolMap.hash("missing"))).isNull();
+    assertThat(map.values()).containsExactlyElementsIn(symbols);
+  }
+
+  @Test
+  public void replacesSymbolsWithTheSameName() {
+    SymbolMap map = new SymbolMap();
+    map.put(newSymbol("foo", "a.js"));
+    Symbol replacement = newSymbol("foo", "b.js");
+    map.put(replacement);
+
+    assertThat(map.size()).isEqualTo(1);
+    assertThat(map.get("foo", SymbolMap.hash("foo"))).isSameAs(replacement);
+  }
+
+  @Test
+  public void removesMatchingSymbols() {
+    SymbolMap map = new SymbolMap();
+    List<Symbol> kept = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      Symbol symbol = newSymbol("name" + i, i % 2 == 0 ? "a.js" : "b.js");
+      map.put(symbol);
+      if (i % 2 != 0) {
+        kept.add(symbol);
+      }
+    }
+
+    map.removeIf(symbol -> symbol.getFile().equals(fs.getPath("a.js")));
+
+    assertThat(map.size()).isEqualTo(50);
+    assertThat(map.capacity()).isEqualTo(128);
+    assertThat(map.values()).containsExactlyElementsIn(kept);
+    assertThat(map.get("name0", SymbolMap.hash("name0"))).isNull();
+    assertThat(map.get("name1", SymbolMap.hash("name1"))).isSameAs(kept.get(0));
+  }
+
+  @Test
+  public void internsSymbolNames() {
+    Symbol a = newSymbol(new String("foo.Bar"), "a.js");
+    Symbol b = newSymbol(new String("foo.Bar"), "b.js");
+    assertThat(a.getName()).isSameAs(b.getName());
+  }
+
+  private Symbol newSymbol(String name, String file) {
+    return new AutoValue_Symbol.Builder()
+        .setName(name)
+        .setFile(fs.getPath(file))
+        .setPosition(Position.of(1, 0))
+        .setNode(IR.name(name.replace('.', '_')))
+        .build();
+  }
+}
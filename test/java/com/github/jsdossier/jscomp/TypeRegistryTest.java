@@ -0,0 +1,151 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier.jscomp;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.github.jsdossier.annotations.Global;
+import com.github.jsdossier.annotations.Input;
+import com.github.jsdossier.testing.CompilerUtil;
+import com.github.jsdossier.testing.GuiceRule;
+import com.google.common.collect.ImmutableSet;
+import com.google.javascript.rhino.IR;
+import com.google.javascript.rhino.JSDocInfo;
+import com.google.javascript.rhino.Node;
+import com.google.javascript.rhino.jstype.JSType;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import javax.inject.Inject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link TypeRegistry}. */
+@RunWith(JUnit4.class)
+public class TypeRegistryTest {
+
+  @Rule public GuiceRule guice = GuiceRule.builder(this).build();
+
+  @Inject @Input private FileSystem fs;
+  @Inject @Global private SymbolTable symbolTable;
+  @Inject private CompilerUtil util;
+  @Inject private TypeRegistry typeRegistry;
+
+  @Test
+  public void findTypes_returnsExactMatchesFirst() {
+    util.compile(
+        fs.getPath("foo.js"),
+        "class A {}",
+        "class B {}",
+        "/** @const */ var C = A;");
+
+    NominalType a = typeRegistry.getType("A");
+    NominalType c = typeRegistry.getType("C");
+    assertThat(typeRegistry.findTypes(a.getType())).containsExactly(a, c).inOrder();
+    assertThat(typeRegistry.getExactLookupHits()).isEqualTo(1);
+    assertThat(typeRegistry.getEquivalentLookupHits()).isEqualTo(0);
+    assertThat(typeRegistry.getLookupMisses()).isEqualTo(0);
+  }
+
+  @Test
+  public void findTypes_countsMisses() {
+    util.compile(fs.getPath("foo.js"), "class A {}");
+
+    JSType instance = typeRegistry.getType("A").getType().toMaybeFunctionType().getInstanceType();
+    assertThat(typeRegistry.findTypes(instance)).isEmpty();
+    assertThat(typeRegistry.getLookupMisses()).isEqualTo(1);
+  }
+
+  @Test
+  public void findTypes_matchesTypesRegisteredAfterTheIndexWasBuilt() {
+    util.compile(fs.getPath("foo.js"), "class A {}", "class B {}");
+
+    NominalType a = typeRegistry.getType("A");
+    NominalType alias =
+        NominalType.builder()
+            .setName("Alias")
+            .setType(a.getType())
+            .setSourceFile(a.getSourceFile())
+            .setNode(a.getNode())
+            .setJsDoc(a.getJsDoc())
+            .build();
+    typeRegistry.addType(alias);
+
+    assertThat(typeRegistry.findTypes(a.getType())).containsExactly(a, alias);
+  }
+
+  @Test
+  public void getAssignableTypes() {
+    util.compile(
+        fs.getPath("foo.js"),
+        "/** @interface */ class Runner {}",
+        "/** @interface */ class Sprinter extends Runner {}",
+        "class Person {}",
+        "/** @implements {Sprinter} */ class Athlete extends Person {}");
+
+    JSType person = typeRegistry.getType("Person").getType();
+    JSType athlete = typeRegistry.getType("Athlete").getType();
+    JSType runner = typeRegistry.getType("Runner").getType();
+    JSType sprinter = typeRegistry.getType("Sprinter").getType();
+
+    assertThat(typeRegistry.getAssignableTypes(athlete))
+        .containsExactly(
+            athlete.toMaybeFunctionType().getInstanceType(),
+            sprinter.toMaybeFunctionType().getInstanceType(),
+            runner.toMaybeFunctionType().getInstanceType(),
+            person.toMaybeFunctionType().getInstanceType())
+        .inOrder();
+    assertThat(typeRegistry.getAssignableTypes(sprinter))
+        .containsExactly(
+            sprinter.toMaybeFunctionType().getInstanceType(),
+            runner.toMaybeFunctionType().getInstanceType())
+        .inOrder();
+    assertThat(typeRegistry.getAssignableTypes(athlete))
+        .isSameAs(typeRegistry.getAssignableTypes(athlete));
+  }
+
+  @Test
+  public void looksUpModulesByCompiledName() {
+    Path path = fs.getPath("/src/foo/bar.js");
+    Node script = IR.script();
+    Module module =
+        Module.builder()
+            .setId(Module.Type.NODE.newId(path))
+            .setJsDoc(JsDoc.from((JSDocInfo) null))
+            .setAliases(AliasRegion.forFile(path))
+            .setRoot(script)
+            .setInternalSymbolTable(symbolTable.newChildTable(script))
+            .build();
+    typeRegistry.addModule(module);
+
+    String id = module.getId().getCompiledName();
+    assertThat(typeRegistry.isModule(id)).isTrue();
+    assertThat(typeRegistry.getModule(id)).isSameAs(module);
+    assertThat(typeRegistry.isModule("module$src$foo$baz")).isFalse();
+
+    typeRegistry.invalidate(ImmutableSet.of(path));
+    assertThat(typeRegistry.isModule(id)).isFalse();
+    try {
+      typeRegistry.getModule(id);
+      fail();
+    } catch (IllegalArgumentException expected) {
+      assertThat(expected).hasMessageThat().isEqualTo("no such module: " + id);
+    }
+  }
+}
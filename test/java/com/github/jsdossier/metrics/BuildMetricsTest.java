@@ -0,0 +1,200 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.jsdossier.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.jimfs.Jimfs;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link BuildMetrics}. */
+@RunWith(JUnit4.class)
+public class BuildMetricsTest {
+
+  private final BuildMetrics metrics = new BuildMetrics();
+
+  @Test
+  public void emptyReport() {
+    JsonObject json = metrics.toJson();
+    assertThat(json.keySet())
+        .containsExactly("wallMs", "phases", "tasks", "bytesWritten", "inputs", "heapBytes");
+    assertThat(json.getAsJsonArray("phases").size()).isEqualTo(0);
+    assertThat(json.getAsJsonObject("tasks").size()).isEqualTo(0);
+    assertThat(json.get("bytesWritten").getAsLong()).isEqualTo(0);
+  }
+
+  @Test
+  public void recordsNestedPhasesInStartOrder() throws InterruptedException {
+    try (BuildMetrics.Phase outer = metrics.startPhase("outer")) {
+      Thread.sleep(5);
+      try (BuildMetrics.Phase inner = metrics.startPhase("inner")) {
+        Thread.sleep(5);
+      }
+    }
+
+    JsonArray phases = metrics.toJson().getAsJsonArray("phases");
+    assertThat(phases.size()).isEqualTo(2);
+
+    JsonObject outer = phases.get(0).getAsJsonObject();
+    JsonObject inner = phases.get(1).getAsJsonObject();
+    assertThat(outer.keySet())
+        .containsExactly("name", "startMs", "wallMs", "cpuMs", "allocatedBytes");
+    assertThat(outer.get("name").getAsString()).isEqualTo("outer");
+    assertThat(inner.get("name").getAsString()).isEqualTo("inner");
+
+    assertThat(inner.get("startMs").getAsLong()).isAtLeast(outer.get("startMs").getAsLong());
+    assertThat(inner.get("wallMs").getAsLong()).isAtLeast(5L);
+    assertThat(outer.get("wallMs").getAsLong()).isAtLeast(inner.get("wallMs").getAsLong());
+  }
+
+  @Test
+  public void closingAPhaseTwiceOnlyRecordsItOnce() {
+    BuildMetrics.Phase phase = metrics.startPhase("phase");
+    phase.close();
+    phase.close();
+    assertThat(metrics.toJson().getAsJsonArray("phases").size()).isEqualTo(1);
+  }
+
+  @Test
+  public void aggregatesTasksByType() {
+    metrics.recordTask("RenderPage", Duration.ofMillis(1), 100);
+    metrics.recordTask("RenderPage", Duration.ofMillis(3), 200);
+    metrics.recordTask("RenderPage", Duration.ofMillis(10), 300);
+    metrics.recordTask("RenderIndex", Duration.ofMillis(2), 50);
+
+    JsonObject json = metrics.toJson();
+    assertThat(json.get("bytesWritten").getAsLong()).isEqualTo(650);
+
+    JsonObject tasks = json.getAsJsonObject("tasks");
+    assertThat(tasks.keySet()).containsExactly("RenderIndex", "RenderPage").inOrder();
+
+    JsonObject pages = tasks.getAsJsonObject("RenderPage");
+    assertThat(pages.get("count").getAsInt()).isEqualTo(3);
+    assertThat(pages.get("bytesWritten").getAsLong()).isEqualTo(600);
+    assertThat(pages.get("totalMs").getAsLong()).isEqualTo(14);
+    assertThat(pages.get("minMs").getAsLong()).isEqualTo(1);
+    assertThat(pages.get("p50Ms").getAsLong()).isEqualTo(3);
+    assertThat(pages.get("maxMs").getAsLong()).isEqualTo(10);
+
+    JsonObject histogram = pages.getAsJsonObject("histogram");
+    assertThat(histogram.keySet()).containsExactly("<2ms", "<4ms", "<16ms").inOrder();
+    assertThat(histogram.get("<16ms").getAsInt()).isEqualTo(1);
+  }
+
+  @Test
+  public void recordsOptionalSections() {
+    metrics.recordInputLoad("sources", 2, 2048, Duration.ofSeconds(2));
+    metrics.recordCompileCache(true, 10, 4096, 3, 1);
+    metrics.recordSymbolTables(100, 5, 8000);
+    metrics.recordTypeLookups(7, 2, 1);
+    metrics.recordTypeResolutions(3, 1, 0);
+
+    JsonObject json = metrics.toJson();
+
+    JsonObject sources = json.getAsJsonObject("inputs").getAsJsonObject("sources");
+    assertThat(sources.get("files").getAsInt()).isEqualTo(2);
+    assertThat(sources.get("bytesPerSecond").getAsLong()).isEqualTo(1024);
+
+    assertThat(json.getAsJsonObject("compileCache").get("hit").getAsBoolean()).isTrue();
+    assertThat(json.getAsJsonObject("symbolTables").get("symbols").getAsInt()).isEqualTo(100);
+    assertThat(json.getAsJsonObject("typeLookups").get("misses").getAsLong()).isEqualTo(1);
+    assertThat(json.getAsJsonObject("typeResolutions").get("hitRate").getAsDouble())
+        .isEqualTo(0.75);
+  }
+
+  @Test
+  public void recordingCountsMoreThanOnceSumsThem() {
+    metrics.recordSymbolTables(100, 5, 8000);
+    metrics.recordSymbolTables(50, 2, 1000);
+    metrics.recordTypeResolutions(3, 1, 0);
+    metrics.recordTypeResolutions(0, 4, 2);
+
+    JsonObject json = metrics.toJson();
+    JsonObject symbolTables = json.getAsJsonObject("symbolTables");
+    assertThat(symbolTables.get("symbols").getAsInt()).isEqualTo(150);
+    assertThat(symbolTables.get("tables").getAsInt()).isEqualTo(7);
+    assertThat(symbolTables.get("estimatedBytes").getAsLong()).isEqualTo(9000);
+
+    JsonObject resolutions = json.getAsJsonObject("typeResolutions");
+    assertThat(resolutions.get("misses").getAsLong()).isEqualTo(5);
+    assertThat(resolutions.get("evictions").getAsLong()).isEqualTo(2);
+    assertThat(resolutions.get("hitRate").getAsDouble()).isEqualTo(0.375);
+  }
+
+  @Test
+  public void combinesTheMetricsForEachPartition() {
+    BuildMetrics first = new BuildMetrics();
+    first.startPhase("compile").close();
+    first.recordTask("RenderPage", Duration.ofMillis(1), 100);
+    first.recordInputLoad("sources", 2, 2048, Duration.ofSeconds(2));
+    first.recordTypeLookups(7, 2, 1);
+
+    BuildMetrics second = new BuildMetrics();
+    second.startPhase("compile").close();
+    second.recordTask("RenderPage", Duration.ofMillis(3), 200);
+    second.recordInputLoad("sources", 1, 512, Duration.ofSeconds(1));
+    second.recordTypeLookups(3, 0, 4);
+
+    metrics.addPartition(0, first);
+    metrics.addPartition(1, second);
+    JsonObject json = metrics.toJson();
+
+    JsonArray phases = json.getAsJsonArray("phases");
+    assertThat(phases.size()).isEqualTo(2);
+    assertThat(phases.get(0).getAsJsonObject().get("partition").getAsInt()).isEqualTo(0);
+    assertThat(phases.get(1).getAsJsonObject().get("partition").getAsInt()).isEqualTo(1);
+
+    JsonObject pages = json.getAsJsonObject("tasks").getAsJsonObject("RenderPage");
+    assertThat(pages.get("count").getAsInt()).isEqualTo(2);
+    assertThat(json.get("bytesWritten").getAsLong()).isEqualTo(300);
+
+    assertThat(json.getAsJsonObject("inputs").keySet())
+        .containsExactly("sources (partition 0)", "sources (partition 1)");
+
+    JsonObject lookups = json.getAsJsonObject("typeLookups");
+    assertThat(lookups.get("exactHits").getAsLong()).isEqualTo(10);
+    assertThat(lookups.get("misses").getAsLong()).isEqualTo(5);
+  }
+
+  @Test
+  public void writesReportAsJson() throws IOException {
+    FileSystem fs = Jimfs.newFileSystem();
+    Path path = fs.getPath("/out/metrics/report.json");
+
+    try (BuildMetrics.Phase phase = metrics.startPhase("compile")) {
+      metrics.recordTask("RenderPage", Duration.ofMillis(1), 100);
+    }
+    metrics.write(path);
+
+    String content = new String(Files.readAllBytes(path), UTF_8);
+    JsonObject json = new JsonParser().parse(content).getAsJsonObject();
+    assertThat(json.getAsJsonArray("phases").get(0).getAsJsonObject().get("name").getAsString())
+        .isEqualTo("compile");
+    assertThat(json.get("bytesWritten").getAsLong()).isEqualTo(100);
+  }
+}
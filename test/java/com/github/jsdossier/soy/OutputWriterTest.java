@@ -0,0 +1,108 @@
+/*
+Copyright 2013-2016 Jason Leyba
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.github.jsdossier.soy;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.jimfs.Jimfs;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link OutputWriter}. */
+@RunWith(JUnit4.class)
+public class OutputWriterTest {
+
+  private static final FileTime OLD_TIME = FileTime.fromMillis(1000);
+
+  private final FileSystem fs = Jimfs.newFileSystem();
+  private final Path path = fs.getPath("/out/types/foo.html");
+
+  @Test
+  public void createsParentDirectories() throws IOException {
+    OutputWriter writer = new OutputWriter(true);
+    assertThat(writer.write(path, "hello")).isTrue();
+    assertThat(readContent()).isEqualTo("hello");
+    assertThat(writer.getAndResetUnchangedCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void doesNotRewriteUnchangedFiles() throws IOException {
+    writeExisting("hello");
+
+    OutputWriter writer = new OutputWriter(true);
+    assertThat(writer.write(path, "hello")).isFalse();
+    assertThat(Files.getLastModifiedTime(path)).isEqualTo(OLD_TIME);
+    assertThat(readContent()).isEqualTo("hello");
+    assertThat(writer.getAndResetUnchangedCount()).isEqualTo(1);
+    assertThat(writer.getAndResetUnchangedCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void rewritesFilesWithChangedContent() throws IOException {
+    writeExisting("hello");
+
+    OutputWriter writer = new OutputWriter(true);
+    assertThat(writer.write(path, "jello")).isTrue();
+    assertThat(Files.getLastModifiedTime(path)).isNotEqualTo(OLD_TIME);
+    assertThat(readContent()).isEqualTo("jello");
+    assertThat(writer.getAndResetUnchangedCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void rewritesFilesWithChangedLength() throws IOException {
+    writeExisting("hello");
+
+    OutputWriter writer = new OutputWriter(true);
+    assertThat(writer.write(path, "hello, world")).isTrue();
+    assertThat(readContent()).isEqualTo("hello, world");
+  }
+
+  @Test
+  public void alwaysRewritesFilesWhenNotSkippingUnchangedWrites() throws IOException {
+    writeExisting("hello");
+
+    OutputWriter writer = new OutputWriter(false);
+    assertThat(writer.write(path, "hello")).isTrue();
+    assertThat(Files.getLastModifiedTime(path)).isNotEqualTo(OLD_TIME);
+    assertThat(writer.getAndResetUnchangedCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void injectedWriterDoesNotSkipUnchangedWrites() throws IOException {
+    writeExisting("hello");
+
+    OutputWriter writer = new OutputWriter();
+    assertThat(writer.write(path, "hello".getBytes(UTF_8))).isTrue();
+    assertThat(Files.getLastModifiedTime(path)).isNotEqualTo(OLD_TIME);
+  }
+
+  private void writeExisting(String content) throws IOException {
+    Files.createDirectories(path.getParent());
+    Files.write(path, content.getBytes(UTF_8));
+    Files.setLastModifiedTime(path, OLD_TIME);
+  }
+
+  private String readContent() throws IOException {
+    return new String(Files.readAllBytes(path), UTF_8);
+  }
+}
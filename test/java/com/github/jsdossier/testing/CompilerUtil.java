@@ -93,6 +93,7 @@ public class CompilerUtil {
     assertCompiled(result);
 
     typeRegistry.computeTypeRelationships(compiler.getTopScope(), compiler.getTypeRegistry());
+    typeRegistry.flattenAliases();
   }
 
   public JSType evaluate(JSTypeExpression expression) {